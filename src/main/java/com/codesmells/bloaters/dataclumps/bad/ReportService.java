@@ -1,5 +1,6 @@
 package com.codesmells.bloaters.dataclumps.bad;
 
+import com.codesmells.common.mail.MailQueue;
 import org.springframework.stereotype.Service;
 
 /**
@@ -21,6 +22,19 @@ import org.springframework.stereotype.Service;
 @Service
 public class ReportService {
     
+    private final MailQueue mailQueue;
+    
+    public ReportService() {
+        this(null);
+    }
+    
+    /**
+     * @param mailQueue queue {@link #emailReport} submits to, or null to only print the mail
+     */
+    public ReportService(MailQueue mailQueue) {
+        this.mailQueue = mailQueue;
+    }
+    
     /**
      * BAD: startDate, endDate, format always appear together
      */
@@ -33,6 +47,11 @@ public class ReportService {
     }
     
     public void emailReport(String recipient, String startDate, String endDate, String format) {
-        System.out.println("Emailing report to " + recipient);
+        if (mailQueue == null) {
+            System.out.println("Emailing report to " + recipient);
+            return;
+        }
+        mailQueue.submit(recipient, "Report " + startDate + " to " + endDate,
+            "Report from " + startDate + " to " + endDate + " (" + format + ")");
     }
 }
@@ -0,0 +1,126 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Size-bounded least-recently-used cache.
+ *
+ * Entries are spread over independently locked segments so concurrent
+ * readers of different keys rarely contend. Each segment evicts its own
+ * least recently used entry once it exceeds its share of the capacity.
+ * A value loaded while its segment saw an invalidation is returned to the
+ * caller but not cached, so a slow load cannot bring back an entry that was
+ * invalidated after the load read it.
+ */
+public class BoundedCache<K, V> {
+
+    private final Segment<K, V>[] segments;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BoundedCache(int capacity, int segmentCount) {
+        if (capacity <= 0 || segmentCount <= 0) {
+            throw new IllegalArgumentException("Capacity and segment count must be positive");
+        }
+        int perSegment = Math.max(1, capacity / segmentCount);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(perSegment, evictions);
+        }
+    }
+
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        V value;
+        synchronized (segment) {
+            value = segment.get(key);
+        }
+        (value != null ? hits : misses).incrementAndGet();
+        return value;
+    }
+
+    /**
+     * Returns the cached value or loads it outside the segment lock. A null
+     * result from the loader is not cached, and neither is a result whose
+     * segment was invalidated while it loaded.
+     */
+    public V get(K key, Function<K, V> loader) {
+        Segment<K, V> segment = segmentFor(key);
+        V value;
+        long invalidations;
+        synchronized (segment) {
+            value = segment.get(key);
+            invalidations = segment.invalidations;
+        }
+        (value != null ? hits : misses).incrementAndGet();
+        if (value != null) {
+            return value;
+        }
+        value = loader.apply(key);
+        if (value != null) {
+            synchronized (segment) {
+                if (segment.invalidations == invalidations) {
+                    V raced = segment.putIfAbsent(key, value);
+                    if (raced != null) {
+                        value = raced;
+                    }
+                }
+            }
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.remove(key);
+            segment.invalidations++;
+        }
+    }
+
+    public long getHitCount() { return hits.get(); }
+    public long getMissCount() { return misses.get(); }
+    public long getEvictionCount() { return evictions.get(); }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return segments[Math.floorMod(hash, segments.length)];
+    }
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+        private final transient AtomicLong evictions;
+        // Bumped by every invalidate, so loads that overlapped one don't cache their result
+        private long invalidations;
+
+        Segment(int capacity, AtomicLong evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > capacity) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import java.util.List;
+
+/**
+ * Stand-in for the real SMTP server and SMS gateway: prints one line per batch.
+ */
+public class ConsoleNotificationSink implements NotificationSink {
+
+    private final String emailServer;
+    private final String smsGateway;
+
+    public ConsoleNotificationSink(String emailServer, String smsGateway) {
+        this.emailServer = emailServer;
+        this.smsGateway = smsGateway;
+    }
+
+    @Override
+    public void deliver(Notification.Channel channel, String recipient, List<String> messages) {
+        String server = channel == Notification.Channel.SMS ? smsGateway : emailServer;
+        System.out.println("Sending " + messages.size() + " notification(s) via " + server
+            + " to: " + recipient + " " + messages);
+    }
+}
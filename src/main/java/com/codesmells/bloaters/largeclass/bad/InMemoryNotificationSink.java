@@ -0,0 +1,29 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records delivered messages per recipient instead of sending them.
+ * Useful as a stand-in for SMTP/SMS when running locally.
+ */
+public class InMemoryNotificationSink implements NotificationSink {
+
+    private final Map<String, List<String>> delivered = new ConcurrentHashMap<>();
+
+    @Override
+    public void deliver(Notification.Channel channel, String recipient, List<String> messages) {
+        delivered.computeIfAbsent(recipient, key -> new CopyOnWriteArrayList<>()).addAll(messages);
+    }
+
+    public List<String> getDelivered(String recipient) {
+        return new ArrayList<>(delivered.getOrDefault(recipient, List.of()));
+    }
+
+    public void clear() {
+        delivered.clear();
+    }
+}
@@ -0,0 +1,103 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Non-persistent {@link UserStore} kept entirely in concurrent maps.
+ * Used when UserManager runs outside Spring.
+ */
+public class InMemoryUserStore implements UserStore {
+
+    // Sorted by user id so listings can page by key and stay stable under concurrent changes
+    private final NavigableMap<String, UserManager.User> users = new ConcurrentSkipListMap<>();
+    private final Map<String, String> passwordHashes = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> roles = new ConcurrentHashMap<>();
+
+    @Override
+    public void create(UserManager.User user, String passwordHash) {
+        // The password hash claims the id, so a concurrent create of the same id fails here too
+        if (passwordHashes.putIfAbsent(user.getUserId(), passwordHash) != null) {
+            throw new IllegalArgumentException("User already exists: " + user.getUserId());
+        }
+        roles.put(user.getUserId(), List.of());
+        users.put(user.getUserId(), user);
+    }
+
+    @Override
+    public void createAll(List<UserManager.User> newUsers, List<String> newPasswordHashes) {
+        if (newUsers.size() != newPasswordHashes.size()) {
+            throw new IllegalArgumentException("Expected one password hash per user");
+        }
+        for (int i = 0; i < newUsers.size(); i++) {
+            String userId = newUsers.get(i).getUserId();
+            if (passwordHashes.putIfAbsent(userId, newPasswordHashes.get(i)) != null) {
+                // Release the ids claimed so far, so a failed batch leaves no users behind
+                for (int j = 0; j < i; j++) {
+                    passwordHashes.remove(newUsers.get(j).getUserId());
+                }
+                throw new IllegalArgumentException("User already exists: " + userId);
+            }
+        }
+        for (UserManager.User user : newUsers) {
+            roles.put(user.getUserId(), List.of());
+            users.put(user.getUserId(), user);
+        }
+    }
+
+    @Override
+    public UserManager.User find(String userId) {
+        return users.get(userId);
+    }
+
+    @Override
+    public void updateProfile(UserManager.User user) {
+        // The stored object is the one that was changed; nothing to write
+    }
+
+    @Override
+    public void delete(String userId) {
+        users.remove(userId);
+        passwordHashes.remove(userId);
+        roles.remove(userId);
+    }
+
+    @Override
+    public String findPasswordHash(String userId) {
+        return passwordHashes.get(userId);
+    }
+
+    @Override
+    public List<String> findRoles(String userId) {
+        List<String> userRoles = roles.get(userId);
+        return userRoles != null ? new ArrayList<>(userRoles) : null;
+    }
+
+    @Override
+    public void saveRoles(String userId, List<String> userRoles) {
+        roles.computeIfPresent(userId, (id, existing) -> List.copyOf(userRoles));
+    }
+
+    @Override
+    public List<UserManager.User> findPage(String afterUserId, int limit) {
+        Map<String, UserManager.User> remaining = afterUserId == null ? users : users.tailMap(afterUserId, false);
+        List<UserManager.User> page = new ArrayList<>(Math.min(limit, 1024));
+        for (UserManager.User user : remaining.values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(user);
+        }
+        return page;
+    }
+
+    @Override
+    public Stream<UserManager.User> stream() {
+        return users.values().stream();
+    }
+}
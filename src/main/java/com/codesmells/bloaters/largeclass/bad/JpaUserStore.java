@@ -0,0 +1,245 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link UserStore} backed by JPA, so users survive restarts and can be shared
+ * between nodes.
+ *
+ * Reads go through a bounded read-through cache. Profile updates are
+ * written behind: they are applied to the cached user immediately and
+ * flushed to the database in batches on a background thread. Bulk inserts
+ * go through {@link #createAll}, which relies on the JDBC batch size
+ * configured in application.properties. Deletes remove the row before the
+ * cached user, and the cache drops loads that overlapped the invalidation,
+ * so a deleted user cannot be cached again by a read already in flight.
+ */
+@Component
+public class JpaUserStore implements UserStore, AutoCloseable {
+
+    private static final int CACHE_CAPACITY = 100_000;
+    private static final int CACHE_SEGMENTS = 64;
+    private static final int STREAM_PAGE_SIZE = 1_000;
+    private static final long FLUSH_INTERVAL_MILLIS = 1_000;
+
+    private final UserEntityRepository repository;
+    private final TransactionTemplate transactions;
+    private final BoundedCache<String, UserManager.User> cache = new BoundedCache<>(CACHE_CAPACITY, CACHE_SEGMENTS);
+    private final Map<String, UserManager.User> pendingProfileUpdates = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService writeBehind;
+
+    public JpaUserStore(UserEntityRepository repository, PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.writeBehind = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writeBehind.scheduleWithFixedDelay(this::flushSafely,
+            FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void create(UserManager.User user, String passwordHash) {
+        try {
+            repository.save(new UserEntity(user.getUserId(), user.getName(), user.getEmail(), passwordHash));
+        } catch (DataIntegrityViolationException e) {
+            if (repository.existsById(user.getUserId())) {
+                throw new IllegalArgumentException("User already exists: " + user.getUserId());
+            }
+            throw e;
+        }
+        cache.put(user.getUserId(), user);
+    }
+
+    /**
+     * Inserts many users in one transaction so Hibernate can send them as JDBC batches.
+     */
+    @Override
+    public void createAll(List<UserManager.User> users, List<String> passwordHashes) {
+        if (users.size() != passwordHashes.size()) {
+            throw new IllegalArgumentException("Expected one password hash per user");
+        }
+        Set<String> userIds = new HashSet<>();
+        List<UserEntity> entities = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            UserManager.User user = users.get(i);
+            if (!userIds.add(user.getUserId())) {
+                throw new IllegalArgumentException("User given twice: " + user.getUserId());
+            }
+            entities.add(new UserEntity(user.getUserId(), user.getName(), user.getEmail(), passwordHashes.get(i)));
+        }
+        try {
+            transactions.executeWithoutResult(status -> repository.saveAll(entities));
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("At least one of the users already exists", e);
+        }
+        users.forEach(user -> cache.put(user.getUserId(), user));
+    }
+
+    @Override
+    public UserManager.User find(String userId) {
+        return cache.get(userId, this::load);
+    }
+
+    private UserManager.User load(String userId) {
+        // A profile change that was evicted from the cache before being flushed is still the latest version
+        UserManager.User pending = pendingProfileUpdates.get(userId);
+        if (pending != null) {
+            return pending;
+        }
+        return repository.findById(userId).map(UserEntity::toUser).orElse(null);
+    }
+
+    @Override
+    public void updateProfile(UserManager.User user) {
+        cache.put(user.getUserId(), user);
+        pendingProfileUpdates.put(user.getUserId(), user);
+    }
+
+    @Override
+    public void delete(String userId) {
+        repository.deleteById(userId);
+        // Only now, so a load that misses the cache from here on can no longer find the row
+        pendingProfileUpdates.remove(userId);
+        cache.invalidate(userId);
+    }
+
+    @Override
+    public String findPasswordHash(String userId) {
+        return repository.findById(userId).map(UserEntity::getPasswordHash).orElse(null);
+    }
+
+    @Override
+    public List<String> findRoles(String userId) {
+        return repository.findWithRolesByUserId(userId).map(entity -> new ArrayList<>(entity.getRoles())).orElse(null);
+    }
+
+    @Override
+    public void saveRoles(String userId, List<String> roles) {
+        transactions.executeWithoutResult(status ->
+            repository.findById(userId).ifPresent(entity -> entity.setRoles(roles)));
+    }
+
+    @Override
+    public List<UserManager.User> findPage(String afterUserId, int limit) {
+        PageRequest page = PageRequest.ofSize(limit);
+        List<UserEntity> entities = afterUserId == null
+            ? repository.findAllByOrderByUserIdAsc(page)
+            : repository.findByUserIdGreaterThanOrderByUserIdAsc(afterUserId, page);
+        return entities.stream().map(UserEntity::toUser).collect(Collectors.toList());
+    }
+
+    /**
+     * Streams users by walking keyset pages, so no transaction has to stay open
+     * and only one page is held in memory at a time.
+     */
+    @Override
+    public Stream<UserManager.User> stream() {
+        Iterator<UserManager.User> pages = new Iterator<>() {
+            private Iterator<UserManager.User> current = findPage(null, STREAM_PAGE_SIZE).iterator();
+            private String lastUserId;
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                if (current.hasNext()) {
+                    return true;
+                }
+                if (exhausted || lastUserId == null) {
+                    return false;
+                }
+                List<UserManager.User> next = findPage(lastUserId, STREAM_PAGE_SIZE);
+                exhausted = next.size() < STREAM_PAGE_SIZE;
+                current = next.iterator();
+                return current.hasNext();
+            }
+
+            @Override
+            public UserManager.User next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                UserManager.User user = current.next();
+                lastUserId = user.getUserId();
+                return user;
+            }
+        };
+        return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Writes all pending profile updates to the database in one transaction.
+     */
+    public void flush() {
+        if (pendingProfileUpdates.isEmpty()) {
+            return;
+        }
+        Map<String, UserManager.User> batch = new HashMap<>();
+        for (String userId : pendingProfileUpdates.keySet()) {
+            UserManager.User user = pendingProfileUpdates.remove(userId);
+            if (user != null) {
+                batch.put(userId, user);
+            }
+        }
+        try {
+            transactions.executeWithoutResult(status -> {
+                for (UserEntity entity : repository.findAllById(batch.keySet())) {
+                    UserManager.User user = batch.get(entity.getUserId());
+                    entity.setName(user.getName());
+                    entity.setEmail(user.getEmail());
+                }
+            });
+        } catch (RuntimeException e) {
+            // Re-queue so the next flush retries, unless a newer update arrived meanwhile
+            batch.forEach(pendingProfileUpdates::putIfAbsent);
+            throw e;
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("Write-behind flush failed, will retry: " + e.getMessage());
+        }
+    }
+
+    public BoundedCache<String, UserManager.User> getCache() {
+        return cache;
+    }
+
+    public int getPendingWriteCount() {
+        return pendingProfileUpdates.size();
+    }
+
+    @Override
+    public void close() {
+        writeBehind.shutdownNow();
+        flushSafely();
+    }
+}
@@ -0,0 +1,206 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Counts failed login attempts per key (user id or source address) over a
+ * sliding time window, using a fixed amount of memory no matter how many
+ * distinct keys are seen.
+ *
+ * Counts live in a count-min sketch: each key maps to one counter in each of
+ * a few rows, and the estimate is the smallest of those counters. Updates are
+ * conservative (only counters at the current minimum are raised), which keeps
+ * overcounting low when many keys share counters. Estimates can only
+ * overcount, never undercount. The sliding window is approximated with two
+ * fixed windows: the current count plus the previous window's count
+ * weighted by how much of it still overlaps. All updates are lock-free.
+ *
+ * {@link #reset} never lowers the shared counters, since that would also
+ * erase failures of other keys sharing them. Instead the key's counts at
+ * the time of the reset are remembered exactly, in a small bounded map,
+ * and subtracted from its later estimates until the window moves past them.
+ */
+public class LoginRateLimiter {
+
+    private static final int DEPTH = 4;
+
+    private final int width;
+    private final int mask;
+    private final long[] seeds = new long[DEPTH];
+    private final int limit;
+    private final long windowMillis;
+    private final Clock clock;
+    private final AtomicReference<Window> window;
+    private final Map<String, Reset> resets = new ConcurrentHashMap<>();
+    private final int maxResets;
+
+    public LoginRateLimiter(int limit, Duration window, int width) {
+        this(limit, window, width, Clock.systemUTC());
+    }
+
+    /**
+     * @param width counters per row; rounded up to a power of two
+     */
+    public LoginRateLimiter(int limit, Duration window, int width, Clock clock) {
+        if (limit <= 0 || width <= 0 || window.isZero() || window.isNegative()) {
+            throw new IllegalArgumentException("Limit, width and window must be positive");
+        }
+        this.width = Integer.highestOneBit(Math.max(1, width - 1)) << 1;
+        this.mask = this.width - 1;
+        this.limit = limit;
+        this.windowMillis = window.toMillis();
+        this.clock = clock;
+        this.maxResets = Math.max(256, this.width / 4);
+        // Random seeds so an attacker cannot precompute keys that collide with a victim
+        SecureRandom random = new SecureRandom();
+        for (int i = 0; i < DEPTH; i++) {
+            seeds[i] = random.nextLong();
+        }
+        long epoch = clock.millis() / windowMillis;
+        this.window = new AtomicReference<>(new Window(epoch, newCounters(), newCounters()));
+    }
+
+    /**
+     * Records one failed attempt for the key.
+     */
+    public void recordFailure(String key) {
+        AtomicIntegerArray counters = currentWindow().current;
+        int current = min(counters, key);
+        if (current == Integer.MAX_VALUE) {
+            return; // saturated under a sustained flood
+        }
+        int next = current + 1;
+        for (int row = 0; row < DEPTH; row++) {
+            counters.getAndUpdate(index(row, key), count -> Math.max(count, next));
+        }
+    }
+
+    public boolean isLimited(String key) {
+        return estimate(key) >= limit;
+    }
+
+    /**
+     * Estimated number of failures for the key within the last window.
+     */
+    public double estimate(String key) {
+        Window current = currentWindow();
+        int currentCount = min(current.current, key);
+        int previousCount = min(current.previous, key);
+        Reset reset = resets.isEmpty() ? null : resets.get(key);
+        if (reset != null) {
+            if (reset.epoch == current.epoch) {
+                currentCount -= reset.current;
+                previousCount -= reset.previous;
+            } else if (reset.epoch == current.epoch - 1) {
+                previousCount -= reset.current;
+            } else {
+                resets.remove(key, reset);
+            }
+        }
+        double previousWeight = 1.0 - (double) (clock.millis() % windowMillis) / windowMillis;
+        return Math.max(0, currentCount) + Math.max(0, previousCount) * previousWeight;
+    }
+
+    /**
+     * Clears the key's count, e.g. after a successful login, without touching
+     * the counters it shares with other keys. Failures recorded afterwards
+     * count again. If too many keys were reset within the window, the key's
+     * old failures are left to expire with the window instead.
+     */
+    public void reset(String key) {
+        Window current = currentWindow();
+        int currentCount = min(current.current, key);
+        int previousCount = min(current.previous, key);
+        if (currentCount == 0 && previousCount == 0) {
+            resets.remove(key);
+            return;
+        }
+        if (resets.size() >= maxResets && !resets.containsKey(key)) {
+            resets.values().removeIf(entry -> entry.epoch < current.epoch - 1);
+            if (resets.size() >= maxResets) {
+                return;
+            }
+        }
+        resets.put(key, new Reset(current.epoch, currentCount, previousCount));
+    }
+
+    /**
+     * Keys whose reset is currently remembered.
+     */
+    public int getResetCount() {
+        return resets.size();
+    }
+
+    private Window currentWindow() {
+        long epoch = clock.millis() / windowMillis;
+        while (true) {
+            Window existing = window.get();
+            if (existing.epoch >= epoch) {
+                return existing;
+            }
+            // Only the directly preceding window still overlaps the sliding window
+            AtomicIntegerArray previous = existing.epoch == epoch - 1 ? existing.current : newCounters();
+            Window rotated = new Window(epoch, newCounters(), previous);
+            if (window.compareAndSet(existing, rotated)) {
+                return rotated;
+            }
+        }
+    }
+
+    private int min(AtomicIntegerArray counters, String key) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, counters.get(index(row, key)));
+        }
+        return min;
+    }
+
+    private int index(int row, String key) {
+        // FNV-1a over the key's chars, started from a per-row random basis, then a final mix
+        long hash = seeds[row];
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return row * width + (int) (hash & mask);
+    }
+
+    private AtomicIntegerArray newCounters() {
+        return new AtomicIntegerArray(DEPTH * width);
+    }
+
+    /**
+     * Counts of a key at its reset, in the windows current at that time.
+     */
+    private static final class Reset {
+        final long epoch;
+        final int current;
+        final int previous;
+
+        Reset(long epoch, int current, int previous) {
+            this.epoch = epoch;
+            this.current = current;
+            this.previous = previous;
+        }
+    }
+
+    private static final class Window {
+        final long epoch;
+        final AtomicIntegerArray current;
+        final AtomicIntegerArray previous;
+
+        Window(long epoch, AtomicIntegerArray current, AtomicIntegerArray previous) {
+            this.epoch = epoch;
+            this.current = current;
+            this.previous = previous;
+        }
+    }
+}
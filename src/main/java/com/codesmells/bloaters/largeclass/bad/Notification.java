@@ -0,0 +1,23 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+/**
+ * A single outbound message queued for asynchronous delivery.
+ */
+public final class Notification {
+
+    public enum Channel { EMAIL, SMS }
+
+    private final Channel channel;
+    private final String recipient;
+    private final String message;
+
+    public Notification(Channel channel, String recipient, String message) {
+        this.channel = channel;
+        this.recipient = recipient;
+        this.message = message;
+    }
+
+    public Channel getChannel() { return channel; }
+    public String getRecipient() { return recipient; }
+    public String getMessage() { return message; }
+}
@@ -0,0 +1,151 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves notification delivery off the request thread.
+ *
+ * Callers only enqueue into a bounded queue. A single daemon consumer drains
+ * whatever has accumulated, coalesces it per (channel, recipient) and hands
+ * each group to the {@link NotificationSink} as one batch. When the queue is
+ * full the {@link OverflowPolicy} decides what gets dropped; callers are never
+ * blocked.
+ */
+public class NotificationDispatcher implements AutoCloseable {
+
+    public enum OverflowPolicy {
+        /** Reject the notification being submitted. */
+        DROP_NEWEST,
+        /** Evict the oldest queued notification to make room. */
+        DROP_OLDEST
+    }
+
+    private static final int DEFAULT_MAX_BATCH = 256;
+
+    private final BlockingQueue<Notification> queue;
+    private final NotificationSink sink;
+    private final OverflowPolicy overflowPolicy;
+    private final int maxBatch;
+    private final Thread consumer;
+    private volatile boolean running = true;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public NotificationDispatcher(NotificationSink sink, int capacity, OverflowPolicy overflowPolicy) {
+        this(sink, capacity, overflowPolicy, DEFAULT_MAX_BATCH);
+    }
+
+    public NotificationDispatcher(NotificationSink sink, int capacity, OverflowPolicy overflowPolicy, int maxBatch) {
+        if (capacity <= 0 || maxBatch <= 0) {
+            throw new IllegalArgumentException("Capacity and batch size must be positive");
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.sink = sink;
+        this.overflowPolicy = overflowPolicy;
+        this.maxBatch = maxBatch;
+        this.consumer = new Thread(this::consumeLoop, "notification-dispatcher");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * Queues a notification without blocking.
+     *
+     * @return false if the notification was dropped
+     */
+    public boolean submit(Notification notification) {
+        submitted.incrementAndGet();
+        if (running && queue.offer(notification)) {
+            return true;
+        }
+        if (running && overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+            // Retry once after evicting; a concurrent producer may win the freed slot
+            if (queue.poll() != null) {
+                dropped.incrementAndGet();
+            }
+            if (queue.offer(notification)) {
+                return true;
+            }
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    public boolean email(String recipient, String message) {
+        return submit(new Notification(Notification.Channel.EMAIL, recipient, message));
+    }
+
+    public boolean sms(String recipient, String message) {
+        return submit(new Notification(Notification.Channel.SMS, recipient, message));
+    }
+
+    public int getQueueDepth() { return queue.size(); }
+    public long getSubmittedCount() { return submitted.get(); }
+    public long getDroppedCount() { return dropped.get(); }
+    public long getDeliveredCount() { return delivered.get(); }
+    public long getFailedCount() { return failed.get(); }
+
+    private void consumeLoop() {
+        List<Notification> drained = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Notification first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                drained.add(first);
+                queue.drainTo(drained, maxBatch - 1);
+                deliverCoalesced(drained);
+            } catch (InterruptedException e) {
+                // Stop after flushing whatever is still queued
+                running = false;
+            } finally {
+                drained.clear();
+            }
+        }
+    }
+
+    private void deliverCoalesced(List<Notification> drained) {
+        Map<Notification.Channel, Map<String, List<String>>> byRecipient = new LinkedHashMap<>();
+        for (Notification notification : drained) {
+            byRecipient
+                .computeIfAbsent(notification.getChannel(), channel -> new LinkedHashMap<>())
+                .computeIfAbsent(notification.getRecipient(), recipient -> new ArrayList<>())
+                .add(notification.getMessage());
+        }
+        for (Map.Entry<Notification.Channel, Map<String, List<String>>> channel : byRecipient.entrySet()) {
+            for (Map.Entry<String, List<String>> batch : channel.getValue().entrySet()) {
+                try {
+                    sink.deliver(channel.getKey(), batch.getKey(), batch.getValue());
+                    delivered.addAndGet(batch.getValue().size());
+                } catch (RuntimeException e) {
+                    // A failing sink must not kill the consumer thread
+                    failed.addAndGet(batch.getValue().size());
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting work and waits briefly for queued notifications to be delivered.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            consumer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import java.util.List;
+
+/**
+ * Destination for notification batches, e.g. an SMTP server or SMS gateway.
+ * Called only from the dispatcher thread, never from a request thread.
+ */
+public interface NotificationSink {
+
+    /**
+     * Delivers all messages queued for one recipient on one channel.
+     */
+    void deliver(Notification.Channel channel, String recipient, List<String> messages);
+}
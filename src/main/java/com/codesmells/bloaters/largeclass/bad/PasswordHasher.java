@@ -0,0 +1,17 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+/**
+ * Produces and checks stored password hashes.
+ * Implementations encode everything needed for verification (salt, cost)
+ * into the returned string.
+ */
+public interface PasswordHasher {
+
+    String hash(String password);
+
+    /**
+     * Checks a password against a stored hash in constant time with respect
+     * to the hash contents.
+     */
+    boolean verify(String password, String storedHash);
+}
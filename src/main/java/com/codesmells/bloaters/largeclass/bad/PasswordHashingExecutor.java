@@ -0,0 +1,164 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing and verification on a dedicated, bounded pool so that
+ * expensive hash work cannot take over the threads serving requests.
+ *
+ * The pool has a fixed number of threads and a bounded queue; submissions
+ * beyond that are rejected instead of queued without limit. Completed
+ * operations, queueing delay and hashing time are tracked for monitoring.
+ */
+public class PasswordHashingExecutor implements AutoCloseable {
+
+    private static final int BULK_WINDOW = 64;
+
+    private final PasswordHasher hasher;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final long startedAtNanos = System.nanoTime();
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalQueueNanos = new AtomicLong();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+    private final AtomicLong totalHashNanos = new AtomicLong();
+
+    public PasswordHashingExecutor(PasswordHasher hasher, int threads, int queueCapacity, long timeoutMillis) {
+        this.hasher = hasher;
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "password-hasher-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    public CompletableFuture<String> hashAsync(String password) {
+        return submit(() -> hasher.hash(password));
+    }
+
+    public CompletableFuture<Boolean> verifyAsync(String password, String storedHash) {
+        return submit(() -> hasher.verify(password, storedHash));
+    }
+
+    /**
+     * Hashes on the pool and waits for the result.
+     *
+     * @throws IllegalStateException if the pool is saturated or the hash times out
+     */
+    public String hash(String password) {
+        return await(hashAsync(password));
+    }
+
+    /**
+     * Hashes every password on the pool, a window at a time so a large batch
+     * does not fill the queue, and returns the hashes in the same order.
+     *
+     * @throws IllegalStateException if the pool is saturated or a hash times out
+     */
+    public List<String> hashAll(List<String> passwords) {
+        List<String> hashes = new ArrayList<>(passwords.size());
+        for (int start = 0; start < passwords.size(); start += BULK_WINDOW) {
+            List<CompletableFuture<String>> window = new ArrayList<>(BULK_WINDOW);
+            for (String password : passwords.subList(start, Math.min(passwords.size(), start + BULK_WINDOW))) {
+                window.add(hashAsync(password));
+            }
+            for (CompletableFuture<String> hash : window) {
+                hashes.add(await(hash));
+            }
+        }
+        return hashes;
+    }
+
+    public boolean verify(String password, String storedHash) {
+        return await(verifyAsync(password, storedHash));
+    }
+
+    public long getCompletedCount() { return completed.get(); }
+    public long getRejectedCount() { return rejected.get(); }
+    public int getQueueDepth() { return executor.getQueue().size(); }
+    public long getMaxQueueDelayNanos() { return maxQueueNanos.get(); }
+
+    public double getAverageQueueDelayMillis() {
+        long count = completed.get();
+        return count == 0 ? 0 : totalQueueNanos.get() / 1e6 / count;
+    }
+
+    public double getAverageHashMillis() {
+        long count = completed.get();
+        return count == 0 ? 0 : totalHashNanos.get() / 1e6 / count;
+    }
+
+    /**
+     * Completed hash operations per second since the executor was created.
+     */
+    public double getThroughputPerSecond() {
+        double elapsedSeconds = (System.nanoTime() - startedAtNanos) / 1e9;
+        return elapsedSeconds <= 0 ? 0 : completed.get() / elapsedSeconds;
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> work) {
+        long enqueuedAt = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                long startedAt = System.nanoTime();
+                recordQueueDelay(startedAt - enqueuedAt);
+                try {
+                    result.complete(work.get());
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    totalHashNanos.addAndGet(System.nanoTime() - startedAt);
+                    completed.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private void recordQueueDelay(long queueNanos) {
+        totalQueueNanos.addAndGet(queueNanos);
+        maxQueueNanos.accumulateAndGet(queueNanos, Math::max);
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw new IllegalStateException("Password hashing timed out", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                throw new IllegalStateException("Password hashing is saturated, try again later", e.getCause());
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,106 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * PBKDF2-HMAC-SHA256 hasher using only the JDK.
+ *
+ * Hashes are stored as {@code pbkdf2$<iterations>$<salt>$<hash>}, so the
+ * iteration count can be raised later without invalidating existing hashes.
+ */
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+    private static final int MIN_ITERATIONS = 10_000;
+    private static final int MAX_ITERATIONS = 10_000_000;
+
+    private final SecureRandom random = new SecureRandom();
+    private final int iterations;
+
+    public Pbkdf2PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Iterations must be positive");
+        }
+        this.iterations = iterations;
+    }
+
+    /**
+     * Picks the iteration count so that one hash takes roughly the target time
+     * on this machine, by doubling from a floor until the target is reached.
+     */
+    public static Pbkdf2PasswordHasher calibrated(Duration targetLatency) {
+        long targetNanos = targetLatency.toNanos();
+        int iterations = MIN_ITERATIONS;
+        byte[] salt = new byte[SALT_BYTES];
+        derive("calibration".toCharArray(), salt, iterations); // warm up the provider
+        while (iterations < MAX_ITERATIONS) {
+            long start = System.nanoTime();
+            derive("calibration".toCharArray(), salt, iterations);
+            long elapsed = System.nanoTime() - start;
+            if (elapsed >= targetNanos) {
+                break;
+            }
+            iterations *= 2;
+        }
+        return new Pbkdf2PasswordHasher(Math.min(iterations, MAX_ITERATIONS));
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    @Override
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = derive(password.toCharArray(), salt, iterations);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    @Override
+    public boolean verify(String password, String storedHash) {
+        if (password == null || storedHash == null) {
+            return false;
+        }
+        String[] parts = storedHash.split("\\$");
+        if (parts.length != 4 || !PREFIX.equals(parts[0])) {
+            return false;
+        }
+        int storedIterations;
+        byte[] salt;
+        byte[] expected;
+        try {
+            storedIterations = Integer.parseInt(parts[1]);
+            salt = Base64.getDecoder().decode(parts[2]);
+            expected = Base64.getDecoder().decode(parts[3]);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (storedIterations < 1) {
+            return false;
+        }
+        byte[] actual = derive(password.toCharArray(), salt, storedIterations);
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    private static byte[] derive(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
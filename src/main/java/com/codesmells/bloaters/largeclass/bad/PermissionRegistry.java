@@ -0,0 +1,163 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Interns role and permission names into small integer ids and compiles each
+ * role into a bitset of the permissions it grants.
+ *
+ * A user's roles are compiled once into {@link CompiledPermissions}, after
+ * which a role or permission check is a single bit test. The registry version
+ * changes whenever a grant changes, so compiled sets built against an older
+ * version can be detected and rebuilt.
+ *
+ * A registry built with {@code unconfiguredRolesGrantAll} treats a role that
+ * has never had a grant or revoke as granting every permission. Once a role
+ * is configured it grants exactly what was granted to it.
+ */
+public class PermissionRegistry {
+
+    private static final long[] NO_BITS = new long[0];
+
+    private final Map<String, Integer> roleIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> permissionIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextRoleId = new AtomicInteger();
+    private final AtomicInteger nextPermissionId = new AtomicInteger();
+    private final Map<Integer, long[]> rolePermissions = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final boolean unconfiguredRolesGrantAll;
+
+    public PermissionRegistry() {
+        this(false);
+    }
+
+    /**
+     * @param unconfiguredRolesGrantAll whether a role without any grant or revoke grants every permission
+     */
+    public PermissionRegistry(boolean unconfiguredRolesGrantAll) {
+        this.unconfiguredRolesGrantAll = unconfiguredRolesGrantAll;
+    }
+
+    public void grant(String role, String permission) {
+        int permissionId = internPermission(permission);
+        rolePermissions.compute(internRole(role), (id, bits) -> withBit(bits, permissionId, true));
+        version.incrementAndGet();
+    }
+
+    public void revoke(String role, String permission) {
+        int permissionId = permissionIdIfPresent(permission);
+        // Revoking configures the role, so it stops granting everything even if nothing was granted yet
+        rolePermissions.compute(internRole(role), (id, bits) ->
+            permissionId < 0 ? (bits != null ? bits : NO_BITS) : withBit(bits, permissionId, false));
+        version.incrementAndGet();
+    }
+
+    public int internRole(String role) {
+        return roleIds.computeIfAbsent(role, name -> nextRoleId.getAndIncrement());
+    }
+
+    /**
+     * Returns the role id, or -1 if the role has never been seen. Lookups do not
+     * intern, so checks with arbitrary names cannot grow the registry.
+     */
+    public int roleIdIfPresent(String role) {
+        Integer id = roleIds.get(role);
+        return id != null ? id : -1;
+    }
+
+    public int permissionIdIfPresent(String permission) {
+        Integer id = permissionIds.get(permission);
+        return id != null ? id : -1;
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Builds the effective role and permission bitsets for a set of role names.
+     */
+    public CompiledPermissions compile(Collection<String> roles) {
+        long compiledVersion = version.get();
+        long[] roleBits = NO_BITS;
+        long[] permissionBits = NO_BITS;
+        boolean grantsAll = false;
+        for (String role : roles) {
+            int roleId = internRole(role);
+            roleBits = withBit(roleBits, roleId, true);
+            long[] granted = rolePermissions.get(roleId);
+            if (granted == null) {
+                grantsAll |= unconfiguredRolesGrantAll;
+                continue;
+            }
+            if (granted.length > permissionBits.length) {
+                permissionBits = Arrays.copyOf(permissionBits, granted.length);
+            }
+            for (int i = 0; i < granted.length; i++) {
+                permissionBits[i] |= granted[i];
+            }
+        }
+        return new CompiledPermissions(roleBits, permissionBits, grantsAll, compiledVersion);
+    }
+
+    private int internPermission(String permission) {
+        return permissionIds.computeIfAbsent(permission, name -> nextPermissionId.getAndIncrement());
+    }
+
+    private static long[] withBit(long[] bits, int id, boolean set) {
+        int word = id >>> 6;
+        long[] copy = Arrays.copyOf(bits != null ? bits : NO_BITS,
+            Math.max(word + 1, bits != null ? bits.length : 0));
+        if (set) {
+            copy[word] |= 1L << id;
+        } else {
+            copy[word] &= ~(1L << id);
+        }
+        return copy;
+    }
+
+    static boolean isSet(long[] bits, int id) {
+        if (id < 0) {
+            return false;
+        }
+        int word = id >>> 6;
+        return word < bits.length && (bits[word] & (1L << id)) != 0;
+    }
+
+    /**
+     * Immutable role and permission bitsets for one user.
+     */
+    public static final class CompiledPermissions {
+        private final long[] roleBits;
+        private final long[] permissionBits;
+        private final boolean grantsAll;
+        private final long version;
+
+        CompiledPermissions(long[] roleBits, long[] permissionBits, boolean grantsAll, long version) {
+            this.roleBits = roleBits;
+            this.permissionBits = permissionBits;
+            this.grantsAll = grantsAll;
+            this.version = version;
+        }
+
+        public boolean hasRole(int roleId) {
+            return isSet(roleBits, roleId);
+        }
+
+        /**
+         * Unknown permissions (id -1) are granted only when some role grants everything.
+         */
+        public boolean hasPermission(int permissionId) {
+            return grantsAll || isSet(permissionBits, permissionId);
+        }
+
+        public long getVersion() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-safe store for active login sessions.
+ *
+ * Each session is a single immutable {@link Session} entry in a
+ * {@link ConcurrentHashMap}, so lookups never block and writers only contend
+ * on the hash bin they touch. An expiry index ordered by expiration time lets
+ * a background sweeper reclaim every expired session in one pass instead of
+ * waiting for someone to look the session up again. A reverse index from user
+ * id to that user's sessions keeps "log out everywhere" proportional to the
+ * number of sessions the user holds rather than to every session in the system.
+ * Sessions are created and removed per user inside that index's entry, so a
+ * session created while the user is being logged out everywhere is either
+ * removed too or created strictly afterwards.
+ */
+public class SessionStore implements AutoCloseable {
+
+    private static final Comparator<Session> BY_EXPIRY =
+        Comparator.comparingLong(Session::getExpiresAtMillis).thenComparing(Session::getSessionId);
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Set<Session>> sessionsByUser = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Session> expiryIndex = new ConcurrentSkipListSet<>(BY_EXPIRY);
+    private final Duration timeToLive;
+    private final Clock clock;
+    private final ScheduledExecutorService sweeper;
+
+    public SessionStore(Duration timeToLive, Duration sweepInterval) {
+        this(timeToLive, sweepInterval, Clock.systemUTC());
+    }
+
+    public SessionStore(Duration timeToLive, Duration sweepInterval, Clock clock) {
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = sweepInterval.toMillis();
+        sweeper.scheduleWithFixedDelay(this::sweepExpired, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public Session create(String sessionId, String userId) {
+        Session session = new Session(sessionId, userId, clock.millis() + timeToLive.toMillis());
+        Session[] previous = new Session[1];
+        // Published under the user's index entry, so removeAllForUser either sees it or runs before it exists
+        sessionsByUser.compute(userId, (user, userSessions) -> {
+            Set<Session> updated = userSessions != null ? userSessions : ConcurrentHashMap.newKeySet();
+            previous[0] = sessions.put(sessionId, session);
+            if (previous[0] != null) {
+                updated.remove(previous[0]);
+            }
+            updated.add(session);
+            expiryIndex.add(session);
+            return updated;
+        });
+        if (previous[0] != null) {
+            expiryIndex.remove(previous[0]);
+            if (!previous[0].getUserId().equals(userId)) {
+                unindexUser(previous[0]);
+            }
+        }
+        return session;
+    }
+
+    /**
+     * Returns the session, including one that has expired but not been swept yet.
+     */
+    public Session get(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    public boolean isExpired(Session session) {
+        return session.isExpired(clock.millis());
+    }
+
+    /**
+     * Removes the session and returns it, or null if it was already gone.
+     */
+    public Session remove(String sessionId) {
+        Session session = sessions.remove(sessionId);
+        if (session != null) {
+            unindex(session);
+        }
+        return session;
+    }
+
+    /**
+     * Removes every session held by the given user.
+     *
+     * @return number of sessions removed
+     */
+    public int removeAllForUser(String userId) {
+        int[] removed = new int[1];
+        sessionsByUser.compute(userId, (user, userSessions) -> {
+            if (userSessions != null) {
+                for (Session session : userSessions) {
+                    if (sessions.remove(session.getSessionId(), session)) {
+                        expiryIndex.remove(session);
+                        removed[0]++;
+                    }
+                }
+            }
+            return null;
+        });
+        return removed[0];
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Removes every session whose expiration time has passed.
+     *
+     * @return number of sessions reclaimed
+     */
+    public int sweepExpired() {
+        long now = clock.millis();
+        int reclaimed = 0;
+        for (Session session : expiryIndex) {
+            if (!session.isExpired(now)) {
+                break; // the index is ordered, so nothing after this one is expired either
+            }
+            if (expiryIndex.remove(session) && sessions.remove(session.getSessionId(), session)) {
+                unindexUser(session);
+                reclaimed++;
+            }
+        }
+        return reclaimed;
+    }
+
+    private void unindex(Session session) {
+        expiryIndex.remove(session);
+        unindexUser(session);
+    }
+
+    private void unindexUser(Session session) {
+        // Drop the user's set once empty so the index does not retain users who logged out
+        sessionsByUser.computeIfPresent(session.getUserId(), (user, userSessions) -> {
+            userSessions.remove(session);
+            return userSessions.isEmpty() ? null : userSessions;
+        });
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+
+    public static final class Session {
+        private final String sessionId;
+        private final String userId;
+        private final long expiresAtMillis;
+
+        Session(String sessionId, String userId, long expiresAtMillis) {
+            this.sessionId = sessionId;
+            this.userId = userId;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        public String getSessionId() { return sessionId; }
+        public String getUserId() { return userId; }
+        public long getExpiresAtMillis() { return expiresAtMillis; }
+
+        public boolean isExpired(long nowMillis) {
+            return nowMillis > expiresAtMillis;
+        }
+    }
+}
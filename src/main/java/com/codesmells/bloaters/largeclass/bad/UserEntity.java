@@ -0,0 +1,90 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import org.springframework.data.domain.Persistable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persistent form of a user together with their credentials and roles.
+ *
+ * The id is assigned by the application, so the entity reports whether it is
+ * new itself; otherwise Spring Data would issue a SELECT before every insert
+ * to find out, which also defeats JDBC insert batching.
+ */
+@Entity
+@Table(name = "app_user")
+public class UserEntity implements Persistable<String> {
+
+    @Id
+    @Column(name = "user_id", length = 128)
+    private String userId;
+
+    private String name;
+
+    private String email;
+
+    @Column(name = "password_hash", nullable = false)
+    private String passwordHash;
+
+    // Loaded only when asked for; UserEntityRepository.findWithRolesByUserId fetches them in the same query
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "app_user_role", joinColumns = @JoinColumn(name = "user_id"))
+    @Column(name = "role", length = 128)
+    private List<String> roles = new ArrayList<>();
+
+    @Transient
+    private boolean isNew = true;
+
+    protected UserEntity() {
+        // For JPA
+    }
+
+    public UserEntity(String userId, String name, String email, String passwordHash) {
+        this.userId = userId;
+        this.name = name;
+        this.email = email;
+        this.passwordHash = passwordHash;
+    }
+
+    @Override
+    public String getId() { return userId; }
+
+    @Override
+    public boolean isNew() { return isNew; }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    public String getUserId() { return userId; }
+    public String getName() { return name; }
+    public String getEmail() { return email; }
+    public String getPasswordHash() { return passwordHash; }
+    public List<String> getRoles() { return roles; }
+    public void setName(String name) { this.name = name; }
+    public void setEmail(String email) { this.email = email; }
+    public void setPasswordHash(String passwordHash) { this.passwordHash = passwordHash; }
+
+    public void setRoles(List<String> roles) {
+        this.roles.clear();
+        this.roles.addAll(roles);
+    }
+
+    public UserManager.User toUser() {
+        return new UserManager.User(userId, name, email);
+    }
+}
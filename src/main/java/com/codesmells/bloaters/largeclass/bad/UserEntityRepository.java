@@ -0,0 +1,22 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface UserEntityRepository extends JpaRepository<UserEntity, String> {
+
+    List<UserEntity> findAllByOrderByUserIdAsc(Pageable pageable);
+
+    List<UserEntity> findByUserIdGreaterThanOrderByUserIdAsc(String afterUserId, Pageable pageable);
+
+    /**
+     * Loads a user together with their roles in one query.
+     */
+    @Query("select u from UserEntity u left join fetch u.roles where u.userId = :userId")
+    Optional<UserEntity> findWithRolesByUserId(@Param("userId") String userId);
+}
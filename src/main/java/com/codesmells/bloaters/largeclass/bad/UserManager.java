@@ -1,8 +1,13 @@
 package com.codesmells.bloaters.largeclass.bad;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import java.time.LocalDateTime;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * BAD EXAMPLE: Large Class Code Smell
@@ -41,101 +46,206 @@ import java.util.*;
  * @see com.codesmells.bloaters.largeclass.good package for refactored version
  */
 @Service
-public class UserManager {
+public class UserManager implements AutoCloseable {
     
     // Fields for user data management
-    private Map<String, User> users = new HashMap<>();
-    private Map<String, List<String>> userRoles = new HashMap<>();
-    private Map<String, String> userPasswords = new HashMap<>();
+    private final UserStore userStore;
+    
+    // Fields for authorization
+    // Roles nobody has configured grant everything, as roleHasPermission always did
+    private final PermissionRegistry permissionRegistry = new PermissionRegistry(true);
+    private final Map<String, PermissionRegistry.CompiledPermissions> compiledPermissions = new ConcurrentHashMap<>();
+    // Striped per-user locks; store reads and writes for roles happen under these, never inside a map bin lock
+    private final Object[] roleLocks = newLocks(64);
     
     // Fields for authentication
-    private Map<String, String> activeSessions = new HashMap<>();
-    private Map<String, LocalDateTime> sessionExpirations = new HashMap<>();
+    private final SessionStore sessionStore = new SessionStore(Duration.ofHours(2), Duration.ofMinutes(1));
     private int maxLoginAttempts = 3;
-    private Map<String, Integer> loginAttempts = new HashMap<>();
+    private final LoginRateLimiter userLoginFailures =
+        new LoginRateLimiter(maxLoginAttempts, Duration.ofMinutes(15), 1 << 18);
+    private final LoginRateLimiter sourceLoginFailures =
+        new LoginRateLimiter(20, Duration.ofMinutes(1), 1 << 16);
+    private final PasswordHashingExecutor passwordHashing = new PasswordHashingExecutor(
+        Pbkdf2PasswordHasher.calibrated(Duration.ofMillis(50)),
+        Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 1024, 5_000);
     
     // Fields for notifications
     private String emailServer = "smtp.example.com";
     private String smsGateway = "sms.example.com";
     private List<String> adminEmails = new ArrayList<>();
+    private final NotificationDispatcher notifications;
+    
+    /**
+     * Keeps users in memory only; state is lost on restart.
+     */
+    public UserManager() {
+        this(new InMemoryUserStore());
+    }
+    
+    /**
+     * Prints notifications to the console.
+     */
+    @Autowired
+    public UserManager(UserStore userStore) {
+        this(userStore, null);
+    }
+    
+    /**
+     * @param notificationSink where notifications are delivered, or null to print them to the console
+     */
+    public UserManager(UserStore userStore, NotificationSink notificationSink) {
+        this.userStore = userStore;
+        this.notifications = new NotificationDispatcher(
+            notificationSink != null ? notificationSink : new ConsoleNotificationSink(emailServer, smsGateway),
+            10_000, NotificationDispatcher.OverflowPolicy.DROP_NEWEST);
+    }
     
     // User Management Methods
     public void createUser(String userId, String name, String email, String password) {
         User user = new User(userId, name, email);
-        users.put(userId, user);
-        userPasswords.put(userId, hashPassword(password));
-        userRoles.put(userId, new ArrayList<>());
+        userStore.create(user, hashPassword(password));
         sendWelcomeEmail(email);
     }
     
+    /**
+     * Creates many users in one store operation, hashing their passwords in
+     * parallel on the hashing pool. Either every user is created or none is.
+     *
+     * @throws IllegalArgumentException if any id already exists or is given twice
+     */
+    public void createUsers(List<NewUser> newUsers) {
+        List<User> users = new ArrayList<>(newUsers.size());
+        List<String> passwords = new ArrayList<>(newUsers.size());
+        for (NewUser newUser : newUsers) {
+            users.add(new User(newUser.getUserId(), newUser.getName(), newUser.getEmail()));
+            passwords.add(newUser.getPassword());
+        }
+        userStore.createAll(users, passwordHashing.hashAll(passwords));
+        users.forEach(user -> sendWelcomeEmail(user.getEmail()));
+    }
+    
     public User getUser(String userId) {
-        return users.get(userId);
+        return userStore.find(userId);
     }
     
     public void updateUser(String userId, String name, String email) {
-        User user = users.get(userId);
+        User user = userStore.find(userId);
         if (user != null) {
             user.setName(name);
             user.setEmail(email);
+            userStore.updateProfile(user);
             sendProfileUpdateNotification(email);
         }
     }
     
     public void deleteUser(String userId) {
-        users.remove(userId);
-        userPasswords.remove(userId);
-        userRoles.remove(userId);
+        synchronized (roleLockFor(userId)) {
+            userStore.delete(userId);
+            compiledPermissions.remove(userId);
+        }
         logoutUser(userId);
         notifyAdminsOfDeletion(userId);
     }
     
+    /**
+     * Copies every user into a new list. Prefer {@link #getUsers} or
+     * {@link #streamUsers} for large exports.
+     */
     public List<User> getAllUsers() {
-        return new ArrayList<>(users.values());
+        return userStore.stream().collect(Collectors.toList());
+    }
+    
+    /**
+     * Returns up to {@code limit} users ordered by user id, starting after the
+     * given cursor. Pass null for the first page and the returned
+     * {@link UserPage#getNextCursor()} for the following ones. Because the
+     * cursor is a user id rather than an offset, users created or deleted
+     * between calls never shift or repeat entries on later pages.
+     */
+    public UserPage getUsers(String afterUserId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        // Fetch one extra user to learn whether another page follows
+        List<User> page = userStore.findPage(afterUserId, limit + 1);
+        if (page.size() <= limit) {
+            return new UserPage(page, null);
+        }
+        page = page.subList(0, limit);
+        return new UserPage(page, page.get(limit - 1).getUserId());
+    }
+    
+    /**
+     * Streams users in user id order directly from the store, without copying.
+     * The stream is weakly consistent: it never fails because of concurrent
+     * changes and may or may not reflect users created or deleted while it runs.
+     */
+    public Stream<User> streamUsers() {
+        return userStore.stream();
     }
     
     // Authentication Methods
     public String login(String userId, String password) {
-        if (!users.containsKey(userId)) {
+        return login(userId, password, null);
+    }
+    
+    /**
+     * @param sourceAddress client address used for per-source rate limiting, or null if unknown
+     */
+    public String login(String userId, String password, String sourceAddress) {
+        if (sourceAddress != null && sourceLoginFailures.isLimited(sourceAddress)) {
+            return null;
+        }
+        
+        User user = userStore.find(userId);
+        if (user == null) {
+            recordSourceFailure(sourceAddress);
             return null;
         }
         
         if (isAccountLocked(userId)) {
-            sendAccountLockedEmail(users.get(userId).getEmail());
+            sendAccountLockedEmail(user.getEmail());
             return null;
         }
         
         if (!verifyPassword(userId, password)) {
             incrementLoginAttempts(userId);
-            if (loginAttempts.get(userId) >= maxLoginAttempts) {
+            recordSourceFailure(sourceAddress);
+            if (isAccountLocked(userId)) {
                 lockAccount(userId);
-                sendAccountLockedEmail(users.get(userId).getEmail());
+                sendAccountLockedEmail(user.getEmail());
             }
             return null;
         }
         
         resetLoginAttempts(userId);
         String sessionId = generateSessionId();
-        activeSessions.put(sessionId, userId);
-        sessionExpirations.put(sessionId, LocalDateTime.now().plusHours(2));
-        sendLoginNotification(users.get(userId).getEmail());
+        sessionStore.create(sessionId, userId);
+        if (userStore.find(userId) == null) {
+            // Deleted while the password was checked; its sessions may already have been revoked
+            sessionStore.remove(sessionId);
+            return null;
+        }
+        sendLoginNotification(user.getEmail());
         return sessionId;
     }
     
     public void logout(String sessionId) {
-        String userId = activeSessions.get(sessionId);
-        if (userId != null) {
-            activeSessions.remove(sessionId);
-            sessionExpirations.remove(sessionId);
-            sendLogoutNotification(users.get(userId).getEmail());
+        SessionStore.Session session = sessionStore.remove(sessionId);
+        if (session != null) {
+            User user = userStore.find(session.getUserId());
+            if (user != null) {
+                sendLogoutNotification(user.getEmail());
+            }
         }
     }
     
     public boolean isSessionValid(String sessionId) {
-        if (!activeSessions.containsKey(sessionId)) {
+        SessionStore.Session session = sessionStore.get(sessionId);
+        if (session == null) {
             return false;
         }
-        LocalDateTime expiration = sessionExpirations.get(sessionId);
-        if (LocalDateTime.now().isAfter(expiration)) {
+        if (sessionStore.isExpired(session)) {
             logout(sessionId);
             return false;
         }
@@ -143,24 +253,37 @@ public class UserManager {
     }
     
     private boolean verifyPassword(String userId, String password) {
-        String hashedPassword = hashPassword(password);
-        return hashedPassword.equals(userPasswords.get(userId));
+        return passwordHashing.verify(password, userStore.findPasswordHash(userId));
     }
     
     private String hashPassword(String password) {
-        return "hashed_" + password; // Simplified for example
+        return passwordHashing.hash(password);
+    }
+    
+    /**
+     * Exposes hash throughput, queueing delay and rejections for monitoring.
+     */
+    public PasswordHashingExecutor getPasswordHashing() {
+        return passwordHashing;
     }
     
     private void incrementLoginAttempts(String userId) {
-        loginAttempts.put(userId, loginAttempts.getOrDefault(userId, 0) + 1);
+        userLoginFailures.recordFailure(userId);
+    }
+    
+    private void recordSourceFailure(String sourceAddress) {
+        if (sourceAddress != null) {
+            sourceLoginFailures.recordFailure(sourceAddress);
+        }
     }
     
     private void resetLoginAttempts(String userId) {
-        loginAttempts.put(userId, 0);
+        userLoginFailures.reset(userId);
     }
     
     private boolean isAccountLocked(String userId) {
-        return loginAttempts.getOrDefault(userId, 0) >= maxLoginAttempts;
+        // Failures age out of the sliding window, so a lockout expires on its own
+        return userLoginFailures.isLimited(userId);
     }
     
     private void lockAccount(String userId) {
@@ -173,89 +296,183 @@ public class UserManager {
     
     // Authorization Methods
     public void assignRole(String userId, String role) {
-        List<String> roles = userRoles.get(userId);
-        if (roles != null && !roles.contains(role)) {
-            roles.add(role);
-            sendRoleAssignmentNotification(users.get(userId).getEmail(), role);
+        if (updateRoles(userId, roles -> !roles.contains(role) && roles.add(role))) {
+            sendRoleAssignmentNotification(userStore.find(userId).getEmail(), role);
         }
     }
     
     public void removeRole(String userId, String role) {
-        List<String> roles = userRoles.get(userId);
-        if (roles != null) {
-            roles.remove(role);
-            sendRoleRemovalNotification(users.get(userId).getEmail(), role);
+        if (updateRoles(userId, roles -> roles.remove(role))) {
+            sendRoleRemovalNotification(userStore.find(userId).getEmail(), role);
+        }
+    }
+    
+    /**
+     * Applies a change to the user's roles and drops their compiled permissions.
+     * Runs under the user's role lock, which a recompile for the same user also
+     * takes, so no recompile can cache a result built from the old roles.
+     *
+     * @return true if the change modified the roles
+     */
+    private boolean updateRoles(String userId, Predicate<List<String>> change) {
+        synchronized (roleLockFor(userId)) {
+            List<String> roles = userStore.findRoles(userId);
+            if (roles == null || !change.test(roles)) {
+                return false;
+            }
+            userStore.saveRoles(userId, roles);
+            compiledPermissions.remove(userId);
+            return true;
         }
     }
     
     public boolean hasRole(String userId, String role) {
-        List<String> roles = userRoles.get(userId);
-        return roles != null && roles.contains(role);
+        PermissionRegistry.CompiledPermissions compiled = compiledPermissionsFor(userId);
+        return compiled != null && compiled.hasRole(permissionRegistry.roleIdIfPresent(role));
     }
     
     public boolean hasPermission(String userId, String permission) {
-        List<String> roles = userRoles.get(userId);
-        if (roles == null) return false;
-        
-        // Check if any of user's roles grant this permission
-        for (String role : roles) {
-            if (roleHasPermission(role, permission)) {
-                return true;
+        PermissionRegistry.CompiledPermissions compiled = compiledPermissionsFor(userId);
+        return compiled != null && compiled.hasPermission(permissionRegistry.permissionIdIfPresent(permission));
+    }
+    
+    public void grantPermission(String role, String permission) {
+        permissionRegistry.grant(role, permission);
+    }
+    
+    public void revokePermission(String role, String permission) {
+        permissionRegistry.revoke(role, permission);
+    }
+    
+    private PermissionRegistry.CompiledPermissions compiledPermissionsFor(String userId) {
+        PermissionRegistry.CompiledPermissions compiled = compiledPermissions.get(userId);
+        if (compiled != null && compiled.getVersion() == permissionRegistry.getVersion()) {
+            return compiled;
+        }
+        synchronized (roleLockFor(userId)) {
+            compiled = compiledPermissions.get(userId);
+            if (compiled != null && compiled.getVersion() == permissionRegistry.getVersion()) {
+                return compiled;
+            }
+            List<String> roles = userStore.findRoles(userId);
+            if (roles == null) {
+                compiledPermissions.remove(userId);
+                return null;
             }
+            compiled = permissionRegistry.compile(roles);
+            compiledPermissions.put(userId, compiled);
+            return compiled;
         }
-        return false;
     }
     
-    private boolean roleHasPermission(String role, String permission) {
-        // Simplified permission checking
-        return true;
+    private Object roleLockFor(String userId) {
+        int hash = userId.hashCode();
+        return roleLocks[(hash ^ (hash >>> 16)) & (roleLocks.length - 1)];
+    }
+    
+    private static Object[] newLocks(int count) {
+        Object[] locks = new Object[count];
+        for (int i = 0; i < count; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
     }
     
-    // Notification Methods
+    // Notification Methods - delivered asynchronously so they stay off the login path
     public void sendWelcomeEmail(String email) {
-        System.out.println("Sending welcome email to: " + email);
-        // Email sending logic
+        notifications.email(email, "welcome email");
     }
     
     public void sendLoginNotification(String email) {
-        System.out.println("Sending login notification to: " + email);
-        // Email sending logic
+        notifications.email(email, "login notification");
     }
     
     public void sendLogoutNotification(String email) {
-        System.out.println("Sending logout notification to: " + email);
-        // Email sending logic
+        notifications.email(email, "logout notification");
     }
     
     public void sendProfileUpdateNotification(String email) {
-        System.out.println("Sending profile update notification to: " + email);
-        // Email sending logic
+        notifications.email(email, "profile update notification");
     }
     
     public void sendAccountLockedEmail(String email) {
-        System.out.println("Sending account locked email to: " + email);
-        // Email sending logic
+        notifications.email(email, "account locked email");
     }
     
     public void sendRoleAssignmentNotification(String email, String role) {
-        System.out.println("Sending role assignment notification to: " + email);
-        // Email sending logic
+        notifications.email(email, "role assignment notification: " + role);
     }
     
     public void sendRoleRemovalNotification(String email, String role) {
-        System.out.println("Sending role removal notification to: " + email);
-        // Email sending logic
+        notifications.email(email, "role removal notification: " + role);
     }
     
     public void notifyAdminsOfDeletion(String userId) {
         for (String adminEmail : adminEmails) {
-            System.out.println("Notifying admin: " + adminEmail + " about user deletion: " + userId);
+            notifications.email(adminEmail, "user deletion: " + userId);
         }
     }
     
     private void logoutUser(String userId) {
-        // Find and remove all sessions for this user
-        activeSessions.entrySet().removeIf(entry -> entry.getValue().equals(userId));
+        sessionStore.removeAllForUser(userId);
+    }
+    
+    /**
+     * Logs every given user out of all their sessions, e.g. for an admin
+     * mass revocation.
+     *
+     * @return total number of sessions revoked
+     */
+    public int revokeSessions(Collection<String> userIds) {
+        int revoked = 0;
+        for (String userId : userIds) {
+            revoked += sessionStore.removeAllForUser(userId);
+        }
+        return revoked;
+    }
+    
+    @Override
+    public void close() {
+        sessionStore.close();
+        passwordHashing.close();
+        notifications.close();
+    }
+    
+    public static class UserPage {
+        private final List<User> users;
+        private final String nextCursor;
+        
+        public UserPage(List<User> users, String nextCursor) {
+            this.users = users;
+            this.nextCursor = nextCursor;
+        }
+        
+        public List<User> getUsers() { return users; }
+        /** User id to pass as the next cursor, or null if this is the last page. */
+        public String getNextCursor() { return nextCursor; }
+        public boolean hasNext() { return nextCursor != null; }
+    }
+
+    /**
+     * A user to create through {@link #createUsers}, with the plain-text password.
+     */
+    public static class NewUser {
+        private final String userId;
+        private final String name;
+        private final String email;
+        private final String password;
+
+        public NewUser(String userId, String name, String email, String password) {
+            this.userId = userId;
+            this.name = name;
+            this.email = email;
+            this.password = password;
+        }
+
+        public String getUserId() { return userId; }
+        public String getName() { return name; }
+        public String getEmail() { return email; }
+        public String getPassword() { return password; }
     }
     
     // Inner class
@@ -0,0 +1,57 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Storage for users, their password hashes and their roles.
+ */
+public interface UserStore {
+
+    /**
+     * Stores a new user with no roles.
+     *
+     * @throws IllegalArgumentException if a user with this id already exists
+     */
+    void create(UserManager.User user, String passwordHash);
+
+    /**
+     * Stores several new users with no roles; either all of them or none.
+     *
+     * @param passwordHashes hash for each user, in the same order as {@code users}
+     * @throws IllegalArgumentException if any id already exists or is given twice
+     */
+    void createAll(List<UserManager.User> users, List<String> passwordHashes);
+
+    /**
+     * Returns the user, or null if no user has this id.
+     */
+    UserManager.User find(String userId);
+
+    /**
+     * Persists a changed name or email. Implementations may defer the write.
+     */
+    void updateProfile(UserManager.User user);
+
+    void delete(String userId);
+
+    String findPasswordHash(String userId);
+
+    /**
+     * Returns a copy of the user's roles, or null if no user has this id.
+     */
+    List<String> findRoles(String userId);
+
+    void saveRoles(String userId, List<String> roles);
+
+    /**
+     * Returns up to {@code limit} users ordered by user id, strictly after the
+     * given id, or from the start when it is null.
+     */
+    List<UserManager.User> findPage(String afterUserId, int limit);
+
+    /**
+     * Streams all users in user id order without loading them all at once.
+     */
+    Stream<UserManager.User> stream();
+}
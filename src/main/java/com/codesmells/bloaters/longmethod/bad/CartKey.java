@@ -0,0 +1,55 @@
+package com.codesmells.bloaters.longmethod.bad;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Normalized cart used as a pricing cache key: loyalty level, tax region and
+ * the items as a sorted multiset. Carts that differ only in item order or in
+ * address details outside the tax region map to the same key and, for a
+ * given {@link PricingTables} snapshot, have the same price.
+ */
+public final class CartKey {
+
+    private final String loyaltyLevel;
+    private final int taxRegion;
+    private final String[] items;
+    private final int hash;
+
+    private CartKey(String loyaltyLevel, int taxRegion, String[] items) {
+        this.loyaltyLevel = loyaltyLevel;
+        this.taxRegion = taxRegion;
+        this.items = items;
+        this.hash = 31 * (31 * loyaltyLevel.hashCode() + taxRegion) + Arrays.hashCode(items);
+    }
+
+    public static CartKey of(PricingTables tables, String loyaltyLevel, List<String> items, String shippingAddress) {
+        String[] sorted = items.toArray(new String[0]);
+        Arrays.sort(sorted);
+        return new CartKey(loyaltyLevel, tables.taxRegion(shippingAddress), sorted);
+    }
+
+    public String getLoyaltyLevel() { return loyaltyLevel; }
+    public int getTaxRegion() { return taxRegion; }
+    public int getItemCount() { return items.length; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CartKey)) {
+            return false;
+        }
+        CartKey other = (CartKey) o;
+        return hash == other.hash
+            && taxRegion == other.taxRegion
+            && loyaltyLevel.equals(other.loyaltyLevel)
+            && Arrays.equals(items, other.items);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
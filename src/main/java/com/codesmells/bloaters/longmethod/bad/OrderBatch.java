@@ -0,0 +1,72 @@
+package com.codesmells.bloaters.longmethod.bad;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Column-oriented batch of orders for bulk pricing.
+ *
+ * Items of all orders are stored in one flat array; order {@code i} owns
+ * {@code itemIds[itemOffsets[i]]} up to but excluding
+ * {@code itemIds[itemOffsets[i + 1]]}.
+ */
+public final class OrderBatch {
+
+    private final String[] loyaltyLevels;
+    private final String[] shippingAddresses;
+    private final int[] itemOffsets;
+    private final String[] itemIds;
+
+    public OrderBatch(String[] loyaltyLevels, String[] shippingAddresses, int[] itemOffsets, String[] itemIds) {
+        if (loyaltyLevels.length != shippingAddresses.length || itemOffsets.length != loyaltyLevels.length + 1) {
+            throw new IllegalArgumentException("Batch columns have inconsistent lengths");
+        }
+        if (itemOffsets[0] != 0 || itemOffsets[itemOffsets.length - 1] != itemIds.length) {
+            throw new IllegalArgumentException("Item offsets must span the item column");
+        }
+        this.loyaltyLevels = loyaltyLevels;
+        this.shippingAddresses = shippingAddresses;
+        this.itemOffsets = itemOffsets;
+        this.itemIds = itemIds;
+    }
+
+    public int size() { return loyaltyLevels.length; }
+    public String getLoyaltyLevel(int order) { return loyaltyLevels[order]; }
+    public String getShippingAddress(int order) { return shippingAddresses[order]; }
+    public int getItemStart(int order) { return itemOffsets[order]; }
+    public int getItemEnd(int order) { return itemOffsets[order + 1]; }
+    public String getItemId(int index) { return itemIds[index]; }
+
+    public static final class Builder {
+        private String[] loyaltyLevels = new String[16];
+        private String[] shippingAddresses = new String[16];
+        private int[] itemOffsets = new int[17];
+        private String[] itemIds = new String[64];
+        private int orders;
+        private int items;
+
+        public Builder addOrder(String loyaltyLevel, List<String> orderItems, String shippingAddress) {
+            if (orders == loyaltyLevels.length) {
+                loyaltyLevels = Arrays.copyOf(loyaltyLevels, orders * 2);
+                shippingAddresses = Arrays.copyOf(shippingAddresses, orders * 2);
+                itemOffsets = Arrays.copyOf(itemOffsets, orders * 2 + 1);
+            }
+            if (items + orderItems.size() > itemIds.length) {
+                itemIds = Arrays.copyOf(itemIds, Math.max(itemIds.length * 2, items + orderItems.size()));
+            }
+            loyaltyLevels[orders] = loyaltyLevel;
+            shippingAddresses[orders] = shippingAddress;
+            for (String item : orderItems) {
+                itemIds[items++] = item;
+            }
+            orders++;
+            itemOffsets[orders] = items;
+            return this;
+        }
+
+        public OrderBatch build() {
+            return new OrderBatch(Arrays.copyOf(loyaltyLevels, orders), Arrays.copyOf(shippingAddresses, orders),
+                Arrays.copyOf(itemOffsets, orders + 1), Arrays.copyOf(itemIds, items));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.codesmells.bloaters.longmethod.bad;
+
+import com.codesmells.common.Money;
+
+import java.util.Currency;
+
+/**
+ * One order as recorded by {@link OrderEventLog}, read back for replay.
+ */
+public final class OrderEvent {
+
+    private final long timestampMillis;
+    private final String customerId;
+    private final int itemCount;
+    private final OrderPrice price;
+
+    public OrderEvent(long timestampMillis, String customerId, int itemCount, OrderPrice price) {
+        this.timestampMillis = timestampMillis;
+        this.customerId = customerId;
+        this.itemCount = itemCount;
+        this.price = price;
+    }
+
+    public long getTimestampMillis() { return timestampMillis; }
+    public String getCustomerId() { return customerId; }
+    public int getItemCount() { return itemCount; }
+    public OrderPrice getPrice() { return price; }
+    public Money getTotal() { return price.getTotal(); }
+
+    /**
+     * Parses one line in the flat format written by {@link OrderEventLog}.
+     *
+     * @throws IllegalArgumentException if the line is not a valid event
+     */
+    public static OrderEvent parse(String line) {
+        try {
+            Currency currency = Currency.getInstance(stringField(line, "currency"));
+            OrderPrice price = new OrderPrice(currency,
+                longField(line, "subtotal"), longField(line, "discount"), longField(line, "tax"),
+                longField(line, "shipping"), longField(line, "total"));
+            return new OrderEvent(longField(line, "ts"), stringField(line, "customer"),
+                (int) longField(line, "items"), price);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed order event: " + line, e);
+        }
+    }
+
+    private static int valueStart(String line, String name) {
+        String key = "\"" + name + "\":";
+        int index = line.indexOf(key);
+        if (index < 0) {
+            throw new IllegalArgumentException("Missing field " + name);
+        }
+        return index + key.length();
+    }
+
+    private static long longField(String line, String name) {
+        int start = valueStart(line, name);
+        int end = start;
+        while (end < line.length() && (line.charAt(end) == '-' || Character.isDigit(line.charAt(end)))) {
+            end++;
+        }
+        return Long.parseLong(line.substring(start, end));
+    }
+
+    private static String stringField(String line, String name) {
+        int i = valueStart(line, name) + 1; // skip opening quote
+        StringBuilder value = new StringBuilder();
+        while (line.charAt(i) != '"') {
+            char c = line.charAt(i++);
+            if (c == '\\') {
+                char escaped = line.charAt(i++);
+                if (escaped == 'u') {
+                    value.append((char) Integer.parseInt(line.substring(i, i + 4), 16));
+                    i += 4;
+                } else {
+                    value.append(escaped);
+                }
+            } else {
+                value.append(c);
+            }
+        }
+        return value.toString();
+    }
+}
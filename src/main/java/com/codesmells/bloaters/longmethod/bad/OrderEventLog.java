@@ -0,0 +1,386 @@
+package com.codesmells.bloaters.longmethod.bad;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Append-only audit log with one JSON line per processed order.
+ *
+ * Order threads only copy a few fields into a preallocated slot of a
+ * lock-free ring buffer; they never format text or touch the disk. If the
+ * buffer is full the event is dropped and counted, so order latency never
+ * depends on disk speed. A single writer thread encodes everything published
+ * so far into one buffer, appends it to the current segment file with a single
+ * write and optionally fsyncs once per batch (group commit). Segments are
+ * rotated when they reach a configured size; {@link OrderEventLogReader}
+ * replays them in order.
+ *
+ * On open, a partial line left at the end of the last segment by a crash
+ * is cut off so new events start on a line of their own. Events whose
+ * write fails are counted as failed, and writing continues in a new
+ * segment so the next batch never lands on a partially written line.
+ */
+public class OrderEventLog implements AutoCloseable {
+
+    static final String SEGMENT_PREFIX = "order-events-";
+    static final String SEGMENT_SUFFIX = ".jsonl";
+
+    private static final int MAX_BATCH = 1_024;
+    private static final int MAX_LINE_BYTES = 1_024;
+    private static final long IDLE_PARK_NANOS = 200_000;
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final boolean syncOnCommit;
+
+    private final Slot[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_BATCH * MAX_LINE_BYTES / 4);
+    private FileChannel segment;
+    private int segmentIndex;
+    // Events encoded into the buffer but not written yet; owned by the writer thread
+    private int bufferedEvents;
+
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private volatile IOException lastError;
+
+    /**
+     * @param capacity ring buffer slots; rounded up to a power of two
+     * @param syncOnCommit whether to fsync after each group commit
+     */
+    public OrderEventLog(Path directory, int capacity, long maxSegmentBytes, boolean syncOnCommit) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.syncOnCommit = syncOnCommit;
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.mask = size - 1;
+        this.segmentIndex = lastSegmentIndex(this.directory);
+        truncateTornTail(segmentPath(this.directory, segmentIndex));
+        this.segment = openSegment(segmentIndex);
+        this.writer = new Thread(this::writeLoop, "order-event-log");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Log with a 64k-slot buffer, 64 MB segments and fsync on every commit.
+     */
+    public static OrderEventLog open(Path directory) {
+        try {
+            return new OrderEventLog(directory, 1 << 16, 64L << 20, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open order event log in " + directory, e);
+        }
+    }
+
+    /**
+     * Queues an order event without blocking.
+     *
+     * @return false if the buffer was full and the event was dropped
+     */
+    public boolean append(String customerId, int itemCount, OrderPrice price) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= slots.length) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = slots[(int) sequence & mask];
+        slot.timestampMillis = System.currentTimeMillis();
+        slot.customerId = customerId;
+        slot.itemCount = itemCount;
+        slot.price = price;
+        published.set((int) sequence & mask, sequence);
+        return true;
+    }
+
+    public long getDroppedCount() { return dropped.get(); }
+    public long getWrittenCount() { return written.get(); }
+
+    /**
+     * Events taken from the buffer whose write failed; see {@link #getLastError}.
+     */
+    public long getFailedCount() { return failed.get(); }
+    public long getCommitCount() { return commits.get(); }
+
+    /**
+     * Most recent I/O failure of the writer thread, or null.
+     */
+    public IOException getLastError() { return lastError; }
+
+    private void writeLoop() {
+        while (running || consumed < claimed.get()) {
+            int batch;
+            try {
+                batch = drainBatch();
+                if (batch > 0) {
+                    commit();
+                }
+            } catch (IOException e) {
+                lastError = e;
+                failed.addAndGet(bufferedEvents);
+                bufferedEvents = 0;
+                buffer.clear();
+                startNewSegment();
+                batch = 0;
+                LockSupport.parkNanos(IDLE_PARK_NANOS * 50);
+            }
+            if (batch == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Encodes every published event, up to one batch, into the buffer.
+     */
+    private int drainBatch() throws IOException {
+        long next = consumed;
+        int count = 0;
+        while (count < MAX_BATCH && published.get((int) next & mask) == next) {
+            Slot slot = slots[(int) next & mask];
+            if (buffer.remaining() < MAX_LINE_BYTES) {
+                writeBuffer();
+            }
+            encode(slot, buffer);
+            bufferedEvents++;
+            slot.customerId = null;
+            slot.price = null;
+            next++;
+            count++;
+            // Hand the slot back to producers only after it has been read
+            consumed = next;
+        }
+        return count;
+    }
+
+    private void commit() throws IOException {
+        writeBuffer();
+        if (syncOnCommit) {
+            segment.force(false);
+        }
+        commits.incrementAndGet();
+        if (segment.size() >= maxSegmentBytes) {
+            segment.close();
+            segment = openSegment(++segmentIndex);
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+        buffer.clear();
+        written.addAndGet(bufferedEvents);
+        bufferedEvents = 0;
+    }
+
+    /**
+     * Continues in the next segment after a failed write, leaving whatever
+     * part of the batch reached the old one behind. If the new segment
+     * cannot be opened either, the next commit fails and tries again.
+     */
+    private void startNewSegment() {
+        try {
+            segment.close();
+        } catch (IOException e) {
+            // Already failing; the error that got us here is kept
+        }
+        try {
+            segment = openSegment(++segmentIndex);
+        } catch (IOException e) {
+            lastError = e;
+            segmentIndex--;
+        }
+    }
+
+    private static void encode(Slot slot, ByteBuffer out) {
+        OrderPrice price = slot.price;
+        putAscii(out, "{\"ts\":");
+        putLong(out, slot.timestampMillis);
+        putAscii(out, ",\"customer\":");
+        putJsonString(out, slot.customerId, MAX_LINE_BYTES / 2);
+        putAscii(out, ",\"items\":");
+        putLong(out, slot.itemCount);
+        putAscii(out, ",\"currency\":\"");
+        putAscii(out, price.getCurrency().getCurrencyCode());
+        putAscii(out, "\",\"subtotal\":");
+        putLong(out, price.getSubtotalMinorUnits());
+        putAscii(out, ",\"discount\":");
+        putLong(out, price.getDiscountMinorUnits());
+        putAscii(out, ",\"tax\":");
+        putLong(out, price.getTaxMinorUnits());
+        putAscii(out, ",\"shipping\":");
+        putLong(out, price.getShippingCostMinorUnits());
+        putAscii(out, ",\"total\":");
+        putLong(out, price.getTotalMinorUnits());
+        putAscii(out, "}\n");
+    }
+
+    private static void putAscii(ByteBuffer out, String ascii) {
+        for (int i = 0; i < ascii.length(); i++) {
+            out.put((byte) ascii.charAt(i));
+        }
+    }
+
+    private static void putLong(ByteBuffer out, long value) {
+        if (value == Long.MIN_VALUE) {
+            putAscii(out, Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            out.put((byte) '-');
+            value = -value;
+        }
+        int start = out.position();
+        do {
+            out.put((byte) ('0' + value % 10));
+            value /= 10;
+        } while (value != 0);
+        // Digits were written least significant first
+        for (int i = start, j = out.position() - 1; i < j; i++, j--) {
+            byte tmp = out.get(i);
+            out.put(i, out.get(j));
+            out.put(j, tmp);
+        }
+    }
+
+    /**
+     * Writes a quoted JSON string using only ASCII, escaping everything else
+     * as {@code \\uXXXX}. Truncates to keep a line within its byte budget.
+     */
+    private static void putJsonString(ByteBuffer out, String value, int maxBytes) {
+        out.put((byte) '"');
+        int limit = out.position() + maxBytes;
+        for (int i = 0; i < value.length() && out.position() < limit; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.put((byte) '\\').put((byte) c);
+            } else if (c >= 0x20 && c < 0x7f) {
+                out.put((byte) c);
+            } else {
+                putAscii(out, "\\u");
+                for (int shift = 12; shift >= 0; shift -= 4) {
+                    out.put((byte) Character.forDigit((c >> shift) & 0xf, 16));
+                }
+            }
+        }
+        out.put((byte) '"');
+    }
+
+    private FileChannel openSegment(int index) throws IOException {
+        return FileChannel.open(segmentPath(directory, index),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    static Path segmentPath(Path directory, int index) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    static int segmentIndex(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Cuts a segment back to its last complete line.
+     */
+    static void truncateTornTail(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer chunk = ByteBuffer.allocate(MAX_LINE_BYTES);
+            long end = channel.size();
+            while (end > 0) {
+                int length = (int) Math.min(chunk.capacity(), end);
+                chunk.clear().limit(length);
+                while (chunk.hasRemaining()) {
+                    if (channel.read(chunk, end - length + chunk.position()) < 0) {
+                        throw new EOFException("Segment shrank while opening: " + file);
+                    }
+                }
+                for (int i = length - 1; i >= 0; i--) {
+                    if (chunk.get(i) == '\n') {
+                        if (end - length + i + 1 < channel.size()) {
+                            channel.truncate(end - length + i + 1);
+                        }
+                        return;
+                    }
+                }
+                end -= length;
+            }
+            channel.truncate(0);
+        }
+    }
+
+    private static int lastSegmentIndex(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToInt(OrderEventLog::segmentIndex).filter(index -> index >= 0).max().orElse(0);
+        }
+    }
+
+    /**
+     * Stops the writer after it has flushed every event queued so far.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            segment.close();
+        } catch (IOException e) {
+            lastError = e;
+        }
+    }
+
+    private static final class Slot {
+        long timestampMillis;
+        String customerId;
+        int itemCount;
+        OrderPrice price;
+    }
+}
@@ -0,0 +1,86 @@
+package com.codesmells.bloaters.longmethod.bad;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Replays the segments written by {@link OrderEventLog} in order.
+ *
+ * Run with the log directory as argument to print every event, e.g. to
+ * rebuild reports after an outage.
+ */
+public class OrderEventLogReader {
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "data/order-events");
+        long[] skipped = new long[1];
+        long count = replay(directory, event -> System.out.println(
+            event.getTimestampMillis() + " " + event.getCustomerId()
+                + " items=" + event.getItemCount() + " total=" + event.getTotal()),
+            line -> skipped[0]++);
+        System.out.println(count + " order events replayed, " + skipped[0] + " unreadable lines skipped");
+    }
+
+    /**
+     * Passes every event in the directory to the consumer, oldest segment
+     * first, skipping lines that are not a complete event.
+     *
+     * @return number of events replayed
+     */
+    public static long replay(Path directory, Consumer<OrderEvent> consumer) throws IOException {
+        return replay(directory, consumer, line -> { });
+    }
+
+    /**
+     * Passes every event in the directory to the consumer, oldest segment first.
+     * Lines that are not a complete event, such as a line torn by a crash
+     * mid-write, go to {@code skipped} instead of stopping the replay.
+     *
+     * @return number of events replayed
+     */
+    public static long replay(Path directory, Consumer<OrderEvent> consumer, Consumer<String> skipped) throws IOException {
+        long count = 0;
+        for (Path segment : segments(directory)) {
+            try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.US_ASCII)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    if (!line.startsWith("{") || !line.endsWith("}")) {
+                        skipped.accept(line);
+                        continue;
+                    }
+                    OrderEvent event;
+                    try {
+                        event = OrderEvent.parse(line);
+                    } catch (IllegalArgumentException e) {
+                        skipped.accept(line);
+                        continue;
+                    }
+                    consumer.accept(event);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(file -> OrderEventLog.segmentIndex(file) >= 0)
+                .sorted(Comparator.comparingInt(OrderEventLog::segmentIndex))
+                .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.codesmells.bloaters.longmethod.bad;
+
+import com.codesmells.common.Money;
+
+import java.util.Currency;
+
+/**
+ * Breakdown of a priced order. Amounts are kept in minor units and only
+ * wrapped in {@link Money} when read.
+ */
+public final class OrderPrice {
+
+    private final Currency currency;
+    private final long subtotal;
+    private final long discount;
+    private final long tax;
+    private final long shippingCost;
+    private final long total;
+
+    public OrderPrice(Currency currency, long subtotal, long discount, long tax, long shippingCost, long total) {
+        this.currency = currency;
+        this.subtotal = subtotal;
+        this.discount = discount;
+        this.tax = tax;
+        this.shippingCost = shippingCost;
+        this.total = total;
+    }
+
+    public Currency getCurrency() { return currency; }
+    public long getSubtotalMinorUnits() { return subtotal; }
+    public long getDiscountMinorUnits() { return discount; }
+    public long getTaxMinorUnits() { return tax; }
+    public long getShippingCostMinorUnits() { return shippingCost; }
+    public long getTotalMinorUnits() { return total; }
+
+    public Money getSubtotal() { return Money.ofMinor(subtotal, currency); }
+    public Money getDiscount() { return Money.ofMinor(discount, currency); }
+    public Money getTax() { return Money.ofMinor(tax, currency); }
+    public Money getShippingCost() { return Money.ofMinor(shippingCost, currency); }
+    public Money getTotal() { return Money.ofMinor(total, currency); }
+}
@@ -0,0 +1,245 @@
+package com.codesmells.bloaters.longmethod.bad;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded cache of order prices keyed by {@link CartKey}, so retried
+ * orders and refreshed quotes for the same cart skip re-pricing.
+ *
+ * Every entry remembers the {@link PricingTables} snapshot it was priced
+ * against and is only served while that snapshot is still current, so
+ * {@link PricingEngine#updateTables} invalidates the whole cache without a
+ * sweep. Eviction follows W-TinyLFU: new entries enter a small LRU window,
+ * and an entry leaving the window only displaces the main area's victim if
+ * a frequency sketch says it has been requested more often. The main area
+ * is a segmented LRU (probation and protected). Keys are spread over
+ * independently locked segments; prices are computed outside the locks.
+ */
+public class OrderPriceCache {
+
+    private final PricingEngine pricingEngine;
+    private final Segment[] segments;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong staleEntries = new AtomicLong();
+
+    public OrderPriceCache(PricingEngine pricingEngine, int capacity, int segmentCount) {
+        if (capacity <= 0 || segmentCount <= 0) {
+            throw new IllegalArgumentException("Capacity and segment count must be positive");
+        }
+        this.pricingEngine = pricingEngine;
+        int perSegment = Math.max(1, capacity / segmentCount);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(perSegment, evictions);
+        }
+    }
+
+    /**
+     * Returns the same price as {@link PricingEngine#price}, from the cache if
+     * the cart was priced against the current tables before.
+     */
+    public OrderPrice price(String loyaltyLevel, List<String> items, String shippingAddress) {
+        PricingTables tables = pricingEngine.getTables();
+        CartKey key = CartKey.of(tables, loyaltyLevel, items, shippingAddress);
+        Segment segment = segmentFor(key);
+        Entry cached;
+        synchronized (segment) {
+            cached = segment.get(key);
+        }
+        if (cached != null && cached.tables == tables) {
+            hits.incrementAndGet();
+            return cached.price;
+        }
+        if (cached != null) {
+            staleEntries.incrementAndGet();
+        }
+        misses.incrementAndGet();
+        OrderPrice price = PricingEngine.price(tables, loyaltyLevel, items, shippingAddress);
+        synchronized (segment) {
+            segment.put(key, new Entry(tables, price));
+        }
+        return price;
+    }
+
+    public long getHitCount() { return hits.get(); }
+    public long getMissCount() { return misses.get(); }
+    public long getEvictionCount() { return evictions.get(); }
+
+    /**
+     * Lookups that found an entry priced against replaced tables.
+     */
+    public long getStaleCount() { return staleEntries.get(); }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment segmentFor(CartKey key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return segments[Math.floorMod(hash, segments.length)];
+    }
+
+    private static final class Entry {
+        final PricingTables tables;
+        final OrderPrice price;
+
+        Entry(PricingTables tables, OrderPrice price) {
+            this.tables = tables;
+            this.price = price;
+        }
+    }
+
+    /**
+     * One W-TinyLFU cache; all methods are called under the segment's lock.
+     */
+    private static final class Segment {
+        private static final float WINDOW_SHARE = 0.01f;
+        private static final float PROTECTED_SHARE = 0.8f;
+
+        private final int windowCapacity;
+        private final int mainCapacity;
+        private final int protectedCapacity;
+        private final Map<CartKey, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+        private final Map<CartKey, Entry> probation = new LinkedHashMap<>(16, 0.75f, true);
+        private final Map<CartKey, Entry> protectedArea = new LinkedHashMap<>(16, 0.75f, true);
+        private final FrequencySketch sketch;
+        private final AtomicLong evictions;
+
+        Segment(int capacity, AtomicLong evictions) {
+            this.windowCapacity = Math.max(1, (int) (capacity * WINDOW_SHARE));
+            this.mainCapacity = Math.max(1, capacity - windowCapacity);
+            this.protectedCapacity = Math.max(1, (int) (mainCapacity * PROTECTED_SHARE));
+            this.sketch = new FrequencySketch(capacity);
+            this.evictions = evictions;
+        }
+
+        Entry get(CartKey key) {
+            sketch.increment(key.hashCode());
+            Entry entry = window.get(key);
+            if (entry != null) {
+                return entry;
+            }
+            entry = protectedArea.get(key);
+            if (entry != null) {
+                return entry;
+            }
+            entry = probation.remove(key);
+            if (entry != null) {
+                // A second hit while on probation promotes the entry
+                protectedArea.put(key, entry);
+                if (protectedArea.size() > protectedCapacity) {
+                    Map.Entry<CartKey, Entry> demoted = removeEldest(protectedArea);
+                    probation.put(demoted.getKey(), demoted.getValue());
+                }
+            }
+            return entry;
+        }
+
+        void put(CartKey key, Entry entry) {
+            // Re-pricing after a table change replaces the entry where it is
+            if (window.replace(key, entry) != null
+                || protectedArea.replace(key, entry) != null
+                || probation.replace(key, entry) != null) {
+                return;
+            }
+            window.put(key, entry);
+            if (window.size() <= windowCapacity) {
+                return;
+            }
+            Map.Entry<CartKey, Entry> candidate = removeEldest(window);
+            if (probation.size() + protectedArea.size() < mainCapacity) {
+                probation.put(candidate.getKey(), candidate.getValue());
+                return;
+            }
+            Map<CartKey, Entry> victimArea = probation.isEmpty() ? protectedArea : probation;
+            CartKey victim = victimArea.keySet().iterator().next();
+            if (sketch.frequency(candidate.getKey().hashCode()) > sketch.frequency(victim.hashCode())) {
+                victimArea.remove(victim);
+                probation.put(candidate.getKey(), candidate.getValue());
+            }
+            evictions.incrementAndGet();
+        }
+
+        int size() {
+            return window.size() + probation.size() + protectedArea.size();
+        }
+
+        private static Map.Entry<CartKey, Entry> removeEldest(Map<CartKey, Entry> area) {
+            Iterator<Map.Entry<CartKey, Entry>> iterator = area.entrySet().iterator();
+            Map.Entry<CartKey, Entry> eldest = iterator.next();
+            Map.Entry<CartKey, Entry> copy = Map.entry(eldest.getKey(), eldest.getValue());
+            iterator.remove();
+            return copy;
+        }
+    }
+
+    /**
+     * Count-min sketch of small saturating counters that halves all
+     * counts periodically, so frequencies reflect recent popularity.
+     */
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x9e3779b9, 0x85ebca6b, 0xc2b2ae35, 0x27d4eb2f};
+
+        private final byte[] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int width = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+            this.counters = new byte[DEPTH * width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * width;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = index(row, hash);
+                if (counters[index] < MAX_COUNT) {
+                    counters[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(int hash) {
+            int min = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                min = Math.min(min, counters[index(row, hash)]);
+            }
+            return min;
+        }
+
+        private void reset() {
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] >>= 1;
+            }
+            additions /= 2;
+        }
+
+        private int index(int row, int hash) {
+            int h = hash * SEEDS[row];
+            h ^= h >>> 17;
+            return row * (mask + 1) + (h & mask);
+        }
+    }
+}
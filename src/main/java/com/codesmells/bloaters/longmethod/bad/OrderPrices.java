@@ -0,0 +1,44 @@
+package com.codesmells.bloaters.longmethod.bad;
+
+import java.util.Currency;
+
+/**
+ * Column-oriented pricing results for an {@link OrderBatch}; index {@code i}
+ * holds the breakdown of order {@code i}, in minor units of {@link #getCurrency()}.
+ */
+public final class OrderPrices {
+
+    private final Currency currency;
+    final long[] subtotals;
+    final long[] discounts;
+    final long[] taxes;
+    final long[] shippingCosts;
+    final long[] totals;
+
+    OrderPrices(Currency currency, int size) {
+        this.currency = currency;
+        this.subtotals = new long[size];
+        this.discounts = new long[size];
+        this.taxes = new long[size];
+        this.shippingCosts = new long[size];
+        this.totals = new long[size];
+    }
+
+    public int size() { return totals.length; }
+    public Currency getCurrency() { return currency; }
+
+    /**
+     * The totals column. The array is shared, not copied.
+     */
+    public long[] getTotals() { return totals; }
+
+    public long[] getSubtotals() { return subtotals; }
+    public long[] getDiscounts() { return discounts; }
+    public long[] getTaxes() { return taxes; }
+    public long[] getShippingCosts() { return shippingCosts; }
+
+    public OrderPrice get(int order) {
+        return new OrderPrice(currency, subtotals[order], discounts[order], taxes[order],
+            shippingCosts[order], totals[order]);
+    }
+}
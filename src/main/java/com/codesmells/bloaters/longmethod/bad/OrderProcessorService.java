@@ -1,8 +1,9 @@
 package com.codesmells.bloaters.longmethod.bad;
 
+import com.codesmells.common.Money;
 import org.springframework.stereotype.Service;
+import java.nio.file.Paths;
 import java.util.List;
-import java.util.ArrayList;
 
 /**
  * BAD EXAMPLE: Long Method Code Smell
@@ -13,7 +14,7 @@ import java.util.ArrayList;
  * 
  * <h2>Problems with this Code:</h2>
  * <ul>
- *   <li>The processOrder method is over 60 lines long</li>
+ *   <li>The processOrder method mixes validation, pricing and notification in one long method</li>
  *   <li>It handles multiple responsibilities: validation, calculation, discount, tax, shipping, notification</li>
  *   <li>Hard to understand what the method does at a glance</li>
  *   <li>Difficult to test individual parts</li>
@@ -36,13 +37,50 @@ import java.util.ArrayList;
  * @see com.codesmells.bloaters.longmethod.good.OrderProcessorService for the refactored version
  */
 @Service
-public class OrderProcessorService {
+public class OrderProcessorService implements AutoCloseable {
+
+    private final PricingEngine pricingEngine;
+    private final OrderEventLog eventLog;
+    private final OrderPriceCache priceCache;
+
+    public OrderProcessorService() {
+        this(new PricingEngine(PricingTables.defaults()), OrderEventLog.open(Paths.get("data", "order-events")));
+    }
+
+    public OrderProcessorService(PricingEngine pricingEngine, OrderEventLog eventLog) {
+        this(pricingEngine, eventLog, null);
+    }
+
+    /**
+     * @param priceCache cache for repeated carts, or null to price every order
+     */
+    public OrderProcessorService(PricingEngine pricingEngine, OrderEventLog eventLog, OrderPriceCache priceCache) {
+        this.pricingEngine = pricingEngine;
+        this.eventLog = eventLog;
+        this.priceCache = priceCache;
+    }
+
+    public PricingEngine getPricingEngine() {
+        return pricingEngine;
+    }
+
+    public OrderEventLog getEventLog() {
+        return eventLog;
+    }
+
+    /**
+     * Re-prices a batch of orders in parallel without the per-order
+     * notifications, e.g. for the nightly re-pricing job.
+     */
+    public OrderPrices processOrders(OrderBatch batch) {
+        return pricingEngine.priceBatch(batch);
+    }
 
     /**
      * BAD: This method is way too long and does too many things
      * It violates the Single Responsibility Principle
      */
-    public double processOrder(String customerId, List<String> items, String shippingAddress) {
+    public Money processOrder(String customerId, List<String> items, String shippingAddress) {
         // Validate customer
         if (customerId == null || customerId.isEmpty()) {
             throw new IllegalArgumentException("Customer ID cannot be null or empty");
@@ -58,81 +96,22 @@ public class OrderProcessorService {
             throw new IllegalArgumentException("Shipping address cannot be null or empty");
         }
         
-        // Calculate subtotal
-        double subtotal = 0;
-        List<Double> itemPrices = new ArrayList<>();
-        for (String item : items) {
-            double price = 0;
-            // Simulate getting price from database
-            if (item.equals("ITEM001")) {
-                price = 29.99;
-            } else if (item.equals("ITEM002")) {
-                price = 49.99;
-            } else if (item.equals("ITEM003")) {
-                price = 19.99;
-            } else {
-                price = 9.99;
-            }
-            itemPrices.add(price);
-            subtotal += price;
-        }
-        
-        // Apply discount based on customer loyalty
-        double discount = 0;
         // Simulate getting customer loyalty level
         String loyaltyLevel = "GOLD"; // This would come from database
-        if (loyaltyLevel.equals("GOLD")) {
-            discount = subtotal * 0.15; // 15% discount
-        } else if (loyaltyLevel.equals("SILVER")) {
-            discount = subtotal * 0.10; // 10% discount
-        } else if (loyaltyLevel.equals("BRONZE")) {
-            discount = subtotal * 0.05; // 5% discount
-        }
-        
-        double afterDiscount = subtotal - discount;
         
-        // Calculate tax based on shipping address
-        double tax = 0;
-        if (shippingAddress.contains("CA")) {
-            tax = afterDiscount * 0.0875; // California tax
-        } else if (shippingAddress.contains("NY")) {
-            tax = afterDiscount * 0.08875; // New York tax
-        } else if (shippingAddress.contains("TX")) {
-            tax = afterDiscount * 0.0625; // Texas tax
-        } else {
-            tax = afterDiscount * 0.05; // Default tax
-        }
-        
-        // Calculate shipping cost
-        double shippingCost = 0;
-        int itemCount = items.size();
-        if (itemCount <= 2) {
-            shippingCost = 5.99;
-        } else if (itemCount <= 5) {
-            shippingCost = 8.99;
-        } else {
-            shippingCost = 12.99;
-        }
-        
-        // Free shipping for orders over $100
-        if (afterDiscount >= 100) {
-            shippingCost = 0;
-        }
-        
-        double total = afterDiscount + tax + shippingCost;
-        
-        // Send confirmation email
-        System.out.println("Sending email to customer: " + customerId);
-        System.out.println("Order Details:");
-        System.out.println("Subtotal: $" + subtotal);
-        System.out.println("Discount: $" + discount);
-        System.out.println("Tax: $" + tax);
-        System.out.println("Shipping: $" + shippingCost);
-        System.out.println("Total: $" + total);
+        // Prices, discounts, tax and shipping come from precomputed lookup tables
+        OrderPrice price = priceCache != null
+            ? priceCache.price(loyaltyLevel, items, shippingAddress)
+            : pricingEngine.price(loyaltyLevel, items, shippingAddress);
         
         // Log the order
-        System.out.println("Order logged for customer: " + customerId);
+        eventLog.append(customerId, items.size(), price);
         
-        return total;
+        return price.getTotal();
+    }
+
+    @Override
+    public void close() {
+        eventLog.close();
     }
 }
@@ -0,0 +1,133 @@
+package com.codesmells.bloaters.longmethod.bad;
+
+import com.codesmells.common.Money;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Prices orders against the current {@link PricingTables} snapshot.
+ *
+ * The tables are published through a single volatile reference: readers
+ * take one snapshot per order and never lock, and {@link #updateTables}
+ * swaps in new prices atomically for subsequent orders. All arithmetic is
+ * done on {@code long} minor units; discounts and tax are rounded half to
+ * even, and a {@link Money} is only created for the result.
+ */
+public class PricingEngine {
+
+    /** Orders priced sequentially by one fork-join task before it stops splitting. */
+    private static final int BATCH_SPLIT_THRESHOLD = 2_048;
+
+    private volatile PricingTables tables;
+
+    public PricingEngine(PricingTables tables) {
+        this.tables = tables;
+    }
+
+    public PricingTables getTables() {
+        return tables;
+    }
+
+    public void updateTables(PricingTables tables) {
+        this.tables = tables;
+    }
+
+    public OrderPrice price(String loyaltyLevel, List<String> items, String shippingAddress) {
+        return price(tables, loyaltyLevel, items, shippingAddress);
+    }
+
+    /**
+     * Prices an order against a given snapshot, for callers that need to know
+     * exactly which tables a price came from.
+     */
+    static OrderPrice price(PricingTables tables, String loyaltyLevel, List<String> items, String shippingAddress) {
+        long subtotal = 0;
+        for (String item : items) {
+            subtotal = Math.addExact(subtotal, tables.itemPrice(item));
+        }
+        return price(tables, subtotal, items.size(), loyaltyLevel, shippingAddress);
+    }
+
+    /**
+     * Applies discount, tax and shipping to an order's subtotal. Both single
+     * and batch pricing go through here, so their results are identical.
+     */
+    private static OrderPrice price(PricingTables tables, long subtotal, int itemCount, String loyaltyLevel,
+                                    String shippingAddress) {
+        long discount = Money.applyRate(subtotal, tables.loyaltyDiscountRate(loyaltyLevel));
+        long afterDiscount = subtotal - discount;
+        long tax = Money.applyRate(afterDiscount, tables.taxRate(shippingAddress));
+        long shippingCost = tables.shippingCost(itemCount, afterDiscount);
+        long total = Math.addExact(Math.addExact(afterDiscount, tax), shippingCost);
+        return new OrderPrice(tables.getCurrency(), subtotal, discount, tax, shippingCost, total);
+    }
+
+    /**
+     * Prices a whole batch in parallel on the common fork-join pool.
+     */
+    public OrderPrices priceBatch(OrderBatch batch) {
+        return priceBatch(batch, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Prices a whole batch in parallel on the given pool. Every order is priced
+     * against the same tables snapshot and gets exactly the result
+     * {@link #price} would return for it.
+     */
+    public OrderPrices priceBatch(OrderBatch batch, ForkJoinPool pool) {
+        PricingTables current = tables;
+        OrderPrices prices = new OrderPrices(current.getCurrency(), batch.size());
+        pool.invoke(new PriceRange(current, batch, prices, 0, batch.size()));
+        return prices;
+    }
+
+    private static final class PriceRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient PricingTables tables;
+        private final transient OrderBatch batch;
+        private final transient OrderPrices prices;
+        private final int from;
+        private final int to;
+
+        PriceRange(PricingTables tables, OrderBatch batch, OrderPrices prices, int from, int to) {
+            this.tables = tables;
+            this.batch = batch;
+            this.prices = prices;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH_SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PriceRange(tables, batch, prices, from, middle),
+                    new PriceRange(tables, batch, prices, middle, to));
+                return;
+            }
+            for (int order = from; order < to; order++) {
+                priceOrder(order);
+            }
+        }
+
+        private void priceOrder(int order) {
+            int start = batch.getItemStart(order);
+            int end = batch.getItemEnd(order);
+            long subtotal = 0;
+            for (int item = start; item < end; item++) {
+                subtotal = Math.addExact(subtotal, tables.itemPrice(batch.getItemId(item)));
+            }
+            // Short-lived; once inlined the JIT normally keeps its fields in registers
+            OrderPrice price = price(tables, subtotal, end - start,
+                batch.getLoyaltyLevel(order), batch.getShippingAddress(order));
+            prices.subtotals[order] = subtotal;
+            prices.discounts[order] = price.getDiscountMinorUnits();
+            prices.taxes[order] = price.getTaxMinorUnits();
+            prices.shippingCosts[order] = price.getShippingCostMinorUnits();
+            prices.totals[order] = price.getTotalMinorUnits();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.codesmells.bloaters.longmethod.bad;
+
+import com.codesmells.common.Money;
+
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of everything needed to price an order: item prices,
+ * loyalty discounts, tax rates per region and shipping brackets.
+ *
+ * All lookups are precomputed into primitive arrays and tables, so a
+ * snapshot can be shared by any number of threads and replaced as a whole.
+ * Amounts are kept in minor units of {@link #getCurrency()} and rates in
+ * parts per million, see {@link Money}.
+ */
+public final class PricingTables {
+
+    private final Currency currency;
+    private final StringLongTable itemPrices;
+    private final StringLongTable loyaltyDiscountRates;
+    private final String[] taxRegions;
+    private final long[] taxRates;
+    private final long defaultTaxRate;
+    private final int[] shippingMaxItems;
+    private final long[] shippingCosts;
+    private final long oversizeShippingCost;
+    private final long freeShippingThreshold;
+
+    private PricingTables(Builder builder) {
+        this.currency = builder.currency;
+        this.itemPrices = new StringLongTable(builder.itemPrices, builder.defaultItemPrice);
+        this.loyaltyDiscountRates = new StringLongTable(builder.loyaltyDiscountRates, 0);
+        this.taxRegions = builder.taxRates.keySet().toArray(new String[0]);
+        this.taxRates = builder.taxRates.values().stream().mapToLong(Long::longValue).toArray();
+        this.defaultTaxRate = builder.defaultTaxRate;
+        this.shippingMaxItems = Arrays.copyOf(builder.shippingMaxItems, builder.shippingBrackets);
+        this.shippingCosts = Arrays.copyOf(builder.shippingCosts, builder.shippingBrackets);
+        this.oversizeShippingCost = builder.oversizeShippingCost;
+        this.freeShippingThreshold = builder.freeShippingThreshold;
+    }
+
+    /**
+     * The prices and rates that used to be hard-coded in processOrder.
+     */
+    public static PricingTables defaults() {
+        return new Builder(Money.USD)
+            .itemPrice("ITEM001", 29.99)
+            .itemPrice("ITEM002", 49.99)
+            .itemPrice("ITEM003", 19.99)
+            .defaultItemPrice(9.99)
+            .loyaltyDiscount("GOLD", 0.15)
+            .loyaltyDiscount("SILVER", 0.10)
+            .loyaltyDiscount("BRONZE", 0.05)
+            .taxRate("CA", 0.0875)
+            .taxRate("NY", 0.08875)
+            .taxRate("TX", 0.0625)
+            .defaultTaxRate(0.05)
+            .shippingBracket(2, 5.99)
+            .shippingBracket(5, 8.99)
+            .oversizeShippingCost(12.99)
+            .freeShippingThreshold(100)
+            .build();
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    /** Item price in minor units. */
+    public long itemPrice(String itemId) {
+        return itemPrices.get(itemId);
+    }
+
+    /** Discount rate in parts per million. */
+    public long loyaltyDiscountRate(String loyaltyLevel) {
+        return loyaltyDiscountRates.get(loyaltyLevel);
+    }
+
+    /**
+     * Rate, in parts per million, of the first configured region whose code
+     * appears in the address.
+     */
+    public long taxRate(String shippingAddress) {
+        return taxRateOfRegion(taxRegion(shippingAddress));
+    }
+
+    /**
+     * Index of the first configured region whose code appears in the address,
+     * or -1 if the default rate applies. Addresses with the same region are
+     * taxed identically.
+     */
+    public int taxRegion(String shippingAddress) {
+        for (int i = 0; i < taxRegions.length; i++) {
+            if (shippingAddress.contains(taxRegions[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Rate, in parts per million, of a region returned by {@link #taxRegion}. */
+    public long taxRateOfRegion(int region) {
+        return region >= 0 ? taxRates[region] : defaultTaxRate;
+    }
+
+    /** Shipping cost in minor units. */
+    public long shippingCost(int itemCount, long amountAfterDiscount) {
+        if (amountAfterDiscount >= freeShippingThreshold) {
+            return 0;
+        }
+        for (int i = 0; i < shippingMaxItems.length; i++) {
+            if (itemCount <= shippingMaxItems[i]) {
+                return shippingCosts[i];
+            }
+        }
+        return oversizeShippingCost;
+    }
+
+    /**
+     * Collects prices as decimal amounts and rates as fractions (0.0875 for
+     * 8.75%) and converts them to minor units and parts per million.
+     */
+    public static final class Builder {
+        private final Currency currency;
+        private final Map<String, Long> itemPrices = new HashMap<>();
+        private final Map<String, Long> loyaltyDiscountRates = new HashMap<>();
+        // Insertion order is the order regions are matched in
+        private final Map<String, Long> taxRates = new LinkedHashMap<>();
+        private long defaultItemPrice;
+        private long defaultTaxRate;
+        private int[] shippingMaxItems = new int[4];
+        private long[] shippingCosts = new long[4];
+        private int shippingBrackets;
+        private long oversizeShippingCost;
+        private long freeShippingThreshold = Long.MAX_VALUE;
+
+        public Builder(Currency currency) {
+            this.currency = currency;
+        }
+
+        public Builder itemPrice(String itemId, double price) {
+            itemPrices.put(itemId, Money.toMinorUnits(price, currency));
+            return this;
+        }
+
+        public Builder defaultItemPrice(double price) {
+            this.defaultItemPrice = Money.toMinorUnits(price, currency);
+            return this;
+        }
+
+        public Builder loyaltyDiscount(String loyaltyLevel, double rate) {
+            loyaltyDiscountRates.put(loyaltyLevel, Money.toRatePpm(rate));
+            return this;
+        }
+
+        public Builder taxRate(String region, double rate) {
+            taxRates.put(region, Money.toRatePpm(rate));
+            return this;
+        }
+
+        public Builder defaultTaxRate(double rate) {
+            this.defaultTaxRate = Money.toRatePpm(rate);
+            return this;
+        }
+
+        /**
+         * Adds a bracket for orders of up to {@code maxItems} items. Brackets must
+         * be added in increasing order of {@code maxItems}.
+         */
+        public Builder shippingBracket(int maxItems, double cost) {
+            if (shippingBrackets > 0 && maxItems <= shippingMaxItems[shippingBrackets - 1]) {
+                throw new IllegalArgumentException("Shipping brackets must be added in increasing order");
+            }
+            if (shippingBrackets == shippingMaxItems.length) {
+                shippingMaxItems = Arrays.copyOf(shippingMaxItems, shippingBrackets * 2);
+                shippingCosts = Arrays.copyOf(shippingCosts, shippingBrackets * 2);
+            }
+            shippingMaxItems[shippingBrackets] = maxItems;
+            shippingCosts[shippingBrackets] = Money.toMinorUnits(cost, currency);
+            shippingBrackets++;
+            return this;
+        }
+
+        /**
+         * Shipping cost for orders larger than every bracket.
+         */
+        public Builder oversizeShippingCost(double cost) {
+            this.oversizeShippingCost = Money.toMinorUnits(cost, currency);
+            return this;
+        }
+
+        public Builder freeShippingThreshold(double threshold) {
+            this.freeShippingThreshold = Money.toMinorUnits(threshold, currency);
+            return this;
+        }
+
+        public PricingTables build() {
+            return new PricingTables(this);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.codesmells.bloaters.longmethod.bad;
+
+import java.util.Map;
+
+/**
+ * Immutable open-addressing hash table from String keys to primitive longs.
+ * Lookups allocate nothing and never box the value.
+ */
+public final class StringLongTable {
+
+    private final String[] keys;
+    private final long[] values;
+    private final int mask;
+    private final long defaultValue;
+
+    public StringLongTable(Map<String, Long> entries, long defaultValue) {
+        // Keep the load factor at or below 0.5 so probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(2, entries.size() * 2 - 1)) << 1;
+        this.keys = new String[capacity];
+        this.values = new long[capacity];
+        this.mask = capacity - 1;
+        this.defaultValue = defaultValue;
+        for (Map.Entry<String, Long> entry : entries.entrySet()) {
+            int slot = slot(entry.getKey());
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = entry.getKey();
+            values[slot] = entry.getValue();
+        }
+    }
+
+    public long get(String key) {
+        int slot = slot(key);
+        String candidate;
+        while ((candidate = keys[slot]) != null) {
+            if (candidate.equals(key)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    public boolean containsKey(String key) {
+        int slot = slot(key);
+        String candidate;
+        while ((candidate = keys[slot]) != null) {
+            if (candidate.equals(key)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    private int slot(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -1,5 +1,6 @@
 package com.codesmells.bloaters.primitiveobsession.bad;
 
+import com.codesmells.common.Money;
 import org.springframework.stereotype.Service;
 
 /**
@@ -73,13 +74,13 @@ public class CustomerService {
     }
     
     /**
-     * BAD: Money operations with primitives - easy to make mistakes
+     * Exact fixed-point arithmetic; adding funds in a different currency fails
      */
-    public double addFunds(double currentBalance, double amount, String currency) {
-        if (amount < 0) {
+    public Money addFunds(Money currentBalance, Money amount) {
+        if (amount.isNegative()) {
             throw new IllegalArgumentException("Amount cannot be negative");
         }
-        return currentBalance + amount;
+        return currentBalance.plus(amount);
     }
     
     /**
@@ -0,0 +1,914 @@
+/**
+ * Append-only, content-addressed archive of generated documents.
+ *
+ * Documents are stored once per distinct content, keyed by the SHA-256 of
+ * their UTF-8 bytes; archiving the same content under another id only adds
+ * a small id entry. Entries are packed into blocks of about 32 KB that are
+ * compressed with {@link Deflater} and appended to segment files of up to
+ * 64 MB. Each block starts with its lengths and a CRC32 of the compressed
+ * bytes. Entries refer to content by a sequence number rather than by its
+ * hash, which would not compress; hashes are recomputed when needed.
+ *
+ * A memory-mapped index, sized for a fixed capacity up front, maps an id's
+ * fingerprint to a content slot and a content slot to its block, so a read
+ * is two slot probes, one positional file read and one partial inflate. The
+ * index is only trusted after a clean {@link #close}; otherwise it is
+ * rebuilt by replaying the segments, cutting off a torn block at the end of
+ * the last one. A bad block anywhere else fails the open.
+ * Documents are durable once {@link #flush} or {@link #close} returns.
+ *
+ * When an id is archived again with different content, the old content may
+ * lose its last reference. A background task compacts sealed segments that
+ * have become mostly unreferenced content by copying their live entries to
+ * the end of the archive and deleting them. The index slots of content it
+ * drops become tombstones that later content reuses; once too many pile up
+ * the index is rebuilt from the segments. Reads run concurrently with one
+ * another; writes and the compaction of one segment are exclusive.
+ */
+package com.codesmells.changepreventers.divergentchange.bad;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public class DocumentArchive implements AutoCloseable {
+
+    private static final int BLOCK_BYTES = 32 * 1024;
+    private static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    private static final int BLOCK_HEADER_BYTES = 12;
+    private static final int HASH_BYTES = 32;
+    private static final byte CONTENT = 1;
+    private static final byte ID = 2;
+
+    private static final String INDEX_FILE = "index.bin";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+    private static final int INDEX_MAGIC = 0x44415849; // "DAXI"
+    private static final int INDEX_HEADER_BYTES = 4096;
+    private static final double MAX_LOAD_FACTOR = 0.6;
+
+    // Id slot: [long fingerprint high][long fingerprint low][int content slot + 1, 0 if empty][int unused]
+    private static final int ID_SLOT_BYTES = 24;
+    private static final int ID_CONTENT = 16;
+    // Content slot: [32 byte hash][long number][int segment][int block][int offset][int length][int references][int state]
+    private static final int CONTENT_SLOT_BYTES = 64;
+    private static final int NUMBER = 32;
+    private static final int SEGMENT = 40;
+    private static final int BLOCK = 44;
+    private static final int OFFSET = 48;
+    private static final int LENGTH = 52;
+    private static final int REFERENCES = 56;
+    private static final int STATE = 60;
+    private static final int EMPTY = 0;
+    private static final int STORED = 1;
+    private static final int DROPPED = 2; // tombstone: unreferenced content removed by compaction, reusable
+
+    // What a segment scan does with the entries it reads
+    private static final int RESTORE_CONTENTS = 0;
+    private static final int RESTORE_IDS = 1;
+    private static final int COMPACT = 2;
+
+    private final Path directory;
+    private final int capacity;
+    private final long maxSegmentBytes;
+    private final FileChannel indexChannel;
+    private final MappedByteBuffer indexHeader;
+    private final SlotTable ids;
+    private final SlotTable contents;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService compaction;
+
+    // Guarded by the write lock; readers see them under the read lock
+    private final Map<Integer, FileChannel> segments = new ConcurrentHashMap<>();
+    private final Map<Integer, long[]> segmentBytes = new HashMap<>(); // content bytes: total, referenced
+    private int activeSegment;
+    private long activeSize;
+    private byte[] block = new byte[BLOCK_BYTES];
+    private int blockLength;
+    private byte[] compressed = new byte[BLOCK_BYTES + 1024];
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private volatile int documentCount;
+    private volatile int contentCount;
+    private int tombstoneCount;
+    private long nextNumber = 1;
+    private int[] slotOfNumber; // content slot + 1 by number, only while rebuilding
+
+    private final AtomicLong archived = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong uniqueBytes = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+    private final AtomicLong compactedSegments = new AtomicLong();
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+
+    private DocumentArchive(Path directory, int capacity, Duration compactionInterval, long maxSegmentBytes)
+            throws IOException {
+        this.directory = directory;
+        this.capacity = capacity;
+        this.maxSegmentBytes = maxSegmentBytes;
+        int idSlots = slotCount(capacity);
+        int contentSlots = slotCount(capacity);
+
+        Path indexFile = directory.resolve(INDEX_FILE);
+        boolean trusted = isCleanIndex(indexFile, capacity);
+        if (!trusted) {
+            Files.deleteIfExists(indexFile);
+        }
+        this.indexChannel = FileChannel.open(indexFile, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.indexHeader = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_BYTES);
+        this.ids = new SlotTable(indexChannel, INDEX_HEADER_BYTES, idSlots, ID_SLOT_BYTES);
+        this.contents = new SlotTable(indexChannel,
+            INDEX_HEADER_BYTES + (long) idSlots * ID_SLOT_BYTES, contentSlots, CONTENT_SLOT_BYTES);
+        // Marked dirty until close, so a crash from here on triggers a rebuild
+        indexHeader.putInt(0, INDEX_MAGIC).putInt(4, capacity).putInt(8, 0);
+        indexHeader.force();
+
+        List<Integer> existing = segmentNumbers(directory);
+        for (int segment : existing) {
+            segments.put(segment, openSegment(segment));
+        }
+        if (!trusted) {
+            replaySegments(existing);
+        }
+        if (existing.isEmpty()) {
+            activeSegment = 1;
+            segments.put(activeSegment, openSegment(activeSegment));
+        } else {
+            activeSegment = existing.get(existing.size() - 1);
+            activeSize = segments.get(activeSegment).size();
+        }
+        loadTotals();
+
+        this.compaction = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "document-archive-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = compactionInterval.toMillis();
+        compaction.scheduleWithFixedDelay(this::compactQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens the archive in a directory, rebuilding its index if it was not closed cleanly.
+     *
+     * @param capacity distinct ids, and distinct contents, the index can hold
+     */
+    public static DocumentArchive open(Path directory, int capacity, Duration compactionInterval) throws IOException {
+        return open(directory, capacity, compactionInterval, DEFAULT_SEGMENT_BYTES);
+    }
+
+    static DocumentArchive open(Path directory, int capacity, Duration compactionInterval, long maxSegmentBytes)
+            throws IOException {
+        if (capacity <= 0 || maxSegmentBytes <= 0) {
+            throw new IllegalArgumentException("Capacity and segment size must be positive");
+        }
+        Files.createDirectories(directory);
+        return new DocumentArchive(directory, capacity, compactionInterval, maxSegmentBytes);
+    }
+
+    /**
+     * Archives a document under an id, replacing whatever the id held before.
+     *
+     * @throws IllegalStateException if the index is full
+     */
+    public void put(String id, String content) throws IOException {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        if (idBytes.length > 0xffff) {
+            throw new IllegalArgumentException("Document id too long");
+        }
+        byte[] fingerprint = sha256(idBytes, 0, idBytes.length);
+        long high = getLong(fingerprint, 0);
+        long low = getLong(fingerprint, 8);
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        byte[] hash = sha256(bytes, 0, bytes.length);
+
+        lock.writeLock().lock();
+        try {
+            int contentSlot = findContent(hash);
+            int state = contents.region(contentSlot).getInt(contents.offset(contentSlot) + STATE);
+            int idSlot = findId(high, low);
+            boolean newId = ids.region(idSlot).getInt(ids.offset(idSlot) + ID_CONTENT) == 0;
+            if ((state != STORED && contentCount >= capacity) || (newId && documentCount >= capacity)) {
+                throw new IllegalStateException("Archive index is full");
+            }
+            if (state == STORED) {
+                duplicates.incrementAndGet();
+            } else {
+                claimContent(contentSlot, hash, nextNumber);
+                writeContent(contentSlot, bytes, 0, bytes.length);
+                uniqueBytes.addAndGet(bytes.length);
+            }
+            if (mapId(idSlot, high, low, contentSlot)) {
+                writeId(contentSlot, idBytes, 0, idBytes.length);
+            }
+            archived.incrementAndGet();
+            rawBytes.addAndGet(bytes.length);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Content archived under an id, or null if there is none.
+     */
+    public String get(String id) throws IOException {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        byte[] fingerprint = sha256(idBytes, 0, idBytes.length);
+        lock.readLock().lock();
+        try {
+            int idSlot = findId(getLong(fingerprint, 0), getLong(fingerprint, 8));
+            int contentSlot = ids.region(idSlot).getInt(ids.offset(idSlot) + ID_CONTENT) - 1;
+            if (contentSlot < 0) {
+                return null;
+            }
+            ByteBuffer region = contents.region(contentSlot);
+            int slot = contents.offset(contentSlot);
+            if (region.getInt(slot + STATE) != STORED) {
+                throw new IllegalStateException("Archived content is missing for " + id);
+            }
+            int segment = region.getInt(slot + SEGMENT);
+            int blockPosition = region.getInt(slot + BLOCK);
+            int offset = region.getInt(slot + OFFSET);
+            int length = region.getInt(slot + LENGTH);
+            if (segment == activeSegment && blockPosition == activeSize) {
+                return new String(block, offset, length, StandardCharsets.UTF_8); // not written out yet
+            }
+            FileChannel channel = segments.get(segment);
+            ByteBuffer header = readFully(channel, blockPosition, BLOCK_HEADER_BYTES);
+            byte[] blockBytes = readFully(channel, blockPosition + BLOCK_HEADER_BYTES, header.getInt(4)).array();
+            if (checksum(blockBytes, blockBytes.length) != header.getInt(8)) {
+                throw new IOException("Corrupt archive block in segment " + segment + " at " + blockPosition);
+            }
+            byte[] raw = inflate(blockBytes, offset + length);
+            return new String(raw, offset, length, StandardCharsets.UTF_8);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes out the current block and fsyncs it.
+     */
+    public void flush() throws IOException {
+        lock.writeLock().lock();
+        try {
+            writeBlock();
+            segments.get(activeSegment).force(false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Compacts every sealed segment in which less than half of the content
+     * bytes are still referenced. Reads and writes are only paused while one
+     * block at a time is copied.
+     *
+     * @return number of segments compacted
+     */
+    public synchronized int compact() throws IOException {
+        List<Integer> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            segmentBytes.forEach((segment, bytes) -> {
+                if (segment != activeSegment && bytes[1] * 2 < bytes[0]) {
+                    candidates.add(segment);
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (int segment : candidates) {
+            compactSegment(segment);
+        }
+        return candidates.size();
+    }
+
+    public int getDocumentCount() { return documentCount; }
+    public int getContentCount() { return contentCount; }
+    public long getArchivedCount() { return archived.get(); }
+    public long getDuplicateCount() { return duplicates.get(); }
+    public long getRawBytes() { return rawBytes.get(); }
+    public long getStoredBytes() { return storedBytes.get(); }
+    public long getCompactedSegmentCount() { return compactedSegments.get(); }
+    public long getReclaimedBytes() { return reclaimedBytes.get(); }
+
+    /**
+     * Bytes archived per byte of distinct content stored, since open.
+     */
+    public double getDedupRatio() {
+        long unique = uniqueBytes.get();
+        return unique == 0 ? 1 : (double) rawBytes.get() / unique;
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Document archive compaction failed, will retry: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Copies the live entries of a sealed segment to the end of the archive
+     * and deletes it.
+     */
+    private void compactSegment(int segment) throws IOException {
+        long size = segments.get(segment).size();
+        scanSegment(segment, COMPACT);
+        lock.writeLock().lock();
+        try {
+            // The copies must be durable before the only other copy is deleted
+            writeBlock();
+            segments.get(activeSegment).force(false);
+            segments.remove(segment).close();
+            Files.delete(segmentPath(directory, segment));
+            segmentBytes.remove(segment);
+            // Keep at least half of the slots the load factor leaves free truly empty, so probes stay short
+            if (tombstoneCount > (contents.mask + 1 - capacity) / 2) {
+                rebuildIndex();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        compactedSegments.incrementAndGet();
+        reclaimedBytes.addAndGet(size);
+    }
+
+    /**
+     * Clears the index and replays every segment into it, which also clears
+     * the tombstones compaction left behind. Runs under the write lock, with
+     * the current block already written out.
+     */
+    private void rebuildIndex() throws IOException {
+        ids.clear();
+        contents.clear();
+        documentCount = 0;
+        contentCount = 0;
+        replaySegments(segments.keySet().stream().sorted().collect(Collectors.toList()));
+        loadTotals();
+    }
+
+    private void replaySegments(List<Integer> existing) throws IOException {
+        // Contents first: compaction may have moved content after the ids that refer to it
+        slotOfNumber = new int[1024];
+        for (int segment : existing) {
+            scanSegment(segment, RESTORE_CONTENTS);
+        }
+        for (int segment : existing) {
+            scanSegment(segment, RESTORE_IDS);
+        }
+        slotOfNumber = null;
+    }
+
+    /**
+     * Reads every block of a segment. Recovery applies the entries to the
+     * index and cuts off a torn tail of the last segment; compaction copies
+     * the entries the index still points at.
+     */
+    private void scanSegment(int segment, int mode) throws IOException {
+        FileChannel channel = segments.get(segment);
+        long size = channel.size();
+        long position = 0;
+        while (position < size) {
+            byte[] raw = null;
+            int compressedLength = 0;
+            // Whether the bad block, if any, could be the last write cut short by a crash
+            boolean tail = true;
+            if (size - position >= BLOCK_HEADER_BYTES) {
+                ByteBuffer header = readFully(channel, position, BLOCK_HEADER_BYTES);
+                int rawLength = header.getInt(0);
+                compressedLength = header.getInt(4);
+                if (rawLength >= 0 && compressedLength >= 0
+                        && compressedLength <= size - position - BLOCK_HEADER_BYTES) {
+                    tail = position + BLOCK_HEADER_BYTES + compressedLength == size;
+                    byte[] blockBytes = readFully(channel, position + BLOCK_HEADER_BYTES, compressedLength).array();
+                    if (checksum(blockBytes, compressedLength) == header.getInt(8)) {
+                        raw = inflate(blockBytes, rawLength);
+                    }
+                }
+            }
+            if (raw == null) {
+                if (mode != RESTORE_CONTENTS || !tail || segment != lastSegment()) {
+                    throw new IOException("Corrupt archive block in segment " + segment + " at " + position);
+                }
+                channel.truncate(position); // torn by a crash
+                return;
+            }
+            if (mode == COMPACT) {
+                // Sealed segments never change, so compaction only locks to check and copy entries
+                lock.writeLock().lock();
+                try {
+                    scanEntries(segment, position, raw, mode);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } else {
+                scanEntries(segment, position, raw, mode);
+            }
+            position += BLOCK_HEADER_BYTES + compressedLength;
+        }
+    }
+
+    private void scanEntries(int segment, long position, byte[] raw, int mode) throws IOException {
+        ByteBuffer entries = ByteBuffer.wrap(raw);
+        while (entries.hasRemaining()) {
+            byte kind = entries.get();
+            long number = entries.getLong();
+            int length = kind == CONTENT ? entries.getInt() : entries.getShort() & 0xffff;
+            int offset = entries.position();
+            entries.position(offset + length);
+            if (kind == CONTENT && mode != RESTORE_IDS) {
+                scanContent(segment, position, number, raw, offset, length, mode == COMPACT);
+            } else if (kind == ID && mode != RESTORE_CONTENTS) {
+                scanId(number, raw, offset, length, mode == COMPACT);
+            } else if (kind != CONTENT && kind != ID) {
+                throw new IOException("Corrupt archive entry in segment " + segment + " at " + position);
+            }
+        }
+    }
+
+    private void scanContent(int segment, long position, long number, byte[] raw, int offset, int length,
+                             boolean compacting) throws IOException {
+        byte[] hash = sha256(raw, offset, length);
+        int contentSlot = findContent(hash);
+        ByteBuffer region = contents.region(contentSlot);
+        int slot = contents.offset(contentSlot);
+        if (!compacting) {
+            if (region.getInt(slot + STATE) != STORED) {
+                claimContent(contentSlot, hash, number);
+            }
+            setLocation(contentSlot, segment, (int) position, offset, length);
+            int index = Math.toIntExact(number);
+            if (index >= slotOfNumber.length) {
+                slotOfNumber = Arrays.copyOf(slotOfNumber, Math.max(index + 1, slotOfNumber.length * 2));
+            }
+            slotOfNumber[index] = contentSlot + 1;
+        } else if (region.getInt(slot + STATE) == STORED && region.getInt(slot + SEGMENT) == segment
+                && region.getInt(slot + BLOCK) == position && region.getInt(slot + OFFSET) == offset) {
+            if (region.getInt(slot + REFERENCES) > 0) {
+                writeContent(contentSlot, raw, offset, length);
+            } else {
+                region.putInt(slot + STATE, DROPPED);
+                contentCount--;
+                tombstoneCount++;
+            }
+        }
+    }
+
+    private void scanId(long number, byte[] raw, int offset, int length, boolean compacting) throws IOException {
+        byte[] fingerprint = sha256(raw, offset, length);
+        long high = getLong(fingerprint, 0);
+        long low = getLong(fingerprint, 8);
+        int idSlot = findId(high, low);
+        if (!compacting) {
+            int contentSlot = number < slotOfNumber.length ? slotOfNumber[(int) number] - 1 : -1;
+            // Otherwise compaction dropped the content and a later entry for this id supersedes it
+            if (contentSlot >= 0) {
+                mapId(idSlot, high, low, contentSlot);
+            }
+        } else {
+            int contentSlot = ids.region(idSlot).getInt(ids.offset(idSlot) + ID_CONTENT) - 1;
+            if (contentSlot >= 0 && contents.region(contentSlot).getLong(contents.offset(contentSlot) + NUMBER) == number) {
+                writeId(contentSlot, raw, offset, length);
+            }
+        }
+    }
+
+    private void writeContent(int contentSlot, byte[] source, int offset, int length) throws IOException {
+        long number = contents.region(contentSlot).getLong(contents.offset(contentSlot) + NUMBER);
+        int start = reserve(1 + Long.BYTES + Integer.BYTES + length);
+        ByteBuffer.wrap(block, start, block.length - start)
+            .put(CONTENT).putLong(number).putInt(length).put(source, offset, length);
+        setLocation(contentSlot, activeSegment, (int) activeSize, start + 1 + Long.BYTES + Integer.BYTES, length);
+    }
+
+    private void writeId(int contentSlot, byte[] source, int offset, int length) throws IOException {
+        long number = contents.region(contentSlot).getLong(contents.offset(contentSlot) + NUMBER);
+        int start = reserve(1 + Long.BYTES + Short.BYTES + length);
+        ByteBuffer.wrap(block, start, block.length - start)
+            .put(ID).putLong(number).putShort((short) length).put(source, offset, length);
+    }
+
+    /**
+     * Makes room for an entry in the current block, writing the block out
+     * first if the entry does not fit.
+     *
+     * @return offset of the entry in the block
+     */
+    private int reserve(int bytes) throws IOException {
+        if (blockLength > 0 && blockLength + bytes > BLOCK_BYTES) {
+            writeBlock();
+        }
+        if (block.length < blockLength + bytes) {
+            block = Arrays.copyOf(block, blockLength + bytes); // a document larger than a block gets its own
+        }
+        int start = blockLength;
+        blockLength += bytes;
+        return start;
+    }
+
+    private void writeBlock() throws IOException {
+        if (blockLength == 0) {
+            return;
+        }
+        deflater.reset();
+        deflater.setInput(block, 0, blockLength);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES)
+            .putInt(blockLength).putInt(length).putInt(checksum(compressed, length));
+        FileChannel channel = segments.get(activeSegment);
+        writeFully(channel, activeSize, header.flip());
+        writeFully(channel, activeSize + BLOCK_HEADER_BYTES, ByteBuffer.wrap(compressed, 0, length));
+        activeSize += BLOCK_HEADER_BYTES + length;
+        storedBytes.addAndGet(BLOCK_HEADER_BYTES + length);
+        blockLength = 0;
+        if (block.length > BLOCK_BYTES) {
+            block = new byte[BLOCK_BYTES];
+        }
+        if (activeSize >= maxSegmentBytes) {
+            channel.force(false);
+            activeSegment++;
+            activeSize = 0;
+            segments.put(activeSegment, openSegment(activeSegment));
+        }
+    }
+
+    /**
+     * Points an id at a content slot, moving the reference from the content
+     * it had before.
+     *
+     * @return false if the id already pointed at that content
+     */
+    private boolean mapId(int idSlot, long high, long low, int contentSlot) {
+        ByteBuffer region = ids.region(idSlot);
+        int slot = ids.offset(idSlot);
+        int previous = region.getInt(slot + ID_CONTENT) - 1;
+        if (previous == contentSlot) {
+            return false;
+        }
+        if (previous < 0) {
+            requireRoom(documentCount);
+            region.putLong(slot, high).putLong(slot + 8, low);
+            documentCount++;
+        } else {
+            addReferences(previous, -1);
+        }
+        addReferences(contentSlot, 1);
+        region.putInt(slot + ID_CONTENT, contentSlot + 1);
+        return true;
+    }
+
+    /**
+     * Takes an empty or tombstone slot for new content. The slot stays
+     * unreadable until the caller sets its location.
+     */
+    private void claimContent(int contentSlot, byte[] hash, long number) {
+        requireRoom(contentCount);
+        ByteBuffer region = contents.region(contentSlot);
+        int slot = contents.offset(contentSlot);
+        if (region.getInt(slot + STATE) == DROPPED) {
+            tombstoneCount--;
+        }
+        region.put(slot, hash);
+        region.putLong(slot + NUMBER, number).putInt(slot + REFERENCES, 0).putInt(slot + STATE, DROPPED);
+        contentCount++;
+        nextNumber = Math.max(nextNumber, number + 1);
+    }
+
+    private void requireRoom(int count) {
+        if (count >= capacity) {
+            throw new IllegalStateException("Archive index is full");
+        }
+    }
+
+    private void addReferences(int contentSlot, int delta) {
+        ByteBuffer region = contents.region(contentSlot);
+        int slot = contents.offset(contentSlot);
+        int before = region.getInt(slot + REFERENCES);
+        region.putInt(slot + REFERENCES, before + delta);
+        if (region.getInt(slot + STATE) == STORED && (before == 0 || before + delta == 0)) {
+            long[] bytes = segmentBytes.get(region.getInt(slot + SEGMENT));
+            if (bytes != null) {
+                bytes[1] += delta * (long) region.getInt(slot + LENGTH);
+            }
+        }
+    }
+
+    private void setLocation(int contentSlot, int segment, int blockPosition, int offset, int length) {
+        ByteBuffer region = contents.region(contentSlot);
+        int slot = contents.offset(contentSlot);
+        boolean referenced = region.getInt(slot + REFERENCES) > 0;
+        if (region.getInt(slot + STATE) == STORED) {
+            account(region.getInt(slot + SEGMENT), -region.getInt(slot + LENGTH), referenced);
+        }
+        region.putInt(slot + SEGMENT, segment).putInt(slot + BLOCK, blockPosition)
+            .putInt(slot + OFFSET, offset).putInt(slot + LENGTH, length).putInt(slot + STATE, STORED);
+        account(segment, length, referenced);
+    }
+
+    private void account(int segment, long length, boolean referenced) {
+        long[] bytes = segmentBytes.computeIfAbsent(segment, s -> new long[2]);
+        bytes[0] += length;
+        if (referenced) {
+            bytes[1] += length;
+        }
+    }
+
+    private void loadTotals() {
+        segmentBytes.clear();
+        int documents = 0;
+        for (int idSlot = 0; idSlot <= ids.mask; idSlot++) {
+            if (ids.region(idSlot).getInt(ids.offset(idSlot) + ID_CONTENT) != 0) {
+                documents++;
+            }
+        }
+        int distinct = 0;
+        int tombstones = 0;
+        for (int contentSlot = 0; contentSlot <= contents.mask; contentSlot++) {
+            ByteBuffer region = contents.region(contentSlot);
+            int slot = contents.offset(contentSlot);
+            int state = region.getInt(slot + STATE);
+            if (state != EMPTY) {
+                nextNumber = Math.max(nextNumber, region.getLong(slot + NUMBER) + 1);
+            }
+            if (state == STORED) {
+                distinct++;
+                account(region.getInt(slot + SEGMENT), region.getInt(slot + LENGTH), region.getInt(slot + REFERENCES) > 0);
+            } else if (state == DROPPED) {
+                tombstones++;
+            }
+        }
+        documentCount = documents;
+        contentCount = distinct;
+        tombstoneCount = tombstones;
+    }
+
+    /**
+     * Slot holding the content hash, or else the first tombstone or empty
+     * slot on its probe path, where it belongs. A tombstone with the same
+     * hash is returned as found, since content is not stored twice.
+     */
+    private int findContent(byte[] hash) {
+        int contentSlot = getInt(hash, 0) & contents.mask;
+        int firstTombstone = -1;
+        while (true) {
+            int state = contents.region(contentSlot).getInt(contents.offset(contentSlot) + STATE);
+            if (state == EMPTY) {
+                return firstTombstone >= 0 ? firstTombstone : contentSlot;
+            }
+            if (hashEquals(contentSlot, hash)) {
+                return contentSlot;
+            }
+            if (state == DROPPED && firstTombstone < 0) {
+                firstTombstone = contentSlot;
+            }
+            contentSlot = (contentSlot + 1) & contents.mask;
+        }
+    }
+
+    /**
+     * Slot holding the id fingerprint, or the empty slot where it belongs.
+     */
+    private int findId(long high, long low) {
+        int idSlot = (int) high & ids.mask;
+        while (true) {
+            ByteBuffer region = ids.region(idSlot);
+            int slot = ids.offset(idSlot);
+            if (region.getInt(slot + ID_CONTENT) == 0
+                    || (region.getLong(slot) == high && region.getLong(slot + 8) == low)) {
+                return idSlot;
+            }
+            idSlot = (idSlot + 1) & ids.mask;
+        }
+    }
+
+    private boolean hashEquals(int contentSlot, byte[] hash) {
+        ByteBuffer region = contents.region(contentSlot);
+        int slot = contents.offset(contentSlot);
+        for (int i = 0; i < HASH_BYTES; i += Long.BYTES) {
+            if (region.getLong(slot + i) != getLong(hash, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int lastSegment() {
+        int last = 0;
+        for (int segment : segments.keySet()) {
+            last = Math.max(last, segment);
+        }
+        return last;
+    }
+
+    private FileChannel openSegment(int segment) throws IOException {
+        return FileChannel.open(segmentPath(directory, segment), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static boolean isCleanIndex(Path indexFile, int capacity) throws IOException {
+        if (!Files.exists(indexFile) || Files.size(indexFile) < INDEX_HEADER_BYTES) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, 0, 12);
+            return header.getInt(0) == INDEX_MAGIC && header.getInt(4) == capacity && header.getInt(8) == 1;
+        }
+    }
+
+    private static List<Integer> segmentNumbers(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .map(file -> file.getFileName().toString())
+                .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                .map(name -> Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                    name.length() - SEGMENT_SUFFIX.length())))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    static Path segmentPath(Path directory, int segment) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private static int slotCount(int capacity) {
+        long slots = Long.highestOneBit((long) Math.ceil(capacity / MAX_LOAD_FACTOR) - 1) << 1;
+        if (slots > 1 << 30) {
+            throw new IllegalArgumentException("Capacity too large: " + capacity);
+        }
+        return (int) Math.max(slots, 2);
+    }
+
+    private static byte[] inflate(byte[] compressedBytes, int upTo) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressedBytes);
+            byte[] raw = new byte[upTo];
+            int length = 0;
+            while (length < upTo) {
+                int inflated = inflater.inflate(raw, length, upTo - length);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Truncated archive block");
+                }
+                length += inflated;
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt archive block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int checksum(byte[] bytes, int length) {
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes, 0, length);
+        return (int) checksum.getValue();
+    }
+
+    private static byte[] sha256(byte[] bytes, int offset, int length) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(bytes, offset, length);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of archive segment");
+            }
+        }
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static int getInt(byte[] bytes, int offset) {
+        return ByteBuffer.wrap(bytes, offset, Integer.BYTES).getInt();
+    }
+
+    private static long getLong(byte[] bytes, int offset) {
+        return ByteBuffer.wrap(bytes, offset, Long.BYTES).getLong();
+    }
+
+    /**
+     * Stops compaction, writes out pending documents and marks the index clean.
+     */
+    @Override
+    public void close() throws IOException {
+        compaction.shutdown();
+        try {
+            compaction.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.writeLock().lock();
+        try {
+            writeBlock();
+            for (FileChannel channel : segments.values()) {
+                channel.force(false);
+                channel.close();
+            }
+            ids.force();
+            contents.force();
+            indexHeader.putInt(8, 1);
+            indexHeader.force();
+            indexChannel.close();
+            deflater.end();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Fixed-size slots mapped from the index file in regions of a million
+     * slots, so tables larger than one mapping can address are possible.
+     */
+    private static final class SlotTable {
+        private static final int REGION_SHIFT = 20;
+        private static final int REGION_MASK = (1 << REGION_SHIFT) - 1;
+
+        private final MappedByteBuffer[] regions;
+        private final int slotBytes;
+        private final int mask;
+
+        SlotTable(FileChannel channel, long base, int slots, int slotBytes) throws IOException {
+            this.slotBytes = slotBytes;
+            this.mask = slots - 1;
+            int regionSlots = Math.min(slots, 1 << REGION_SHIFT);
+            this.regions = new MappedByteBuffer[slots / regionSlots];
+            for (int i = 0; i < regions.length; i++) {
+                regions[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                    base + (long) i * regionSlots * slotBytes, (long) regionSlots * slotBytes);
+            }
+        }
+
+        ByteBuffer region(int slot) {
+            return regions[slot >>> REGION_SHIFT];
+        }
+
+        int offset(int slot) {
+            return (slot & REGION_MASK) * slotBytes;
+        }
+
+        void force() {
+            for (MappedByteBuffer region : regions) {
+                region.force();
+            }
+        }
+
+        void clear() {
+            byte[] zeros = new byte[64 * 1024];
+            for (MappedByteBuffer region : regions) {
+                for (int position = 0; position < region.capacity(); position += zeros.length) {
+                    region.put(position, zeros, 0, Math.min(zeros.length, region.capacity() - position));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * Output formats of {@link DocumentService}.
+ */
+package com.codesmells.changepreventers.divergentchange.bad;
+
+public enum DocumentFormat {
+    CSV,
+    JSON,
+    PLAIN;
+
+    /**
+     * Case-insensitive lookup; anything unknown is {@link #PLAIN}.
+     */
+    public static DocumentFormat of(String format) {
+        if ("CSV".equalsIgnoreCase(format)) {
+            return CSV;
+        } else if ("JSON".equalsIgnoreCase(format)) {
+            return JSON;
+        }
+        return PLAIN;
+    }
+}
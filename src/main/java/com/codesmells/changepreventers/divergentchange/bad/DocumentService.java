@@ -15,33 +15,101 @@
  */
 package com.codesmells.changepreventers.divergentchange.bad;
 
+import com.codesmells.common.mail.MailQueue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Objects;
 
 public class DocumentService {
+    private final DocumentArchive archive;
+    private final MailQueue mailQueue;
+
+    public DocumentService() {
+        this(null, null);
+    }
+
+    public DocumentService(DocumentArchive archive) {
+        this(archive, null);
+    }
+
+    /**
+     * @param archive where {@link #archive} stores documents, or null to only print them
+     * @param mailQueue queue {@link #email} submits to, or null to only print the mail
+     */
+    public DocumentService(DocumentArchive archive, MailQueue mailQueue) {
+        this.archive = archive;
+        this.mailQueue = mailQueue;
+    }
+
     public String generate(String type, Map<String, Object> data, String format) {
-        String content;
-        if ("invoice".equalsIgnoreCase(type)) {
-            content = "INVOICE:" + data.getOrDefault("id", "");
-        } else if ("receipt".equalsIgnoreCase(type)) {
-            content = "RECEIPT:" + data.getOrDefault("id", "");
-        } else {
-            content = "DOC:" + data.getOrDefault("id", "");
+        StringBuilder content = new StringBuilder(32);
+        DocumentWriter.append(content, DocumentType.of(type), DocumentFormat.of(format), data.getOrDefault("id", ""));
+        return content.toString();
+    }
+
+    /**
+     * Streams many documents to {@code out}, one per line, without building a
+     * String per document. Each document's type and format are read from its
+     * {@code "type"} and {@code "format"} entries, with the same fallbacks as
+     * {@link #generate}. The stream is flushed but not closed.
+     *
+     * @return number of documents written
+     */
+    public long generateAll(Iterator<Map<String, Object>> documents, OutputStream out) throws IOException {
+        DocumentWriter writer = new DocumentWriter(out);
+        while (documents.hasNext()) {
+            Map<String, Object> data = documents.next();
+            // Not cast: callers may put any value whose toString names the type or format
+            writer.write(DocumentType.of(Objects.toString(data.get("type"), null)),
+                DocumentFormat.of(Objects.toString(data.get("format"), null)), data.getOrDefault("id", ""));
         }
-        if ("CSV".equalsIgnoreCase(format)) {
-            content = content.replace(":", ",");
-        } else if ("JSON".equalsIgnoreCase(format)) {
-            content = "{\"doc\":\"" + content + "\"}";
-        } else {
-            content = content;
+        writer.flush();
+        return writer.getDocumentCount();
+    }
+
+    /**
+     * Like {@link #generateAll(Iterator, OutputStream)} with one type and
+     * format for the whole batch, resolved once.
+     */
+    public long generateAll(String type, String format, Iterator<Map<String, Object>> documents, OutputStream out)
+            throws IOException {
+        DocumentType documentType = DocumentType.of(type);
+        DocumentFormat documentFormat = DocumentFormat.of(format);
+        DocumentWriter writer = new DocumentWriter(out);
+        while (documents.hasNext()) {
+            writer.write(documentType, documentFormat, documents.next().getOrDefault("id", ""));
         }
-        return content;
+        writer.flush();
+        return writer.getDocumentCount();
     }
 
+    /**
+     * Queues the document for delivery; it is sent in the background.
+     */
     public void email(String recipient, String content) {
-        System.out.println("Email to " + recipient + ": " + content);
+        if (mailQueue == null) {
+            System.out.println("Email to " + recipient + ": " + content);
+            return;
+        }
+        mailQueue.submit(recipient, "Document", content);
     }
 
+    /**
+     * Archives the content under {@code target} as its document id.
+     */
     public void archive(String content, String target) {
-        System.out.println("Archive to " + target + ": " + content.hashCode());
+        if (archive == null) {
+            System.out.println("Archive to " + target + ": " + content.hashCode());
+            return;
+        }
+        try {
+            archive.put(target, content);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Archiving " + target + " failed", e);
+        }
     }
 }
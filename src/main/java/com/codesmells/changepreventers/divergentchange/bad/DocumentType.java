@@ -0,0 +1,32 @@
+/**
+ * Kinds of document {@link DocumentService} can generate.
+ */
+package com.codesmells.changepreventers.divergentchange.bad;
+
+public enum DocumentType {
+    INVOICE("INVOICE"),
+    RECEIPT("RECEIPT"),
+    DOC("DOC");
+
+    private final String label;
+
+    DocumentType(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Case-insensitive lookup; anything unknown is a generic {@link #DOC}.
+     */
+    public static DocumentType of(String type) {
+        if ("invoice".equalsIgnoreCase(type)) {
+            return INVOICE;
+        } else if ("receipt".equalsIgnoreCase(type)) {
+            return RECEIPT;
+        }
+        return DOC;
+    }
+}
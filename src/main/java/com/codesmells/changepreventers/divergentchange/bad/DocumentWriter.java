@@ -0,0 +1,192 @@
+/**
+ * Streams documents as UTF-8 straight into a reusable buffer, one per line.
+ *
+ * The constant parts of every (type, format) combination are encoded once
+ * up front; only the document id is encoded per document, character by
+ * character, so rendering creates no intermediate strings. Integer ids are
+ * written as digits without being converted to a String first. The buffer
+ * is handed to the output stream whenever it fills up. Not thread-safe; use
+ * one writer per stream.
+ */
+package com.codesmells.changepreventers.divergentchange.bad;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+public class DocumentWriter {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final String[][] PREFIXES = new String[DocumentType.values().length][DocumentFormat.values().length];
+    private static final String[] SUFFIXES = new String[DocumentFormat.values().length];
+    private static final byte[][][] ENCODED_PREFIXES = new byte[PREFIXES.length][][];
+    private static final byte[][] ENCODED_SUFFIXES = new byte[SUFFIXES.length][];
+
+    static {
+        for (DocumentType type : DocumentType.values()) {
+            ENCODED_PREFIXES[type.ordinal()] = new byte[DocumentFormat.values().length][];
+            for (DocumentFormat format : DocumentFormat.values()) {
+                String prefix;
+                switch (format) {
+                    case CSV:
+                        prefix = type.getLabel() + ",";
+                        break;
+                    case JSON:
+                        prefix = "{\"doc\":\"" + type.getLabel() + ":";
+                        break;
+                    default:
+                        prefix = type.getLabel() + ":";
+                }
+                PREFIXES[type.ordinal()][format.ordinal()] = prefix;
+                ENCODED_PREFIXES[type.ordinal()][format.ordinal()] = prefix.getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        for (DocumentFormat format : DocumentFormat.values()) {
+            SUFFIXES[format.ordinal()] = format == DocumentFormat.JSON ? "\"}" : "";
+            ENCODED_SUFFIXES[format.ordinal()] = SUFFIXES[format.ordinal()].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int position;
+    private long bytesWritten;
+    private long documents;
+
+    public DocumentWriter(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    public DocumentWriter(OutputStream out, int bufferSize) {
+        if (bufferSize < 16) {
+            throw new IllegalArgumentException("Buffer size must be at least 16 bytes");
+        }
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Writes one document followed by a newline.
+     */
+    public void write(DocumentType type, DocumentFormat format, Object id) throws IOException {
+        put(ENCODED_PREFIXES[type.ordinal()][format.ordinal()]);
+        boolean csv = format == DocumentFormat.CSV;
+        if ((id instanceof Integer || id instanceof Long) && ((Number) id).longValue() != Long.MIN_VALUE) {
+            putDigits(((Number) id).longValue());
+        } else if (id instanceof CharSequence) {
+            putChars((CharSequence) id, csv);
+        } else {
+            putChars(String.valueOf(id), csv);
+        }
+        put(ENCODED_SUFFIXES[format.ordinal()]);
+        ensure(1);
+        buffer[position++] = '\n';
+        documents++;
+    }
+
+    /**
+     * Hands everything buffered to the stream and flushes it.
+     */
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    public long getBytesWritten() { return bytesWritten + position; }
+    public long getDocumentCount() { return documents; }
+
+    /**
+     * Appends one document as text, exactly as {@link #write} encodes it but
+     * without the trailing newline.
+     */
+    static void append(StringBuilder target, DocumentType type, DocumentFormat format, Object id) {
+        target.append(PREFIXES[type.ordinal()][format.ordinal()]);
+        int start = target.length();
+        target.append(id);
+        if (format == DocumentFormat.CSV) {
+            for (int i = start; i < target.length(); i++) {
+                if (target.charAt(i) == ':') {
+                    target.setCharAt(i, ',');
+                }
+            }
+        }
+        target.append(SUFFIXES[format.ordinal()]);
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - position) {
+            drain();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                bytesWritten += bytes.length;
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void putDigits(long value) throws IOException {
+        ensure(20);
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int end = position + digitCount(value);
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position = end;
+    }
+
+    private void putChars(CharSequence chars, boolean csv) throws IOException {
+        int length = chars.length();
+        for (int i = 0; i < length; i++) {
+            char c = chars.charAt(i);
+            ensure(4);
+            if (c < 0x80) {
+                buffer[position++] = (byte) (csv && c == ':' ? ',' : c);
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xc0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+                buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                buffer[position++] = '?'; // unpaired surrogate, as String.getBytes does
+            } else {
+                buffer[position++] = (byte) (0xe0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    private static int digitCount(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.length - position < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            bytesWritten += position;
+            position = 0;
+        }
+    }
+}
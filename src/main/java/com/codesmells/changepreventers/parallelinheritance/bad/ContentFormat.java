@@ -0,0 +1,39 @@
+/**
+ * One document format for {@link ParsePipeline}: how to recognise it from
+ * its first bytes and how to validate it while it streams past.
+ *
+ * Unlike the Parser/Validator pair, a format is a single component;
+ * parsing itself is shared by all formats, so supporting a new format
+ * means registering one implementation with a {@link FormatRegistry}.
+ */
+package com.codesmells.changepreventers.parallelinheritance.bad;
+
+public interface ContentFormat {
+
+    /**
+     * Name the parsed output is prefixed with, such as {@code HTML}.
+     */
+    String getName();
+
+    /**
+     * Whether a document starting with these bytes is in this format.
+     *
+     * @param head the first bytes of the document; fewer than the whole
+     *             document only if it is longer than the pipeline's sniff window
+     */
+    boolean sniff(byte[] head, int length);
+
+    /**
+     * Starts validating one document.
+     */
+    Check newCheck();
+
+    /**
+     * Validation state of one document, fed every byte of it exactly once, in order.
+     */
+    interface Check {
+        void update(byte[] bytes, int offset, int length);
+
+        boolean isValid();
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * The formats {@link ParsePipeline} can recognise, tried in the order
+ * they were registered.
+ */
+package com.codesmells.changepreventers.parallelinheritance.bad;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class FormatRegistry {
+
+    private final List<ContentFormat> formats = new CopyOnWriteArrayList<>();
+
+    /**
+     * Registry with the built-in formats: PDF, then HTML.
+     */
+    public static FormatRegistry defaults() {
+        return new FormatRegistry().register(new PdfFormat()).register(new HtmlFormat());
+    }
+
+    public FormatRegistry register(ContentFormat format) {
+        if (format == null) {
+            throw new IllegalArgumentException("Format must not be null");
+        }
+        formats.add(format);
+        return this;
+    }
+
+    public List<ContentFormat> getFormats() {
+        return List.copyOf(formats);
+    }
+
+    /**
+     * First format that recognises the head of a document, or null if none does.
+     */
+    public ContentFormat detect(byte[] head, int length) {
+        for (ContentFormat format : formats) {
+            if (format.sniff(head, length)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
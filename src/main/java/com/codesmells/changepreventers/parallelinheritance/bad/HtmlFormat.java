@@ -0,0 +1,65 @@
+/**
+ * HTML documents: recognised by markup at the start, ignoring a byte
+ * order mark and whitespace, and valid when they contain {@code <html>}
+ * anywhere, as {@link HtmlValidator} requires.
+ */
+package com.codesmells.changepreventers.parallelinheritance.bad;
+
+public class HtmlFormat implements ContentFormat {
+
+    private static final byte[] MARKER = {'<', 'h', 't', 'm', 'l', '>'};
+
+    @Override
+    public String getName() {
+        return "HTML";
+    }
+
+    @Override
+    public boolean sniff(byte[] head, int length) {
+        int i = 0;
+        if (length >= 3 && head[0] == (byte) 0xEF && head[1] == (byte) 0xBB && head[2] == (byte) 0xBF) {
+            i = 3;
+        }
+        while (i < length && (head[i] & 0xFF) <= ' ') {
+            i++;
+        }
+        return i < length && head[i] == '<';
+    }
+
+    @Override
+    public Check newCheck() {
+        return new Check() {
+            // Length of the marker prefix the bytes so far end with; the
+            // marker has no other '<', so a mismatch restarts the match
+            private int matched;
+
+            @Override
+            public void update(byte[] bytes, int offset, int length) {
+                int i = offset;
+                int end = offset + length;
+                while (i < end && matched < MARKER.length) {
+                    if (matched == 0) {
+                        while (i < end && bytes[i] != '<') {
+                            i++;
+                        }
+                        if (i == end) {
+                            return;
+                        }
+                        matched = 1;
+                        i++;
+                    } else if (bytes[i] == MARKER[matched]) {
+                        matched++;
+                        i++;
+                    } else {
+                        matched = 0; // look at this byte again, it may start the marker
+                    }
+                }
+            }
+
+            @Override
+            public boolean isValid() {
+                return matched == MARKER.length;
+            }
+        };
+    }
+}
@@ -8,4 +8,9 @@ public class HtmlParser extends Parser {
     public String parse(String input) {
         return "HTML:" + input.trim();
     }
+
+    @Override
+    protected ContentFormat getFormat() {
+        return new HtmlFormat();
+    }
 }
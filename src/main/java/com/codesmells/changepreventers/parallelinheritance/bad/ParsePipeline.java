@@ -0,0 +1,286 @@
+/**
+ * Sniffs, validates and parses a document in a single pass over its bytes.
+ *
+ * The format is picked from the first bytes by a {@link FormatRegistry};
+ * every byte is then fed to the format's validation and copied to the
+ * output trimmed, as {@code <FORMAT>:<trimmed input>}, which is what the
+ * matching {@link Parser} returns. The input is never turned into a String,
+ * so documents of any size stream through a fixed buffer. Whitespace is
+ * trimmed on bytes: the characters String.trim removes are exactly the
+ * single UTF-8 bytes up to 0x20, and only a trailing run of them is held
+ * back until it is known whether more content follows.
+ *
+ * Because output is written as the input is read, a document found invalid
+ * at its end has already been written; check {@link ParseResult#isValid}
+ * before using the output. Not thread-safe; the registry may be shared.
+ */
+package com.codesmells.changepreventers.parallelinheritance.bad;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class ParsePipeline {
+
+    private static final int SNIFF_BYTES = 512;
+    private static final int CHUNK_BYTES = 64 * 1024;
+    private static final long MAX_WINDOW_BYTES = 1L << 30;
+
+    private final FormatRegistry registry;
+    private final long maxWindowBytes;
+    private final byte[] chunk = new byte[CHUNK_BYTES];
+    private byte[] pendingWhitespace = new byte[256];
+
+    public ParsePipeline() {
+        this(FormatRegistry.defaults());
+    }
+
+    public ParsePipeline(FormatRegistry registry) {
+        this(registry, MAX_WINDOW_BYTES);
+    }
+
+    /**
+     * @param maxWindowBytes largest part of a file mapped at once; small values let tests cross window boundaries
+     */
+    ParsePipeline(FormatRegistry registry, long maxWindowBytes) {
+        if (maxWindowBytes <= 0 || maxWindowBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Window size must be between 1 and " + Integer.MAX_VALUE + " bytes");
+        }
+        this.registry = registry;
+        this.maxWindowBytes = maxWindowBytes;
+    }
+
+    /**
+     * Parses the document the stream holds to its end.
+     *
+     * @throws IllegalArgumentException if no registered format recognises it
+     */
+    public ParseResult parse(InputStream in, OutputStream out) throws IOException {
+        int headLength = in.readNBytes(chunk, 0, SNIFF_BYTES);
+        Scan scan = start(chunk, headLength, out);
+        scan.accept(chunk, 0, headLength);
+        int n;
+        while ((n = in.read(chunk)) > 0) {
+            scan.accept(chunk, 0, n);
+        }
+        return scan.finish();
+    }
+
+    /**
+     * Parses the remaining bytes of a buffer, leaving its position unchanged.
+     * Heap buffers are read in place; others are copied through a chunk buffer.
+     *
+     * @throws IllegalArgumentException if no registered format recognises it
+     */
+    public ParseResult parse(ByteBuffer input, OutputStream out) throws IOException {
+        if (input.hasArray()) {
+            byte[] array = input.array();
+            int offset = input.arrayOffset() + input.position();
+            Scan scan = start(array, offset, input.remaining(), out);
+            scan.accept(array, offset, input.remaining());
+            return scan.finish();
+        }
+        ByteBuffer source = input.duplicate();
+        int headLength = Math.min(SNIFF_BYTES, source.remaining());
+        source.get(chunk, 0, headLength);
+        Scan scan = start(chunk, headLength, out);
+        scan.accept(chunk, 0, headLength);
+        feed(source, scan);
+        return scan.finish();
+    }
+
+    /**
+     * Parses a file of any size without loading it onto the heap, picking
+     * its format from the first bytes.
+     *
+     * @throws IllegalArgumentException if no registered format recognises it
+     */
+    public ParseResult parse(Path file, OutputStream out) throws IOException {
+        return parse(file, null, out);
+    }
+
+    /**
+     * Parses a file of any size without loading it onto the heap.
+     *
+     * The file is memory-mapped in windows of up to 1 GB, so files beyond
+     * the 2 GB limit of a single mapping are read window by window. The
+     * header is sniffed and the document validated on the mapped bytes,
+     * and output is written as each window is read. The end of the content
+     * is found first by reading back from the end of the file, so trailing
+     * whitespace is never held back, however long it is.
+     *
+     * @param format format of the file, or null to sniff it from the first bytes
+     * @throws IllegalArgumentException if the format is null and no registered format recognises the file
+     */
+    public ParseResult parse(Path file, ContentFormat format, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long contentEnd = contentEnd(channel, size);
+            Scan scan;
+            if (format == null) {
+                // Read directly rather than from the first window, which may be shorter than the head
+                int headLength = (int) Math.min(SNIFF_BYTES, size);
+                read(channel, 0, headLength);
+                scan = start(chunk, headLength, out);
+            } else {
+                scan = new Scan(format, out);
+            }
+            scan.contentEnd = contentEnd;
+            for (long position = 0; position < size; ) {
+                long length = Math.min(maxWindowBytes, size - position);
+                feed(channel.map(FileChannel.MapMode.READ_ONLY, position, length), scan);
+                position += length;
+            }
+            return scan.finish();
+        }
+    }
+
+    /**
+     * Offset just past the last byte of the file that is not whitespace.
+     */
+    private long contentEnd(FileChannel channel, long size) throws IOException {
+        long end = size;
+        while (end > 0) {
+            int length = (int) Math.min(chunk.length, end);
+            read(channel, end - length, length);
+            for (int i = length - 1; i >= 0; i--) {
+                if ((chunk[i] & 0xFF) > ' ') {
+                    return end - length + i + 1;
+                }
+            }
+            end -= length;
+        }
+        return 0;
+    }
+
+    /**
+     * Fills the start of the chunk buffer from the file.
+     */
+    private void read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer target = ByteBuffer.wrap(chunk, 0, length);
+        while (target.hasRemaining()) {
+            if (channel.read(target, position + target.position()) < 0) {
+                throw new EOFException("File shrank while being parsed");
+            }
+        }
+    }
+
+    /**
+     * Copies the rest of a buffer through the chunk buffer into a scan.
+     */
+    private void feed(ByteBuffer source, Scan scan) throws IOException {
+        while (source.hasRemaining()) {
+            int n = Math.min(chunk.length, source.remaining());
+            source.get(chunk, 0, n);
+            scan.accept(chunk, 0, n);
+        }
+    }
+
+    private Scan start(byte[] head, int length, OutputStream out) throws IOException {
+        return start(head, 0, length, out);
+    }
+
+    private Scan start(byte[] bytes, int offset, int length, OutputStream out) throws IOException {
+        byte[] head = bytes;
+        int headLength = Math.min(SNIFF_BYTES, length);
+        if (offset != 0) {
+            head = new byte[headLength];
+            System.arraycopy(bytes, offset, head, 0, headLength);
+        }
+        ContentFormat format = registry.detect(head, headLength);
+        if (format == null) {
+            throw new IllegalArgumentException("Unrecognized document format");
+        }
+        return new Scan(format, out);
+    }
+
+    /**
+     * State of one document while it streams through.
+     */
+    private final class Scan {
+        private final ContentFormat format;
+        private final ContentFormat.Check check;
+        private final OutputStream out;
+        private boolean leading = true;
+        private int pendingLength;
+        // Offset just past the last content byte when known up front, else -1
+        private long contentEnd = -1;
+        private long bytesRead;
+        private long bytesWritten;
+
+        Scan(ContentFormat format, OutputStream out) throws IOException {
+            this.format = format;
+            this.check = format.newCheck();
+            this.out = out;
+            byte[] prefix = (format.getName() + ":").getBytes(StandardCharsets.UTF_8);
+            write(prefix, 0, prefix.length);
+        }
+
+        void accept(byte[] bytes, int offset, int length) throws IOException {
+            check.update(bytes, offset, length);
+            long chunkStart = bytesRead;
+            bytesRead += length;
+            int start = offset;
+            int end = offset + length;
+            if (leading) {
+                while (start < end && (bytes[start] & 0xFF) <= ' ') {
+                    start++;
+                }
+                if (start == end) {
+                    return;
+                }
+                leading = false;
+            }
+            if (contentEnd >= 0) {
+                long stop = Math.min(end, offset + Math.max(0, contentEnd - chunkStart));
+                if (stop > start) {
+                    write(bytes, start, (int) stop - start);
+                }
+                return;
+            }
+            int last = end - 1;
+            while (last >= start && (bytes[last] & 0xFF) <= ' ') {
+                last--;
+            }
+            if (last >= start) {
+                if (pendingLength > 0) {
+                    write(pendingWhitespace, 0, pendingLength);
+                    pendingLength = 0;
+                }
+                write(bytes, start, last + 1 - start);
+                start = last + 1;
+            }
+            holdWhitespace(bytes, start, end - start);
+        }
+
+        private void holdWhitespace(byte[] bytes, int offset, int length) {
+            if (pendingLength + length > pendingWhitespace.length) {
+                byte[] larger = new byte[Math.max(pendingWhitespace.length * 2, pendingLength + length)];
+                System.arraycopy(pendingWhitespace, 0, larger, 0, pendingLength);
+                pendingWhitespace = larger;
+            }
+            System.arraycopy(bytes, offset, pendingWhitespace, pendingLength, length);
+            pendingLength += length;
+        }
+
+        private void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            bytesWritten += length;
+        }
+
+        /**
+         * Drops the trailing whitespace and reports the outcome.
+         */
+        ParseResult finish() throws IOException {
+            pendingLength = 0;
+            out.flush();
+            return new ParseResult(format.getName(), check.isValid(), bytesRead, bytesWritten);
+        }
+    }
+}
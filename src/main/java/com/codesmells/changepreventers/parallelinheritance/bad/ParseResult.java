@@ -0,0 +1,28 @@
+/**
+ * Outcome of parsing one document with {@link ParsePipeline}.
+ */
+package com.codesmells.changepreventers.parallelinheritance.bad;
+
+public class ParseResult {
+    private final String format;
+    private final boolean valid;
+    private final long bytesRead;
+    private final long bytesWritten;
+
+    public ParseResult(String format, boolean valid, long bytesRead, long bytesWritten) {
+        this.format = format;
+        this.valid = valid;
+        this.bytesRead = bytesRead;
+        this.bytesWritten = bytesWritten;
+    }
+
+    public String getFormat() { return format; }
+    public boolean isValid() { return valid; }
+    public long getBytesRead() { return bytesRead; }
+    public long getBytesWritten() { return bytesWritten; }
+
+    @Override
+    public String toString() {
+        return format + (valid ? " valid, " : " invalid, ") + bytesRead + " bytes read, " + bytesWritten + " written";
+    }
+}
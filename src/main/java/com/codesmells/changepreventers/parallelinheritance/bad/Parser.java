@@ -10,6 +10,20 @@
  */
 package com.codesmells.changepreventers.parallelinheritance.bad;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
 public abstract class Parser {
     public abstract String parse(String input);
+
+    /**
+     * Parses a file too large for {@link #parse(String)} by memory-mapping it,
+     * writing the same output incrementally and validating it on the way.
+     */
+    public ParseResult parse(Path file, OutputStream out) throws IOException {
+        return new ParsePipeline().parse(file, getFormat(), out);
+    }
+
+    protected abstract ContentFormat getFormat();
 }
@@ -0,0 +1,49 @@
+/**
+ * PDF documents: valid when they start with {@code %PDF}, as
+ * {@link PdfValidator} requires.
+ */
+package com.codesmells.changepreventers.parallelinheritance.bad;
+
+public class PdfFormat implements ContentFormat {
+
+    private static final byte[] HEADER = {'%', 'P', 'D', 'F'};
+
+    @Override
+    public String getName() {
+        return "PDF";
+    }
+
+    @Override
+    public boolean sniff(byte[] head, int length) {
+        if (length < HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; i++) {
+            if (head[i] != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Check newCheck() {
+        return new Check() {
+            private int matched;
+            private boolean mismatch;
+
+            @Override
+            public void update(byte[] bytes, int offset, int length) {
+                // Only the header matters; the rest of the document is not looked at
+                for (int i = offset; i < offset + length && matched < HEADER.length && !mismatch; i++) {
+                    mismatch = bytes[i] != HEADER[matched++];
+                }
+            }
+
+            @Override
+            public boolean isValid() {
+                return matched == HEADER.length && !mismatch;
+            }
+        };
+    }
+}
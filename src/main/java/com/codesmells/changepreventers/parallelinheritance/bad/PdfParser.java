@@ -8,4 +8,9 @@ public class PdfParser extends Parser {
     public String parse(String input) {
         return "PDF:" + input.trim();
     }
+
+    @Override
+    protected ContentFormat getFormat() {
+        return new PdfFormat();
+    }
 }
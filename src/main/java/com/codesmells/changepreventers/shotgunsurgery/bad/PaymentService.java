@@ -8,15 +8,28 @@
 package com.codesmells.changepreventers.shotgunsurgery.bad;
 
 public class PaymentService {
+
+    private final TaxService taxService;
+
+    public PaymentService() {
+        this(TaxService.getDefault());
+    }
+
+    public PaymentService(TaxService taxService) {
+        this.taxService = taxService;
+    }
+
     public double applyTax(double amount, String region) {
-        double rate;
-        if ("NE".equals(region)) {
-            rate = 0.088;
-        } else if ("WC".equals(region)) {
-            rate = 0.093;
-        } else {
-            rate = 0.07;
-        }
-        return amount * (1 + rate);
+        return taxService.applyTax(amount, region);
+    }
+
+    /**
+     * Applies tax to a batch of amounts with pre-resolved region codes, see
+     * {@link TaxService#regionCodes}.
+     *
+     * @return version of the tax table that was applied
+     */
+    public long applyTax(double[] amounts, byte[] regions, double[] out) {
+        return taxService.applyTax(amounts, regions, out);
     }
 }
@@ -7,15 +7,28 @@
 package com.codesmells.changepreventers.shotgunsurgery.bad;
 
 public class ShippingService {
+
+    private final TaxService taxService;
+
+    public ShippingService() {
+        this(TaxService.getDefault());
+    }
+
+    public ShippingService(TaxService taxService) {
+        this.taxService = taxService;
+    }
+
     public double applyTax(double amount, String region) {
-        double rate;
-        if ("NE".equals(region)) {
-            rate = 0.088;
-        } else if ("WC".equals(region)) {
-            rate = 0.093;
-        } else {
-            rate = 0.07;
-        }
-        return amount * (1 + rate);
+        return taxService.applyTax(amount, region);
+    }
+
+    /**
+     * Applies tax to a batch of amounts with pre-resolved region codes, see
+     * {@link TaxService#regionCodes}.
+     *
+     * @return version of the tax table that was applied
+     */
+    public long applyTax(double[] amounts, byte[] regions, double[] out) {
+        return taxService.applyTax(amounts, regions, out);
     }
 }
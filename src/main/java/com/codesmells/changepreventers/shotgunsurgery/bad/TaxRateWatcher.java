@@ -0,0 +1,143 @@
+/**
+ * Loads tax rates from a properties file into a {@link TaxService} and
+ * reloads them whenever the file changes, so a rate change needs no redeploy.
+ *
+ * The file maps region codes to rates, plus the reserved key
+ * {@code default} for every other region:
+ * <pre>
+ * default=0.07
+ * NE=0.088
+ * WC=0.093
+ * </pre>
+ * A file that fails to parse is ignored and the previous rates stay in
+ * force; the failure is available from {@link #getLastError()}. Changes are
+ * picked up after a short settle delay so a file still being written is not
+ * read half-way; replacing the file with an atomic rename is safest.
+ */
+package com.codesmells.changepreventers.shotgunsurgery.bad;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TaxRateWatcher implements AutoCloseable {
+
+    static final String DEFAULT_KEY = "default";
+
+    private static final long SETTLE_MILLIS = 100;
+
+    private final TaxService taxService;
+    private final Path file;
+    private final WatchService watchService;
+    private final Thread watcher;
+    private final AtomicLong reloads = new AtomicLong();
+    private volatile Exception lastError;
+
+    /**
+     * Loads the file once and starts watching it.
+     *
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file contains invalid rates
+     */
+    public TaxRateWatcher(TaxService taxService, Path file) throws IOException {
+        this.taxService = taxService;
+        this.file = file.toAbsolutePath();
+        reload();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        // Editors often replace the file instead of writing it in place, so watch the directory
+        this.file.getParent().register(watchService,
+            StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.watcher = new Thread(this::watchLoop, "tax-rate-watcher");
+        this.watcher.setDaemon(true);
+        this.watcher.start();
+    }
+
+    /**
+     * Reads the file and publishes its rates as a new table version.
+     */
+    public TaxTable reload() throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        String defaultRate = properties.getProperty(DEFAULT_KEY);
+        if (defaultRate == null) {
+            throw new IllegalArgumentException("Tax rate file has no '" + DEFAULT_KEY + "' rate: " + file);
+        }
+        Map<String, Double> regionRates = new LinkedHashMap<>();
+        for (String region : properties.stringPropertyNames()) {
+            if (!region.equals(DEFAULT_KEY)) {
+                regionRates.put(region, parseRate(region, properties.getProperty(region)));
+            }
+        }
+        TaxTable table = taxService.update(regionRates, parseRate(DEFAULT_KEY, defaultRate));
+        reloads.incrementAndGet();
+        return table;
+    }
+
+    public long getReloadCount() { return reloads.get(); }
+
+    /**
+     * Why the most recent reload was rejected, or null.
+     */
+    public Exception getLastError() { return lastError; }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Thread.sleep(SETTLE_MILLIS);
+                boolean changed = false;
+                // Coalesce the burst of events a single save usually produces
+                for (; key != null; key = watchService.poll()) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        Object context = event.context();
+                        changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || (context instanceof Path && file.getFileName().equals(context));
+                    }
+                    key.reset();
+                }
+                if (changed) {
+                    reloadSafely();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    private void reloadSafely() {
+        try {
+            reload();
+            lastError = null;
+        } catch (IOException | RuntimeException e) {
+            lastError = e;
+        }
+    }
+
+    private static double parseRate(String region, String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid tax rate for " + region + ": " + value, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        watcher.interrupt();
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * Single home for the tax rules that PaymentService, ShippingService and
+ * InvoiceService used to duplicate.
+ *
+ * Region names are resolved once to small codes; the rate lookup is then an
+ * array read, and {@link #applyTax(double[], byte[], double[])} prices whole
+ * invoice runs in a tight branch-free loop.
+ *
+ * Rates live in an immutable {@link TaxTable} published through one volatile
+ * field, so {@link #update} (e.g. from a {@link TaxRateWatcher}) swaps them
+ * without readers ever locking. Each call works on a single snapshot. Region
+ * codes are never reassigned, so codes resolved earlier stay valid after a
+ * reload; a region dropped from the rates falls back to the default rate.
+ */
+package com.codesmells.changepreventers.shotgunsurgery.bad;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TaxService {
+
+    /** Code of every region without its own rate. */
+    public static final byte DEFAULT_REGION = 0;
+
+    private static final int MAX_REGIONS = 255;
+
+    private static final TaxService DEFAULT = new TaxService(standardRates(), 0.07);
+
+    private final Map<String, Byte> regionCodes = new ConcurrentHashMap<>();
+    private volatile TaxTable table;
+    private long version;
+
+    /**
+     * @param regionRates tax rate per region, e.g. 0.088 for 8.8%; at most 255 regions
+     * @param defaultRate rate for every other region
+     */
+    public TaxService(Map<String, Double> regionRates, double defaultRate) {
+        update(regionRates, defaultRate);
+    }
+
+    /**
+     * The rates that used to be hard-coded in each service.
+     */
+    public static TaxService getDefault() {
+        return DEFAULT;
+    }
+
+    static Map<String, Double> standardRates() {
+        Map<String, Double> rates = new LinkedHashMap<>();
+        rates.put("NE", 0.088);
+        rates.put("WC", 0.093);
+        return rates;
+    }
+
+    /**
+     * Publishes a new table; calls already in progress finish on the old one.
+     *
+     * @return the published table
+     * @throws IllegalArgumentException if a rate is negative or not finite, or there are too many regions
+     */
+    public synchronized TaxTable update(Map<String, Double> regionRates, double defaultRate) {
+        requireValidRate(defaultRate);
+        regionRates.values().forEach(TaxService::requireValidRate);
+        double[] multipliers = new double[256];
+        Arrays.fill(multipliers, 1 + defaultRate);
+        for (Map.Entry<String, Double> entry : regionRates.entrySet()) {
+            multipliers[codeFor(entry.getKey()) & 0xff] = 1 + entry.getValue();
+        }
+        TaxTable updated = new TaxTable(++version, multipliers);
+        table = updated;
+        return updated;
+    }
+
+    public TaxTable getTable() {
+        return table;
+    }
+
+    public byte regionCode(String region) {
+        Byte code = region != null ? regionCodes.get(region) : null;
+        return code != null ? code : DEFAULT_REGION;
+    }
+
+    public byte[] regionCodes(String[] regions) {
+        byte[] codes = new byte[regions.length];
+        for (int i = 0; i < regions.length; i++) {
+            codes[i] = regionCode(regions[i]);
+        }
+        return codes;
+    }
+
+    public double rate(byte region) {
+        return table.rate(region);
+    }
+
+    /**
+     * Amount including tax for the region.
+     */
+    public double applyTax(double amount, String region) {
+        return applyTax(amount, regionCode(region));
+    }
+
+    public double applyTax(double amount, byte region) {
+        return amount * table.multipliers()[region & 0xff];
+    }
+
+    /**
+     * Amount including tax, tagged with the table version that was used.
+     */
+    public TaxedAmount tax(double amount, String region) {
+        TaxTable current = table;
+        return new TaxedAmount(amount * current.multipliers()[regionCode(region) & 0xff], current.getVersion());
+    }
+
+    /**
+     * Writes {@code amounts[i]} including tax for {@code regions[i]} to
+     * {@code out[i]}. Same results as the scalar method; the loop has no
+     * branches, so the JIT can unroll it freely.
+     *
+     * @return version of the table the whole batch was taxed with
+     */
+    public long applyTax(double[] amounts, byte[] regions, double[] out) {
+        int length = amounts.length;
+        if (regions.length != length || out.length < length) {
+            throw new IllegalArgumentException("Amounts, regions and output must have matching lengths");
+        }
+        TaxTable current = table;
+        double[] multipliers = current.multipliers();
+        for (int i = 0; i < length; i++) {
+            out[i] = amounts[i] * multipliers[regions[i] & 0xff];
+        }
+        return current.getVersion();
+    }
+
+    private byte codeFor(String region) {
+        Byte code = regionCodes.get(region);
+        if (code != null) {
+            return code;
+        }
+        if (regionCodes.size() == MAX_REGIONS) {
+            throw new IllegalArgumentException("At most " + MAX_REGIONS + " tax regions are supported");
+        }
+        byte assigned = (byte) (regionCodes.size() + 1);
+        regionCodes.put(region, assigned);
+        return assigned;
+    }
+
+    private static void requireValidRate(double rate) {
+        if (!(rate >= 0) || Double.isInfinite(rate)) {
+            throw new IllegalArgumentException("Tax rate must be a non-negative number: " + rate);
+        }
+    }
+}
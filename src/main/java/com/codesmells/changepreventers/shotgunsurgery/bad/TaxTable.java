@@ -0,0 +1,28 @@
+/**
+ * Immutable, versioned snapshot of tax rates published by {@link TaxService}.
+ */
+package com.codesmells.changepreventers.shotgunsurgery.bad;
+
+public final class TaxTable {
+
+    private final long version;
+    // 1 + rate, indexed by the unsigned region code
+    private final double[] multipliers;
+
+    TaxTable(long version, double[] multipliers) {
+        this.version = version;
+        this.multipliers = multipliers;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public double rate(byte region) {
+        return multipliers[region & 0xff] - 1;
+    }
+
+    double[] multipliers() {
+        return multipliers;
+    }
+}
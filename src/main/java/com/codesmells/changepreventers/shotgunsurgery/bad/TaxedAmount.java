@@ -0,0 +1,19 @@
+/**
+ * Amount including tax, tagged with the version of the tax table used, so
+ * every computed tax can be traced back to the rates in force.
+ */
+package com.codesmells.changepreventers.shotgunsurgery.bad;
+
+public final class TaxedAmount {
+
+    private final double amount;
+    private final long tableVersion;
+
+    public TaxedAmount(double amount, long tableVersion) {
+        this.amount = amount;
+        this.tableVersion = tableVersion;
+    }
+
+    public double getAmount() { return amount; }
+    public long getTableVersion() { return tableVersion; }
+}
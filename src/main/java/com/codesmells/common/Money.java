@@ -0,0 +1,162 @@
+package com.codesmells.common;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * Exact monetary amount stored as a {@code long} count of the currency's minor
+ * units (cents for USD).
+ *
+ * Arithmetic is exact and throws {@link ArithmeticException} on overflow
+ * instead of wrapping. Rates (tax, discount, fees) are expressed in parts per
+ * million and applied with banker's rounding (round half to even), so
+ * repeated rounding does not drift in one direction. The static
+ * {@code long}-based helpers let hot loops work on raw minor units without
+ * allocating a Money per step.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final Currency USD = Currency.getInstance("USD");
+
+    /** Scale of rates: a rate of 1.0 is {@value} parts per million. */
+    public static final long RATE_SCALE = 1_000_000L;
+
+    private final long minorUnits;
+    private final Currency currency;
+
+    private Money(long minorUnits, Currency currency) {
+        this.minorUnits = minorUnits;
+        this.currency = Objects.requireNonNull(currency, "currency");
+    }
+
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    public static Money of(BigDecimal amount, Currency currency) {
+        return new Money(toMinorUnits(amount, currency), currency);
+    }
+
+    /**
+     * Converts a decimal amount such as {@code 29.99}, rounding half to even
+     * to the currency's minor unit.
+     */
+    public static Money of(double amount, Currency currency) {
+        return of(BigDecimal.valueOf(amount), currency);
+    }
+
+    public static Money zero(Currency currency) {
+        return new Money(0, currency);
+    }
+
+    public long getMinorUnits() { return minorUnits; }
+    public Currency getCurrency() { return currency; }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money times(long quantity) {
+        return new Money(Math.multiplyExact(minorUnits, quantity), currency);
+    }
+
+    /**
+     * Applies a rate in parts per million, e.g. {@code applyRate(87_500)} for 8.75%.
+     */
+    public Money applyRate(long ratePpm) {
+        return new Money(applyRate(minorUnits, ratePpm), currency);
+    }
+
+    public boolean isNegative() { return minorUnits < 0; }
+    public boolean isPositive() { return minorUnits > 0; }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, currency.getDefaultFractionDigits());
+    }
+
+    /**
+     * Amount without currency, e.g. {@code 79.98}.
+     */
+    public String toPlainString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Money)) return false;
+        Money other = (Money) o;
+        return minorUnits == other.minorUnits && currency.equals(other.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits) * 31 + currency.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toPlainString() + " " + currency.getCurrencyCode();
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + other.currency);
+        }
+    }
+
+    // Allocation-free helpers on raw minor units
+
+    /**
+     * {@code minorUnits * ratePpm / 1,000,000}, rounded half to even.
+     *
+     * @throws ArithmeticException if the intermediate product overflows
+     */
+    public static long applyRate(long minorUnits, long ratePpm) {
+        return divideHalfEven(Math.multiplyExact(minorUnits, ratePpm), RATE_SCALE);
+    }
+
+    /**
+     * Converts a rate such as {@code 0.0875} to parts per million.
+     */
+    public static long toRatePpm(double rate) {
+        return Math.round(rate * RATE_SCALE);
+    }
+
+    public static long toMinorUnits(BigDecimal amount, Currency currency) {
+        return amount.setScale(currency.getDefaultFractionDigits(), RoundingMode.HALF_EVEN)
+            .unscaledValue().longValueExact();
+    }
+
+    public static long toMinorUnits(double amount, Currency currency) {
+        return toMinorUnits(BigDecimal.valueOf(amount), currency);
+    }
+
+    static long divideHalfEven(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+        long twiceRemainder = Math.abs(remainder) * 2;
+        long direction = (dividend < 0) == (divisor < 0) ? 1 : -1;
+        if (twiceRemainder > Math.abs(divisor) || (twiceRemainder == Math.abs(divisor) && (quotient & 1) != 0)) {
+            return quotient + direction;
+        }
+        return quotient;
+    }
+}
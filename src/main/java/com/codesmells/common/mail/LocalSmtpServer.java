@@ -0,0 +1,160 @@
+package com.codesmells.common.mail;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal SMTP server on the loopback interface that accepts and counts
+ * mail instead of delivering it. Stand-in for a real relay when running
+ * locally or measuring the mail queue.
+ *
+ * Domains can be marked unavailable, which makes the server answer
+ * {@code RCPT} for them with a temporary failure, to exercise retries.
+ */
+public class LocalSmtpServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final Thread acceptor;
+    private final Set<String> unavailableDomains = ConcurrentHashMap.newKeySet();
+    private final Map<String, AtomicLong> receivedByDomain = new ConcurrentHashMap<>();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+
+    /**
+     * Starts listening on a free port; see {@link #getPort}.
+     */
+    public LocalSmtpServer() throws IOException {
+        this.serverSocket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        this.acceptor = new Thread(this::acceptLoop, "local-smtp-acceptor");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    public int getPort() { return serverSocket.getLocalPort(); }
+    public long getReceivedCount() { return received.get(); }
+    public long getConnectionCount() { return connections.get(); }
+
+    public long getReceivedCount(String domain) {
+        AtomicLong count = receivedByDomain.get(domain.toLowerCase(Locale.ROOT));
+        return count == null ? 0 : count.get();
+    }
+
+    public void setUnavailable(String domain, boolean unavailable) {
+        if (unavailable) {
+            unavailableDomains.add(domain.toLowerCase(Locale.ROOT));
+        } else {
+            unavailableDomains.remove(domain.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                Thread session = new Thread(() -> serve(socket), "local-smtp-session");
+                session.setDaemon(true);
+                session.start();
+            } catch (IOException e) {
+                // Closed
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8));
+            reply(out, "220 localhost ready");
+            String domain = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase(Locale.ROOT) : line;
+                switch (command) {
+                    case "EHLO":
+                    case "HELO":
+                    case "NOOP":
+                        replyBuffered(out, "250 OK");
+                        break;
+                    case "MAIL":
+                    case "RSET":
+                        domain = null;
+                        replyBuffered(out, "250 OK");
+                        break;
+                    case "RCPT":
+                        String rcpt = domainOf(line);
+                        if (rcpt == null) {
+                            replyBuffered(out, "501 Bad recipient");
+                        } else if (unavailableDomains.contains(rcpt)) {
+                            replyBuffered(out, "451 Domain temporarily unavailable");
+                        } else {
+                            domain = rcpt;
+                            replyBuffered(out, "250 OK");
+                        }
+                        break;
+                    case "DATA":
+                        if (domain == null) {
+                            replyBuffered(out, "554 No valid recipients");
+                            break;
+                        }
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // Discard the message
+                        }
+                        received.incrementAndGet();
+                        receivedByDomain.computeIfAbsent(domain, key -> new AtomicLong()).incrementAndGet();
+                        domain = null;
+                        replyBuffered(out, "250 Queued");
+                        break;
+                    case "QUIT":
+                        reply(out, "221 Bye");
+                        return;
+                    default:
+                        replyBuffered(out, "500 Unknown command");
+                }
+                if (!in.ready()) {
+                    out.flush(); // nothing more pipelined, so the client is waiting for these replies
+                }
+            }
+        } catch (IOException e) {
+            // Client went away
+        }
+    }
+
+    private static String domainOf(String rcptLine) {
+        int at = rcptLine.lastIndexOf('@');
+        int end = rcptLine.lastIndexOf('>');
+        if (at < 0 || end < at) {
+            return null;
+        }
+        return rcptLine.substring(at + 1, end).toLowerCase(Locale.ROOT);
+    }
+
+    private static void reply(Writer out, String line) throws IOException {
+        replyBuffered(out, line);
+        out.flush();
+    }
+
+    private static void replyBuffered(Writer out, String line) throws IOException {
+        out.write(line);
+        out.write("\r\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+}
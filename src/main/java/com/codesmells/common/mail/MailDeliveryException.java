@@ -0,0 +1,25 @@
+package com.codesmells.common.mail;
+
+import java.io.IOException;
+
+/**
+ * A mail server refused a message. Permanent refusals (SMTP 5xx) are not
+ * retried; temporary ones (4xx) are.
+ */
+public class MailDeliveryException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int replyCode;
+
+    public MailDeliveryException(int replyCode, String message) {
+        super(message);
+        this.replyCode = replyCode;
+    }
+
+    public int getReplyCode() { return replyCode; }
+
+    public boolean isPermanent() {
+        return replyCode >= 500;
+    }
+}
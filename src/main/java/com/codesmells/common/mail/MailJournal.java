@@ -0,0 +1,254 @@
+package com.codesmells.common.mail;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk record of the mail queue, so queued messages survive a restart.
+ *
+ * Every queued message is appended as an ENQUEUED record and every message
+ * that has been delivered or given up on as a DONE record; replaying the
+ * file yields the messages still pending. Appends go to an in-memory buffer
+ * that {@link #sync} writes and fsyncs, so a crash loses at most what was
+ * queued since the last sync. Once most records are obsolete the file is
+ * rewritten with only the pending messages.
+ *
+ * Each record is {@code [int length][int crc32][type][long id]}, followed
+ * for ENQUEUED by recipient, subject and body as an int length plus UTF-8.
+ */
+final class MailJournal implements AutoCloseable {
+
+    private static final byte ENQUEUED = 1;
+    private static final byte DONE = 2;
+    private static final int HEADER_BYTES = 8;
+    private static final int MIN_COMPACTION_RECORDS = 10_000;
+
+    private final Path file;
+    private final Object writeLock = new Object();
+    private FileChannel channel;
+
+    // Guarded by this
+    private final Map<Long, MailMessage> pending;
+    private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    private ByteBuffer spare = ByteBuffer.allocate(1 << 16);
+    private final CRC32 crc = new CRC32();
+    private long nextId;
+    private long obsoleteRecords;
+
+    private MailJournal(Path file, Map<Long, MailMessage> pending, long nextId, long obsoleteRecords) throws IOException {
+        this.file = file;
+        this.pending = pending;
+        this.nextId = nextId;
+        this.obsoleteRecords = obsoleteRecords;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Opens the journal, replaying it and cutting off a torn record at the end.
+     */
+    static MailJournal open(Path file) throws IOException {
+        Map<Long, MailMessage> pending = new LinkedHashMap<>();
+        long nextId = 1;
+        long records = 0;
+        long valid = 0;
+        if (Files.exists(file)) {
+            long size = Files.size(file);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+                CRC32 checksum = new CRC32();
+                while (true) {
+                    byte[] body;
+                    int expected;
+                    try {
+                        int length = in.readInt();
+                        expected = in.readInt();
+                        // A length past the end of the file is a torn or garbled header, not a record to allocate for
+                        if (length < 9 || length > size - valid - HEADER_BYTES) {
+                            break;
+                        }
+                        body = readBody(in, length);
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    checksum.reset();
+                    checksum.update(body);
+                    if ((int) checksum.getValue() != expected) {
+                        break;
+                    }
+                    ByteBuffer record = ByteBuffer.wrap(body);
+                    byte type = record.get();
+                    long id = record.getLong();
+                    if (type == ENQUEUED) {
+                        pending.put(id, new MailMessage(getString(record), getString(record), getString(record)));
+                    } else {
+                        pending.remove(id);
+                    }
+                    nextId = Math.max(nextId, id + 1);
+                    records++;
+                    valid += HEADER_BYTES + body.length;
+                }
+            }
+            if (valid < size) {
+                try (FileChannel torn = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    torn.truncate(valid);
+                }
+            }
+        }
+        return new MailJournal(file, pending, nextId, records - pending.size());
+    }
+
+    /**
+     * Messages queued and not done yet, in the order they were queued.
+     */
+    synchronized Map<Long, MailMessage> getPending() {
+        return new LinkedHashMap<>(pending);
+    }
+
+    /**
+     * @return id of the queued message
+     */
+    synchronized long appendEnqueued(MailMessage message) {
+        long id = nextId++;
+        putEnqueued(id, message);
+        pending.put(id, message);
+        return id;
+    }
+
+    synchronized void appendDone(long id) {
+        int start = begin(9);
+        buffer.put(DONE).putLong(id);
+        end(start);
+        pending.remove(id);
+        obsoleteRecords += 2;
+    }
+
+    /**
+     * Writes and fsyncs everything appended so far, then rewrites the file
+     * if most of it is obsolete.
+     */
+    void sync() throws IOException {
+        synchronized (writeLock) {
+            ByteBuffer batch;
+            synchronized (this) {
+                batch = buffer;
+                buffer = spare;
+                spare = batch;
+            }
+            if (batch.position() > 0) {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(false);
+            }
+            batch.clear();
+            compactIfMostlyObsolete();
+        }
+    }
+
+    /**
+     * Replaces the file with one holding only the pending messages. Appends
+     * wait meanwhile. Caller holds writeLock and has just synced.
+     */
+    private void compactIfMostlyObsolete() throws IOException {
+        synchronized (this) {
+            if (obsoleteRecords < MIN_COMPACTION_RECORDS || obsoleteRecords < pending.size() || buffer.position() > 0) {
+                return;
+            }
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream data = new BufferedOutputStream(Channels.newOutputStream(out), 1 << 16);
+                for (Map.Entry<Long, MailMessage> entry : pending.entrySet()) {
+                    buffer.clear();
+                    putEnqueued(entry.getKey(), entry.getValue());
+                    data.write(buffer.array(), 0, buffer.position());
+                }
+                buffer.clear();
+                data.flush();
+                out.force(false);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            channel.close();
+            channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            obsoleteRecords = 0;
+        }
+    }
+
+    private void putEnqueued(long id, MailMessage message) {
+        byte[] recipient = message.getRecipient().getBytes(StandardCharsets.UTF_8);
+        byte[] subject = message.getSubject().getBytes(StandardCharsets.UTF_8);
+        byte[] body = message.getBody().getBytes(StandardCharsets.UTF_8);
+        int start = begin(9 + 12 + recipient.length + subject.length + body.length);
+        buffer.put(ENQUEUED).putLong(id);
+        buffer.putInt(recipient.length).put(recipient);
+        buffer.putInt(subject.length).put(subject);
+        buffer.putInt(body.length).put(body);
+        end(start);
+    }
+
+    private int begin(int bodyLength) {
+        if (buffer.remaining() < HEADER_BYTES + bodyLength) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + HEADER_BYTES + bodyLength));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        int start = buffer.position();
+        buffer.position(start + HEADER_BYTES);
+        return start;
+    }
+
+    private void end(int start) {
+        int length = buffer.position() - start - HEADER_BYTES;
+        crc.reset();
+        crc.update(buffer.array(), start + HEADER_BYTES, length);
+        buffer.putInt(start, length).putInt(start + 4, (int) crc.getValue());
+    }
+
+    private static byte[] readBody(InputStream in, int length) throws IOException {
+        byte[] body = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int n = in.read(body, read, length - read);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            read += n;
+        }
+        return body;
+    }
+
+    private static String getString(ByteBuffer record) {
+        int length = record.getInt();
+        String value = new String(record.array(), record.position(), length, StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+
+    /**
+     * Syncs what is buffered and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        sync();
+        synchronized (writeLock) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.codesmells.common.mail;
+
+import java.util.Locale;
+
+/**
+ * An outbound email: one recipient, a subject and a plain-text body.
+ */
+public final class MailMessage {
+
+    private final String recipient;
+    private final String subject;
+    private final String body;
+    private final String domain;
+
+    /**
+     * @throws IllegalArgumentException if the recipient is not a {@code local@domain} address
+     */
+    public MailMessage(String recipient, String subject, String body) {
+        int at = recipient.lastIndexOf('@');
+        if (at <= 0 || at == recipient.length() - 1 || recipient.indexOf('\r') >= 0 || recipient.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("Invalid recipient: " + recipient);
+        }
+        this.recipient = recipient;
+        this.subject = subject;
+        this.body = body;
+        this.domain = recipient.substring(at + 1).toLowerCase(Locale.ROOT);
+    }
+
+    public String getRecipient() { return recipient; }
+    public String getSubject() { return subject; }
+    public String getBody() { return body; }
+
+    /**
+     * Recipient domain in lower case; messages are batched and connections reused per domain.
+     */
+    public String getDomain() { return domain; }
+}
@@ -0,0 +1,366 @@
+package com.codesmells.common.mail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent outbound mail queue that delivers in batches per recipient domain.
+ *
+ * {@link #submit} records the message in a {@link MailJournal} and returns
+ * immediately. Each domain has its own queue, drained by a pool of sender
+ * threads in batches, at most one batch per domain at a time, over one
+ * connection per domain that is kept open between batches and closed after
+ * it has been idle for a while.
+ *
+ * When a server temporarily refuses one message (a 4xx reply), only that
+ * message is retried: it goes back to the tail of its domain queue after
+ * its own exponential backoff with jitter, and the batch carries on. When
+ * connecting fails, the connection breaks or the server closes the session
+ * (421), the rest of the batch goes back to the front of its domain queue
+ * and the whole domain is retried after such a backoff. Messages that have
+ * failed {@code maxAttempts} times, or were refused permanently, are given
+ * up on. Delivery is at least once: after a crash, messages sent since
+ * the last journal sync are sent again.
+ */
+public class MailQueue implements AutoCloseable {
+
+    private static final String JOURNAL_FILE = "mail-queue.log";
+    private static final int DEFAULT_SENDER_THREADS = 8;
+    private static final int DEFAULT_MAX_BATCH = 100;
+    private static final int DEFAULT_MAX_ATTEMPTS = 20;
+    private static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofSeconds(1);
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final long SYNC_INTERVAL_MILLIS = 100;
+    private static final long IDLE_CONNECTION_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final int SERVICE_CLOSING = 421;
+
+    private final MailJournal journal;
+    private final MailTransport transport;
+    private final int maxBatch;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final ScheduledThreadPoolExecutor senders;
+    private final Map<String, DomainQueue> domains = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+    private volatile long sendRate;
+    private long sentAtLastSample;
+
+    private MailQueue(MailJournal journal, MailTransport transport, int senderThreads, int maxBatch,
+                      int maxAttempts, Duration initialBackoff) {
+        this.journal = journal;
+        this.transport = transport;
+        this.maxBatch = maxBatch;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = Math.max(1, initialBackoff.toMillis());
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = new ScheduledThreadPoolExecutor(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "mail-sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        senders.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        senders.scheduleWithFixedDelay(this::syncQuietly, SYNC_INTERVAL_MILLIS, SYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        senders.scheduleAtFixedRate(this::housekeeping, 1, 1, TimeUnit.SECONDS);
+    }
+
+    public static MailQueue open(Path directory, MailTransport transport) throws IOException {
+        return open(directory, transport, DEFAULT_SENDER_THREADS, DEFAULT_MAX_BATCH, DEFAULT_MAX_ATTEMPTS,
+            DEFAULT_INITIAL_BACKOFF);
+    }
+
+    /**
+     * Opens the queue in a directory and resumes delivering whatever it still holds.
+     *
+     * @param senderThreads domains delivered to concurrently
+     * @param maxBatch messages sent to one domain before other domains get a turn
+     * @param maxAttempts failed attempts after which a message is given up on
+     * @param initialBackoff wait before the first retry of a domain or message; doubles per failure
+     */
+    public static MailQueue open(Path directory, MailTransport transport, int senderThreads, int maxBatch,
+                                 int maxAttempts, Duration initialBackoff) throws IOException {
+        if (senderThreads <= 0 || maxBatch <= 0 || maxAttempts <= 0) {
+            throw new IllegalArgumentException("Sender threads, batch size and attempts must be positive");
+        }
+        Files.createDirectories(directory);
+        MailJournal journal = MailJournal.open(directory.resolve(JOURNAL_FILE));
+        MailQueue queue = new MailQueue(journal, transport, senderThreads, maxBatch, maxAttempts, initialBackoff);
+        for (Map.Entry<Long, MailMessage> entry : journal.getPending().entrySet()) {
+            queue.enqueue(new QueuedMail(entry.getKey(), entry.getValue()));
+        }
+        return queue;
+    }
+
+    /**
+     * Queues a message for delivery.
+     *
+     * @return id of the queued message
+     * @throws IllegalStateException if the queue is closed
+     */
+    public long submit(MailMessage message) {
+        if (closed) {
+            throw new IllegalStateException("Mail queue is closed");
+        }
+        long id = journal.appendEnqueued(message);
+        submitted.incrementAndGet();
+        enqueue(new QueuedMail(id, message));
+        return id;
+    }
+
+    public long submit(String recipient, String subject, String body) {
+        return submit(new MailMessage(recipient, subject, body));
+    }
+
+    /**
+     * Makes every message submitted so far durable.
+     */
+    public void flush() throws IOException {
+        journal.sync();
+    }
+
+    /**
+     * Messages queued and not yet delivered or given up on.
+     */
+    public int getQueueDepth() { return queueDepth.get(); }
+    public long getSubmittedCount() { return submitted.get(); }
+    public long getSentCount() { return sent.get(); }
+    public long getFailedCount() { return failed.get(); }
+    public long getRetryCount() { return retries.get(); }
+    public long getConnectionCount() { return connections.get(); }
+
+    /**
+     * Messages sent during the last full second.
+     */
+    public long getSendRatePerSecond() { return sendRate; }
+
+    private void enqueue(QueuedMail mail) {
+        queueDepth.incrementAndGet();
+        append(mail);
+    }
+
+    private void append(QueuedMail mail) {
+        DomainQueue queue = domains.computeIfAbsent(mail.message.getDomain(), DomainQueue::new);
+        boolean schedule;
+        synchronized (queue) {
+            queue.pending.add(mail);
+            schedule = !queue.scheduled;
+            queue.scheduled = true;
+        }
+        if (schedule) {
+            schedule(queue, 0);
+        }
+    }
+
+    private void schedule(DomainQueue queue, long delayMillis) {
+        try {
+            senders.schedule(() -> drain(queue), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closed; the messages stay in the journal for the next start
+        }
+    }
+
+    /**
+     * Sends one batch to a domain. Only one drain per domain runs at a time,
+     * and only it touches the domain's connection.
+     */
+    private void drain(DomainQueue queue) {
+        List<QueuedMail> batch = new ArrayList<>(maxBatch);
+        synchronized (queue) {
+            while (batch.size() < maxBatch && !queue.pending.isEmpty()) {
+                batch.add(queue.pending.poll());
+            }
+        }
+        long delayMillis = 0;
+        int done = 0;
+        try {
+            for (; done < batch.size() && !closed; done++) {
+                if (queue.connection == null) {
+                    queue.connection = transport.connect(queue.domain);
+                    connections.incrementAndGet();
+                }
+                QueuedMail mail = batch.get(done);
+                try {
+                    queue.connection.send(mail.message);
+                    complete(mail, true);
+                } catch (MailDeliveryException e) {
+                    if (e.getReplyCode() == SERVICE_CLOSING) {
+                        throw e;
+                    }
+                    if (e.isPermanent()) {
+                        complete(mail, false);
+                    } else {
+                        retryLater(mail);
+                    }
+                    if (!queue.connection.isOpen()) {
+                        closeConnection(queue); // refused after the data phase began; reconnect for the next one
+                    }
+                }
+            }
+            queue.failures = 0;
+        } catch (IOException | RuntimeException e) {
+            closeConnection(queue);
+            queue.failures++;
+            delayMillis = backoffMillis(queue.failures);
+            for (int i = done; i < batch.size(); i++) {
+                QueuedMail mail = batch.get(i);
+                if (++mail.attempts >= maxAttempts) {
+                    complete(mail, false);
+                    batch.set(i, null);
+                } else {
+                    retries.incrementAndGet();
+                }
+            }
+        }
+        queue.lastUsed = System.nanoTime();
+        boolean more;
+        synchronized (queue) {
+            for (int i = batch.size() - 1; i >= done; i--) {
+                if (batch.get(i) != null) {
+                    queue.pending.addFirst(batch.get(i));
+                }
+            }
+            more = !queue.pending.isEmpty() && !closed;
+            queue.scheduled = more;
+        }
+        if (more) {
+            schedule(queue, delayMillis);
+        }
+    }
+
+    /**
+     * Puts a temporarily refused message back at the tail of its domain queue
+     * once its own backoff has passed, or gives up on it.
+     */
+    private void retryLater(QueuedMail mail) {
+        if (++mail.attempts >= maxAttempts) {
+            complete(mail, false);
+            return;
+        }
+        retries.incrementAndGet();
+        try {
+            senders.schedule(() -> append(mail), backoffMillis(mail.attempts), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closed; the message stays in the journal for the next start
+        }
+    }
+
+    /**
+     * Exponential backoff with jitter: between half and all of the initial
+     * backoff doubled per earlier failure, capped.
+     */
+    private long backoffMillis(int failures) {
+        long delayMillis = Math.min(initialBackoffMillis << Math.min(failures - 1, 30), MAX_BACKOFF_MILLIS);
+        return delayMillis / 2 + ThreadLocalRandom.current().nextLong(delayMillis / 2 + 1);
+    }
+
+    private void complete(QueuedMail mail, boolean delivered) {
+        journal.appendDone(mail.id);
+        queueDepth.decrementAndGet();
+        if (delivered) {
+            sent.incrementAndGet();
+        } else {
+            failed.incrementAndGet();
+        }
+    }
+
+    private void housekeeping() {
+        long total = sent.get();
+        sendRate = total - sentAtLastSample;
+        sentAtLastSample = total;
+        long idleSince = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(IDLE_CONNECTION_MILLIS);
+        for (DomainQueue queue : domains.values()) {
+            synchronized (queue) {
+                // A domain without a scheduled drain is not using its connection
+                if (queue.scheduled || queue.connection == null || queue.lastUsed - idleSince > 0) {
+                    continue;
+                }
+                closeConnection(queue);
+            }
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            System.err.println("Mail queue sync failed, will retry: " + e.getMessage());
+        }
+    }
+
+    private static void closeConnection(DomainQueue queue) {
+        if (queue.connection != null) {
+            try {
+                queue.connection.close();
+            } catch (IOException e) {
+                // Already broken; nothing more to release
+            }
+            queue.connection = null;
+        }
+    }
+
+    /**
+     * Stops delivering after the batches in flight and syncs the journal.
+     * Undelivered messages are sent after the next {@link #open}.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        senders.shutdown();
+        try {
+            senders.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (DomainQueue queue : domains.values()) {
+            synchronized (queue) {
+                closeConnection(queue);
+            }
+        }
+        journal.close();
+    }
+
+    private static final class QueuedMail {
+        final long id;
+        final MailMessage message;
+        int attempts;
+
+        QueuedMail(long id, MailMessage message) {
+            this.id = id;
+            this.message = message;
+        }
+    }
+
+    private static final class DomainQueue {
+        final String domain;
+        // Guarded by the DomainQueue; scheduled is true while a drain is pending or running
+        final ArrayDeque<QueuedMail> pending = new ArrayDeque<>();
+        boolean scheduled;
+        // Owned by the running drain, or by housekeeping while no drain is scheduled
+        MailTransport.Connection connection;
+        int failures;
+        long lastUsed;
+
+        DomainQueue(String domain) {
+            this.domain = domain;
+        }
+    }
+}
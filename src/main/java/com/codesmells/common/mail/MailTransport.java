@@ -0,0 +1,38 @@
+package com.codesmells.common.mail;
+
+import java.io.IOException;
+
+/**
+ * Way of handing messages to mail servers, e.g. over SMTP.
+ */
+public interface MailTransport {
+
+    /**
+     * Opens a connection for delivering mail to one recipient domain.
+     */
+    Connection connect(String domain) throws IOException;
+
+    /**
+     * Open connection that can deliver any number of messages in turn.
+     * Used by one thread at a time.
+     */
+    interface Connection extends AutoCloseable {
+
+        /**
+         * @throws MailDeliveryException if the server refuses the message; check {@link #isOpen} before reusing
+         * @throws IOException if the connection failed; it must not be used again
+         */
+        void send(MailMessage message) throws IOException;
+
+        /**
+         * False once the connection can no longer be used, e.g. because a
+         * refusal left it in a state it could only be closed from.
+         */
+        default boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        void close() throws IOException;
+    }
+}
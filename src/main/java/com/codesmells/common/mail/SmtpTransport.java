@@ -0,0 +1,173 @@
+package com.codesmells.common.mail;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Delivers mail over SMTP through one relay host, such as a local
+ * {@link LocalSmtpServer} or the company smarthost.
+ *
+ * A connection greets the server once and then sends any number of
+ * messages; the envelope commands of a message are written together and
+ * their replies read afterwards, so each message costs two round trips.
+ */
+public class SmtpTransport implements MailTransport {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+
+    private final String host;
+    private final int port;
+    private final String sender;
+
+    /**
+     * @param sender envelope and header sender of every message
+     */
+    public SmtpTransport(String host, int port, String sender) {
+        this.host = host;
+        this.port = port;
+        this.sender = sender;
+    }
+
+    @Override
+    public Connection connect(String domain) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+            socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            socket.setTcpNoDelay(true);
+            SmtpConnection connection = new SmtpConnection(socket);
+            connection.expect(220);
+            connection.command("EHLO " + socket.getLocalAddress().getHostName());
+            connection.expect(250);
+            return connection;
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private final class SmtpConnection implements Connection {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+
+        SmtpConnection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), 1 << 16);
+        }
+
+        @Override
+        public void send(MailMessage message) throws IOException {
+            if (socket.isClosed()) {
+                throw new IOException("SMTP connection to " + host + " is closed");
+            }
+            out.write("MAIL FROM:<" + sender + ">\r\n");
+            out.write("RCPT TO:<" + message.getRecipient() + ">\r\n");
+            out.write("DATA\r\n");
+            out.flush();
+            int mailReply = reply();
+            int rcptReply = reply();
+            int dataReply = reply();
+            if (mailReply != 250 || rcptReply / 100 != 2 || dataReply != 354) {
+                int refusal = mailReply != 250 ? mailReply : rcptReply / 100 != 2 ? rcptReply : dataReply;
+                if (dataReply == 354) {
+                    // A data phase cannot be aborted; drop the connection rather than send an empty message
+                    socket.close();
+                } else {
+                    command("RSET");
+                    expect(250);
+                }
+                throw new MailDeliveryException(refusal, "Refused " + message.getRecipient() + " with " + refusal);
+            }
+            out.write("From: <" + sender + ">\r\n");
+            out.write("To: <" + message.getRecipient() + ">\r\n");
+            out.write("Subject: " + message.getSubject().replace('\r', ' ').replace('\n', ' ') + "\r\n\r\n");
+            writeBody(message.getBody());
+            command(".");
+            int accepted = reply();
+            if (accepted != 250) {
+                throw new MailDeliveryException(accepted, "Refused " + message.getRecipient() + " with " + accepted);
+            }
+        }
+
+        /**
+         * Writes the body with CRLF line ends, doubling a leading dot so no
+         * line ends the data early.
+         */
+        private void writeBody(String body) throws IOException {
+            int start = 0;
+            while (start <= body.length()) {
+                int end = body.indexOf('\n', start);
+                if (end < 0) {
+                    end = body.length();
+                }
+                int lineEnd = end > start && body.charAt(end - 1) == '\r' ? end - 1 : end;
+                if (lineEnd > start && body.charAt(start) == '.') {
+                    out.write('.');
+                }
+                out.write(body, start, lineEnd - start);
+                out.write("\r\n");
+                start = end + 1;
+            }
+        }
+
+        void command(String line) throws IOException {
+            out.write(line);
+            out.write("\r\n");
+            out.flush();
+        }
+
+        void expect(int code) throws IOException {
+            int actual = reply();
+            if (actual != code) {
+                throw new MailDeliveryException(actual, "Expected " + code + " from " + host + " but got " + actual);
+            }
+        }
+
+        /**
+         * Reads one possibly multi-line reply and returns its code.
+         */
+        int reply() throws IOException {
+            String line;
+            do {
+                line = in.readLine();
+                if (line == null) {
+                    throw new IOException("Connection closed by " + host);
+                }
+                if (line.length() < 3) {
+                    throw new IOException("Malformed SMTP reply: " + line);
+                }
+            } while (line.length() > 3 && line.charAt(3) == '-');
+            try {
+                return Integer.parseInt(line.substring(0, 3));
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed SMTP reply: " + line);
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return !socket.isClosed();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                command("QUIT");
+            } catch (IOException e) {
+                // Closing anyway
+            } finally {
+                socket.close();
+            }
+        }
+    }
+}
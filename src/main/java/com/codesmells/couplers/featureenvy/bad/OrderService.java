@@ -1,5 +1,6 @@
 package com.codesmells.couplers.featureenvy.bad;
 
+import com.codesmells.common.Money;
 import org.springframework.stereotype.Service;
 
 /**
@@ -30,26 +31,26 @@ public class OrderService {
      * BAD: This method is more interested in Product's data than OrderService's
      * It uses 4 methods from Product but none from OrderService
      */
-    public double calculateTotalPrice(Product product, int quantity) {
+    public Money calculateTotalPrice(Product product, int quantity) {
         // Feature envy: using Product's features extensively
-        double basePrice = product.getBasePrice();
-        double discount = basePrice * product.getDiscountRate();
-        double priceAfterDiscount = basePrice - discount;
-        double tax = priceAfterDiscount * product.getTaxRate();
-        double finalPrice = priceAfterDiscount + tax;
+        Money basePrice = product.getBasePrice();
+        Money discount = basePrice.applyRate(Money.toRatePpm(product.getDiscountRate()));
+        Money priceAfterDiscount = basePrice.minus(discount);
+        Money tax = priceAfterDiscount.applyRate(Money.toRatePpm(product.getTaxRate()));
+        Money finalPrice = priceAfterDiscount.plus(tax);
         
-        return finalPrice * quantity;
+        return finalPrice.times(quantity);
     }
     
     /**
      * BAD: Another method envying Product's features
      */
     public String getProductPriceBreakdown(Product product) {
-        double basePrice = product.getBasePrice();
-        double discount = basePrice * product.getDiscountRate();
-        double tax = (basePrice - discount) * product.getTaxRate();
+        Money basePrice = product.getBasePrice();
+        Money discount = basePrice.applyRate(Money.toRatePpm(product.getDiscountRate()));
+        Money tax = basePrice.minus(discount).applyRate(Money.toRatePpm(product.getTaxRate()));
         
-        return String.format("Product: %s\nBase: $%.2f\nDiscount: $%.2f\nTax: $%.2f",
-            product.getName(), basePrice, discount, tax);
+        return String.format("Product: %s\nBase: $%s\nDiscount: $%s\nTax: $%s",
+            product.getName(), basePrice.toPlainString(), discount.toPlainString(), tax.toPlainString());
     }
 }
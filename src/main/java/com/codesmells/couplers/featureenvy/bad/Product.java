@@ -1,15 +1,17 @@
 package com.codesmells.couplers.featureenvy.bad;
 
+import com.codesmells.common.Money;
+
 /**
  * BAD: Product class - just a data holder
  */
 public class Product {
     private String name;
-    private double basePrice;
+    private Money basePrice;
     private double discountRate;
     private double taxRate;
     
-    public Product(String name, double basePrice, double discountRate, double taxRate) {
+    public Product(String name, Money basePrice, double discountRate, double taxRate) {
         this.name = name;
         this.basePrice = basePrice;
         this.discountRate = discountRate;
@@ -17,7 +19,7 @@ public class Product {
     }
     
     public String getName() { return name; }
-    public double getBasePrice() { return basePrice; }
+    public Money getBasePrice() { return basePrice; }
     public double getDiscountRate() { return discountRate; }
     public double getTaxRate() { return taxRate; }
 }
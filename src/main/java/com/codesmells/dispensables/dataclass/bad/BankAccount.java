@@ -1,5 +1,10 @@
 package com.codesmells.dispensables.dataclass.bad;
 
+import com.codesmells.common.Money;
+
+import java.util.Currency;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * BAD EXAMPLE: Data Class Code Smell
  * 
@@ -23,12 +28,15 @@ package com.codesmells.dispensables.dataclass.bad;
  */
 public class BankAccount {
     private String accountNumber;
-    private double balance;
+    // Minor units of the currency, updated with compare-and-set by BankingService
+    private final AtomicLong balance;
+    private final Currency currency;
     private String accountType;
     
-    public BankAccount(String accountNumber, double balance, String accountType) {
+    public BankAccount(String accountNumber, Money balance, String accountType) {
         this.accountNumber = accountNumber;
-        this.balance = balance;
+        this.balance = new AtomicLong(balance.getMinorUnits());
+        this.currency = balance.getCurrency();
         this.accountType = accountType;
     }
     
@@ -41,12 +49,30 @@ public class BankAccount {
         this.accountNumber = accountNumber;
     }
     
-    public double getBalance() {
-        return balance;
+    public Money getBalance() {
+        return Money.ofMinor(balance.get(), currency);
+    }
+    
+    public void setBalance(Money balance) {
+        if (!currency.equals(balance.getCurrency())) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + balance.getCurrency());
+        }
+        this.balance.set(balance.getMinorUnits());
+    }
+    
+    public Currency getCurrency() {
+        return currency;
+    }
+    
+    public long getBalanceMinorUnits() {
+        return balance.get();
     }
     
-    public void setBalance(double balance) {
-        this.balance = balance;
+    /**
+     * Atomically replaces the balance if it still equals {@code expected}.
+     */
+    public boolean compareAndSetBalance(long expected, long updated) {
+        return balance.compareAndSet(expected, updated);
     }
     
     public String getAccountType() {
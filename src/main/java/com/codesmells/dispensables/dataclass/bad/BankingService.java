@@ -1,57 +1,148 @@
 package com.codesmells.dispensables.dataclass.bad;
 
+import com.codesmells.common.Money;
 import org.springframework.stereotype.Service;
 
+import java.util.Currency;
+
 /**
  * BAD: This service manipulates BankAccount's data directly
  * The business logic should be in BankAccount itself
+ *
+ * Balances are changed with compare-and-set on the account's minor units,
+ * and every check that depends on the balance is made against the value
+ * being replaced, so concurrent deposits and withdrawals never lose updates
+ * or overdraw an account. With a {@link Ledger}, every change is also
+ * journaled durably before the call returns.
  */
 @Service
 public class BankingService {
     
+    private final Ledger ledger;
+    
+    public BankingService() {
+        this(null);
+    }
+    
+    /**
+     * @param ledger ledger that journals every change, or null to keep balances only in memory
+     */
+    public BankingService(Ledger ledger) {
+        this.ledger = ledger;
+    }
+    
     /**
      * BAD: "Asking" the account for its data and manipulating it externally
      */
-    public void deposit(BankAccount account, double amount) {
-        if (amount <= 0) {
+    public void deposit(BankAccount account, Money amount) {
+        if (!amount.isPositive()) {
             throw new IllegalArgumentException("Deposit amount must be positive");
         }
-        double newBalance = account.getBalance() + amount;
-        account.setBalance(newBalance);
-        System.out.println("Deposited $" + amount);
+        requireSameCurrency(account, amount);
+        long minorUnits = amount.getMinorUnits();
+        apply(LedgerJournal.DEPOSIT, account, null, minorUnits, () -> credit(account, minorUnits));
+        System.out.println("Deposited $" + amount.toPlainString());
     }
     
     /**
      * BAD: Account's business logic is here, not in the account class
      */
-    public void withdraw(BankAccount account, double amount) {
-        if (amount <= 0) {
+    public void withdraw(BankAccount account, Money amount) {
+        if (!amount.isPositive()) {
             throw new IllegalArgumentException("Withdrawal amount must be positive");
         }
-        if (account.getBalance() < amount) {
-            throw new IllegalArgumentException("Insufficient funds");
-        }
+        requireSameCurrency(account, amount);
         
         // BAD: Withdrawal limits logic outside the account
-        double withdrawalLimit = getWithdrawalLimit(account);
-        if (amount > withdrawalLimit) {
-            throw new IllegalArgumentException("Amount exceeds withdrawal limit");
+        Money withdrawalLimit = getWithdrawalLimit(account);
+        long minorUnits = amount.getMinorUnits();
+        apply(LedgerJournal.WITHDRAWAL, account, null, minorUnits,
+            () -> debit(account, minorUnits, withdrawalLimit.getMinorUnits()));
+        System.out.println("Withdrew $" + amount.toPlainString());
+    }
+    
+    /**
+     * Moves money between two accounts. The source is debited first and the
+     * target credited after; if the credit fails the source is refunded.
+     * Transfers are not subject to the withdrawal limit.
+     *
+     * The two steps are separate atomic updates, not one: between them the
+     * amount is in flight, so a concurrent reader summing balances can see
+     * it missing from both accounts for that moment. Totals are conserved
+     * once the transfer returns. Without a ledger no locks are taken; with
+     * one, the ledger holds both accounts' monitors in a fixed order, so two
+     * opposite transfers can never deadlock either way.
+     */
+    public void transfer(BankAccount from, BankAccount to, Money amount) {
+        if (!amount.isPositive()) {
+            throw new IllegalArgumentException("Transfer amount must be positive");
+        }
+        if (from == to) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+        requireSameCurrency(from, amount);
+        requireSameCurrency(to, amount);
+        long minorUnits = amount.getMinorUnits();
+        apply(LedgerJournal.TRANSFER, from, to, minorUnits, () -> {
+            debit(from, minorUnits, Long.MAX_VALUE);
+            try {
+                credit(to, minorUnits);
+            } catch (ArithmeticException e) {
+                credit(from, minorUnits);
+                throw e;
+            }
+        });
+        System.out.println("Transferred $" + amount.toPlainString()
+            + " from " + from.getAccountNumber() + " to " + to.getAccountNumber());
+    }
+    
+    private void apply(byte type, BankAccount account, BankAccount counterparty, long minorUnits, Runnable change) {
+        if (ledger == null) {
+            change.run();
+        } else {
+            ledger.record(type, account, counterparty, minorUnits, change);
+        }
+    }
+    
+    private static void credit(BankAccount account, long minorUnits) {
+        long current;
+        do {
+            current = account.getBalanceMinorUnits();
+        } while (!account.compareAndSetBalance(current, Math.addExact(current, minorUnits)));
+    }
+    
+    private static void debit(BankAccount account, long minorUnits, long limit) {
+        long current;
+        do {
+            current = account.getBalanceMinorUnits();
+            if (current < minorUnits) {
+                throw new IllegalArgumentException("Insufficient funds");
+            }
+            if (minorUnits > limit) {
+                throw new IllegalArgumentException("Amount exceeds withdrawal limit");
+            }
+        } while (!account.compareAndSetBalance(current, current - minorUnits));
+    }
+    
+    private static void requireSameCurrency(BankAccount account, Money amount) {
+        if (!account.getCurrency().equals(amount.getCurrency())) {
+            throw new IllegalArgumentException("Currency mismatch: " + account.getCurrency() + " vs " + amount.getCurrency());
         }
-        
-        double newBalance = account.getBalance() - amount;
-        account.setBalance(newBalance);
-        System.out.println("Withdrew $" + amount);
     }
     
     /**
      * BAD: Account type logic should be in the account
      */
-    private double getWithdrawalLimit(BankAccount account) {
-        if (account.getAccountType().equals("SAVINGS")) {
-            return 500;
-        } else if (account.getAccountType().equals("CHECKING")) {
-            return 1000;
+    private Money getWithdrawalLimit(BankAccount account) {
+        return withdrawalLimit(account.getAccountType(), account.getCurrency());
+    }
+    
+    static Money withdrawalLimit(String accountType, Currency currency) {
+        if (accountType.equals("SAVINGS")) {
+            return Money.of(500, currency);
+        } else if (accountType.equals("CHECKING")) {
+            return Money.of(1000, currency);
         }
-        return 100;
+        return Money.of(100, currency);
     }
 }
@@ -0,0 +1,410 @@
+package com.codesmells.dispensables.dataclass.bad;
+
+import com.codesmells.common.Money;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Durable set of bank accounts.
+ *
+ * Every balance change made through {@link BankingService} is appended to a
+ * {@link LedgerJournal} and only returns once it has been fsynced. Snapshots
+ * of all balances are taken periodically; each one rolls the journal to a
+ * new generation while changes are briefly paused, so the snapshot plus the
+ * journals from its generation on always describe the exact state. Older
+ * files are deleted once a newer snapshot and its directory entry are
+ * durable. {@link #open} recovers by loading the newest snapshot and
+ * replaying the journals after it, cutting off a torn record at the end of
+ * the newest journal.
+ *
+ * If the journal cannot be written, every change still waiting for it is
+ * undone and the ledger fails: all later changes are rejected until it is
+ * reopened, which recovers whatever did reach the disk.
+ */
+public class Ledger implements AutoCloseable {
+
+    private final Path directory;
+    private final Map<String, BankAccount> accounts;
+    // Changes hold the read lock while they apply and journal; snapshots take the write lock
+    private final ReentrantReadWriteLock cut = new ReentrantReadWriteLock();
+    private final LedgerJournal journal;
+    private final AtomicLong changesSinceSnapshot = new AtomicLong();
+    private final ScheduledExecutorService snapshots;
+    private final long recoveredRecords;
+    private final long recoveryMillis;
+    private volatile RuntimeException failure;
+
+    private Ledger(Path directory, Map<String, BankAccount> accounts, int generation, Duration snapshotInterval,
+                   LedgerJournal.FileOpener opener, long recoveredRecords, long recoveryMillis) throws IOException {
+        this.directory = directory;
+        this.accounts = accounts;
+        this.journal = new LedgerJournal(directory, generation, opener);
+        this.recoveredRecords = recoveredRecords;
+        this.recoveryMillis = recoveryMillis;
+        this.snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledger-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = snapshotInterval.toMillis();
+        snapshots.scheduleWithFixedDelay(this::snapshotIfChanged, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens the ledger in a directory, recovering whatever state it holds.
+     *
+     * @throws IOException if a journal other than the newest is damaged
+     */
+    public static Ledger open(Path directory, Duration snapshotInterval) throws IOException {
+        return open(directory, snapshotInterval, LedgerJournal::openForAppend);
+    }
+
+    static Ledger open(Path directory, Duration snapshotInterval, LedgerJournal.FileOpener opener)
+            throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+        Map<String, BankAccount> accounts = new ConcurrentHashMap<>();
+        int snapshotGeneration = loadNewestSnapshot(directory, accounts);
+
+        List<Path> journals = files(directory, LedgerJournal::generationOf).stream()
+            .filter(file -> LedgerJournal.generationOf(file) >= snapshotGeneration)
+            .collect(Collectors.toList());
+        long[] records = new long[1];
+        for (int i = 0; i < journals.size(); i++) {
+            Path file = journals.get(i);
+            long valid = LedgerJournal.replay(file, (type, amount, first, second, third) -> {
+                apply(accounts, type, amount, first, second, third);
+                records[0]++;
+            });
+            if (valid < Files.size(file)) {
+                // Older journals were fsynced whole before the roll, so only the newest can end torn
+                if (i < journals.size() - 1) {
+                    throw new IOException("Ledger journal " + file.getFileName() + " is damaged at byte " + valid
+                        + "; later journals cannot be replayed on top of it");
+                }
+                // Drop the torn tail so new records are appended after the last intact one
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                }
+            }
+        }
+        int generation = journals.isEmpty()
+            ? snapshotGeneration
+            : LedgerJournal.generationOf(journals.get(journals.size() - 1));
+        long recoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new Ledger(directory, accounts, generation, snapshotInterval, opener, records[0], recoveryMillis);
+    }
+
+    /**
+     * Creates an account and records it durably.
+     *
+     * @throws IllegalArgumentException if the account number is taken
+     * @throws IllegalStateException if the ledger has failed
+     */
+    public BankAccount openAccount(String accountNumber, Money initialBalance, String accountType) {
+        BankAccount account = new BankAccount(accountNumber, initialBalance, accountType);
+        long sequence;
+        cut.readLock().lock();
+        try {
+            requireNotFailed();
+            if (accounts.putIfAbsent(accountNumber, account) != null) {
+                throw new IllegalArgumentException("Account already exists: " + accountNumber);
+            }
+            sequence = journal.append(LedgerJournal.OPEN, initialBalance.getMinorUnits(), accountNumber,
+                accountType, initialBalance.getCurrency().getCurrencyCode());
+        } finally {
+            cut.readLock().unlock();
+        }
+        changesSinceSnapshot.incrementAndGet();
+        try {
+            journal.awaitDurable(sequence);
+        } catch (RuntimeException e) {
+            accounts.remove(accountNumber, account);
+            throw fail(e);
+        }
+        return account;
+    }
+
+    public BankAccount getAccount(String accountNumber) {
+        return accounts.get(accountNumber);
+    }
+
+    public Collection<BankAccount> getAccounts() {
+        return Collections.unmodifiableCollection(accounts.values());
+    }
+
+    /**
+     * Applies a balance change and journals it, returning once it is durable.
+     *
+     * The change and its journal record are made while holding the monitors
+     * of the accounts involved, taken in account number order, so the
+     * journal lists the changes of each account in the order they were
+     * applied and recovery can never replay a withdrawal before the deposit
+     * it relied on. A change that throws is not journaled; if journaling
+     * throws, or the record never becomes durable, the change is undone
+     * before the exception propagates, and in the latter case the ledger
+     * fails.
+     *
+     * @throws IllegalStateException if the ledger has failed
+     */
+    void record(byte type, BankAccount account, BankAccount counterparty, long minorUnits, Runnable change) {
+        requireOwned(account);
+        if (counterparty != null) {
+            requireOwned(counterparty);
+        }
+        BankAccount first = account;
+        BankAccount second = counterparty != null ? counterparty : account;
+        if (second.getAccountNumber().compareTo(first.getAccountNumber()) < 0) {
+            first = second;
+            second = account;
+        }
+        long sequence;
+        cut.readLock().lock();
+        try {
+            requireNotFailed();
+            synchronized (first) {
+                synchronized (second) {
+                    change.run();
+                    try {
+                        sequence = journal.append(type, minorUnits, account.getAccountNumber(),
+                            counterparty != null ? counterparty.getAccountNumber() : "", "");
+                    } catch (UncheckedIOException e) {
+                        undo(type, account, counterparty, minorUnits);
+                        throw fail(e);
+                    } catch (RuntimeException e) {
+                        undo(type, account, counterparty, minorUnits);
+                        throw e;
+                    }
+                }
+            }
+        } finally {
+            cut.readLock().unlock();
+        }
+        changesSinceSnapshot.incrementAndGet();
+        try {
+            journal.awaitDurable(sequence);
+        } catch (RuntimeException e) {
+            // Whether the record reached the disk is unknown; memory must not claim it did
+            synchronized (first) {
+                synchronized (second) {
+                    undo(type, account, counterparty, minorUnits);
+                }
+            }
+            throw fail(e);
+        }
+    }
+
+    /**
+     * Writes a snapshot of all balances and deletes files it makes obsolete.
+     */
+    public synchronized void snapshot() throws IOException {
+        int generation;
+        List<BankAccount> copy;
+        cut.writeLock().lock();
+        try {
+            requireNotFailed();
+            generation = journal.roll();
+            copy = new ArrayList<>(accounts.size());
+            for (BankAccount account : accounts.values()) {
+                copy.add(new BankAccount(account.getAccountNumber(), account.getBalance(), account.getAccountType()));
+            }
+            changesSinceSnapshot.set(0);
+        } finally {
+            cut.writeLock().unlock();
+        }
+        LedgerSnapshot.write(directory, generation, copy);
+        for (Path file : files(directory, LedgerSnapshot::generationOf)) {
+            if (LedgerSnapshot.generationOf(file) < generation) {
+                Files.deleteIfExists(file);
+            }
+        }
+        for (Path file : files(directory, LedgerJournal::generationOf)) {
+            if (LedgerJournal.generationOf(file) < generation) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    public long getRecoveredRecordCount() { return recoveredRecords; }
+    public long getRecoveryMillis() { return recoveryMillis; }
+    public long getJournaledCount() { return journal.getAppendedCount(); }
+
+    /**
+     * Whether a journal write failed; a failed ledger must be reopened.
+     */
+    public boolean isFailed() { return failure != null; }
+
+    private void snapshotIfChanged() {
+        if (changesSinceSnapshot.get() == 0 || failure != null) {
+            return;
+        }
+        try {
+            snapshot();
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Ledger snapshot failed, will retry: " + e.getMessage());
+        }
+    }
+
+    private IllegalStateException fail(RuntimeException cause) {
+        IllegalStateException failed = new IllegalStateException("Ledger journal write failed; reopen the ledger", cause);
+        if (failure == null) {
+            failure = failed;
+        }
+        return failed;
+    }
+
+    private void requireNotFailed() {
+        RuntimeException cause = failure;
+        if (cause != null) {
+            throw new IllegalStateException("Ledger has failed; reopen it to recover", cause);
+        }
+    }
+
+    private void requireOwned(BankAccount account) {
+        if (accounts.get(account.getAccountNumber()) != account) {
+            throw new IllegalArgumentException("Account is not managed by this ledger: " + account.getAccountNumber());
+        }
+    }
+
+    /**
+     * Loads the newest readable snapshot. An older snapshot is only used in
+     * place of an unreadable newer one while every journal from its
+     * generation on still exists; otherwise recovery fails rather than
+     * silently losing the changes of the missing journals.
+     *
+     * @return generation of the snapshot loaded, or 0 if there is none
+     */
+    private static int loadNewestSnapshot(Path directory, Map<String, BankAccount> accounts) throws IOException {
+        List<Path> snapshotFiles = files(directory, LedgerSnapshot::generationOf);
+        Collections.reverse(snapshotFiles);
+        IOException unreadable = null;
+        for (Path file : snapshotFiles) {
+            int generation = LedgerSnapshot.generationOf(file);
+            if (unreadable != null && !hasJournalsFrom(directory, generation)) {
+                throw unreadable;
+            }
+            try {
+                for (BankAccount account : LedgerSnapshot.read(file)) {
+                    accounts.put(account.getAccountNumber(), account);
+                }
+                return generation;
+            } catch (IOException | RuntimeException e) {
+                accounts.clear();
+                if (unreadable == null) {
+                    unreadable = new IOException("Ledger snapshot " + file.getFileName() + " is unreadable and the "
+                        + "journals needed to recover without it are missing", e);
+                }
+            }
+        }
+        if (unreadable != null && !hasJournalsFrom(directory, 0)) {
+            throw unreadable;
+        }
+        return 0;
+    }
+
+    /**
+     * Whether the journals of every generation from {@code generation} to the newest one exist.
+     */
+    private static boolean hasJournalsFrom(Path directory, int generation) throws IOException {
+        int expected = generation;
+        for (Path file : files(directory, LedgerJournal::generationOf)) {
+            int journalGeneration = LedgerJournal.generationOf(file);
+            if (journalGeneration < generation) {
+                continue;
+            }
+            if (journalGeneration != expected) {
+                return false;
+            }
+            expected++;
+        }
+        return expected > generation;
+    }
+
+    private static void apply(Map<String, BankAccount> accounts, byte type, long amount,
+                              String first, String second, String third) {
+        switch (type) {
+            case LedgerJournal.OPEN:
+                accounts.put(first, new BankAccount(first, Money.ofMinor(amount, Currency.getInstance(third)), second));
+                break;
+            case LedgerJournal.DEPOSIT:
+                adjust(accounts.get(first), amount);
+                break;
+            case LedgerJournal.WITHDRAWAL:
+                adjust(accounts.get(first), -amount);
+                break;
+            case LedgerJournal.TRANSFER:
+                adjust(accounts.get(first), -amount);
+                adjust(accounts.get(second), amount);
+                break;
+            default:
+                throw new IllegalStateException("Unknown ledger record type: " + type);
+        }
+    }
+
+    /**
+     * Reverts a change that was applied but could not be journaled.
+     */
+    private static void undo(byte type, BankAccount account, BankAccount counterparty, long minorUnits) {
+        switch (type) {
+            case LedgerJournal.DEPOSIT:
+                adjust(account, -minorUnits);
+                break;
+            case LedgerJournal.WITHDRAWAL:
+                adjust(account, minorUnits);
+                break;
+            case LedgerJournal.TRANSFER:
+                adjust(counterparty, -minorUnits);
+                adjust(account, minorUnits);
+                break;
+            default:
+                throw new IllegalStateException("Unknown ledger record type: " + type);
+        }
+    }
+
+    private static void adjust(BankAccount account, long minorUnits) {
+        long current;
+        do {
+            current = account.getBalanceMinorUnits();
+        } while (!account.compareAndSetBalance(current, Math.addExact(current, minorUnits)));
+    }
+
+    private static List<Path> files(Path directory, ToIntFunction<Path> generationOf) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(file -> generationOf.applyAsInt(file) >= 0)
+                .sorted(Comparator.comparingInt(generationOf))
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Stops periodic snapshots and closes the journal after pending records are durable.
+     */
+    @Override
+    public void close() {
+        snapshots.shutdownNow();
+        journal.close();
+    }
+}
@@ -0,0 +1,334 @@
+package com.codesmells.dispensables.dataclass.bad;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of ledger changes with group commit.
+ *
+ * Writers encode their record into a shared in-memory buffer and get a
+ * sequence number back; a single flusher thread writes everything buffered
+ * so far with one write and one fsync, then wakes every writer whose record
+ * is now durable. Under load many records share one fsync.
+ *
+ * Each record is {@code [int length][int crc32][type][long amount][3 strings]}
+ * with strings as a short length plus UTF-8 bytes. The checksum lets replay
+ * stop cleanly at a record torn by a crash. Journals are numbered by
+ * generation; {@link #roll} starts the next one so a snapshot can mark a
+ * clean cut.
+ */
+public class LedgerJournal implements AutoCloseable {
+
+    public static final byte OPEN = 1;
+    public static final byte DEPOSIT = 2;
+    public static final byte WITHDRAWAL = 3;
+    public static final byte TRANSFER = 4;
+
+    static final String FILE_PREFIX = "journal-";
+    static final String FILE_SUFFIX = ".log";
+
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 1 << 16;
+    private static final int INITIAL_BUFFER_BYTES = 1 << 16;
+
+    private final Path directory;
+    private final FileOpener opener;
+    private final Object writeLock = new Object();
+    private FileChannel channel;
+    private int generation;
+
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private final CRC32 crc = new CRC32();
+    private long appended;
+    private long durable;
+    private IOException failure;
+    private boolean running = true;
+    private final Thread flusher;
+
+    /**
+     * Opens the journal of the given generation for appending.
+     */
+    public LedgerJournal(Path directory, int generation) throws IOException {
+        this(directory, generation, LedgerJournal::openForAppend);
+    }
+
+    /**
+     * @param opener opens each generation's file for appending, e.g. to inject write failures in tests
+     */
+    LedgerJournal(Path directory, int generation, FileOpener opener) throws IOException {
+        this.directory = directory;
+        this.opener = opener;
+        this.generation = generation;
+        this.channel = opener.open(path(directory, generation));
+        this.flusher = new Thread(this::flushLoop, "ledger-journal");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Buffers a record for the next group commit.
+     *
+     * @return sequence number to pass to {@link #awaitDurable}
+     */
+    public synchronized long append(byte type, long amount, String first, String second, String third) {
+        if (failure != null) {
+            throw new UncheckedIOException("Ledger journal has failed", failure);
+        }
+        if (!running) {
+            throw new IllegalStateException("Ledger journal is closed");
+        }
+        byte[] a = first.getBytes(StandardCharsets.UTF_8);
+        byte[] b = second.getBytes(StandardCharsets.UTF_8);
+        byte[] c = third.getBytes(StandardCharsets.UTF_8);
+        int bodyLength = 1 + 8 + 6 + a.length + b.length + c.length;
+        if (bodyLength > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Journal record too large");
+        }
+        ensureCapacity(HEADER_BYTES + bodyLength);
+        int start = pending.position();
+        pending.position(start + HEADER_BYTES);
+        pending.put(type).putLong(amount);
+        putString(a);
+        putString(b);
+        putString(c);
+        crc.reset();
+        crc.update(pending.array(), start + HEADER_BYTES, bodyLength);
+        pending.putInt(start, bodyLength).putInt(start + 4, (int) crc.getValue());
+        appended++;
+        notifyAll();
+        return appended;
+    }
+
+    /**
+     * Blocks until the record with this sequence number has been fsynced.
+     *
+     * @throws UncheckedIOException if the journal could not be written
+     */
+    public synchronized void awaitDurable(long sequence) {
+        boolean interrupted = false;
+        while (durable < sequence && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (durable < sequence) {
+            throw new UncheckedIOException("Ledger journal write failed", failure);
+        }
+    }
+
+    /**
+     * Flushes the current journal and continues in a new generation.
+     *
+     * @return the new generation; every record appended from now on goes to it
+     */
+    public int roll() throws IOException {
+        synchronized (writeLock) {
+            long sequence = writePending();
+            channel.close();
+            generation++;
+            channel = opener.open(path(directory, generation));
+            LedgerSnapshot.syncDirectory(directory);
+            markDurable(sequence);
+            return generation;
+        }
+    }
+
+    public synchronized long getAppendedCount() {
+        return appended;
+    }
+
+    private void flushLoop() {
+        while (true) {
+            synchronized (this) {
+                while (running && pending.position() == 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        running = false;
+                    }
+                }
+                if (!running && pending.position() == 0) {
+                    return;
+                }
+            }
+            try {
+                synchronized (writeLock) {
+                    markDurable(writePending());
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes and fsyncs everything buffered so far. Caller holds writeLock.
+     *
+     * @return the last sequence number written
+     */
+    private long writePending() throws IOException {
+        ByteBuffer batch;
+        long sequence;
+        synchronized (this) {
+            batch = pending;
+            pending = spare;
+            spare = batch;
+            sequence = appended;
+        }
+        if (batch.position() > 0) {
+            batch.flip();
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            channel.force(false);
+        }
+        batch.clear();
+        return sequence;
+    }
+
+    private synchronized void markDurable(long sequence) {
+        if (sequence > durable) {
+            durable = sequence;
+            notifyAll();
+        }
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+    }
+
+    private void putString(byte[] bytes) {
+        pending.putShort((short) bytes.length).put(bytes);
+    }
+
+    /**
+     * Opens a journal file for appending.
+     */
+    @FunctionalInterface
+    interface FileOpener {
+        FileChannel open(Path file) throws IOException;
+    }
+
+    /**
+     * Receives the records of a journal in the order they were written.
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        void accept(byte type, long amount, String first, String second, String third);
+    }
+
+    /**
+     * Reads every intact record of a journal file.
+     *
+     * @return length of the valid prefix; anything after it is a torn or
+     *         corrupt tail left by a crash
+     */
+    public static long replay(Path file, RecordHandler handler) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+            CRC32 checksum = new CRC32();
+            long valid = 0;
+            while (in.read(buffer) > 0 || buffer.position() > 0) {
+                buffer.flip();
+                int consumed = 0;
+                while (buffer.remaining() >= HEADER_BYTES) {
+                    int start = buffer.position();
+                    int length = buffer.getInt(start);
+                    if (length < 15 || length > MAX_RECORD_BYTES) {
+                        return valid;
+                    }
+                    if (buffer.remaining() < HEADER_BYTES + length) {
+                        break;
+                    }
+                    checksum.reset();
+                    checksum.update(buffer.array(), start + HEADER_BYTES, length);
+                    if ((int) checksum.getValue() != buffer.getInt(start + 4)) {
+                        return valid;
+                    }
+                    buffer.position(start + HEADER_BYTES);
+                    byte type = buffer.get();
+                    long amount = buffer.getLong();
+                    String first = getString(buffer);
+                    String second = getString(buffer);
+                    String third = getString(buffer);
+                    handler.accept(type, amount, first, second, third);
+                    consumed += HEADER_BYTES + length;
+                    valid += HEADER_BYTES + length;
+                }
+                buffer.compact();
+                if (consumed == 0 && in.position() >= in.size()) {
+                    return valid; // incomplete record at the end
+                }
+            }
+            return valid;
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xffff;
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    static Path path(Path directory, int generation) {
+        return directory.resolve(String.format("%s%06d%s", FILE_PREFIX, generation, FILE_SUFFIX));
+    }
+
+    /**
+     * Generation of a journal file name, or -1 if it is not a journal.
+     */
+    static int generationOf(Path file) {
+        return LedgerSnapshot.parseGeneration(file, FILE_PREFIX, FILE_SUFFIX);
+    }
+
+    static FileChannel openForAppend(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Waits until every appended record is durable, then closes the file.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            running = false;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (writeLock) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                }
+            }
+        }
+    }
+}
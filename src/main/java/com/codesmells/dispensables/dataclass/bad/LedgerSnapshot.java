@@ -0,0 +1,127 @@
+package com.codesmells.dispensables.dataclass.bad;
+
+import com.codesmells.common.Money;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact file with the balance of every account at a journal generation
+ * boundary. Recovery loads the newest readable snapshot and only replays
+ * the journals from its generation on.
+ *
+ * The file is written to a temporary name, fsynced and then atomically
+ * renamed, and ends with a CRC32 of its contents, so a crash while writing
+ * can never leave a half-written snapshot in place. The directory is
+ * fsynced after the rename, so the snapshot is durable before any older
+ * file is deleted.
+ */
+final class LedgerSnapshot {
+
+    static final String FILE_PREFIX = "snapshot-";
+    static final String FILE_SUFFIX = ".bin";
+
+    private static final int MAGIC = 0x4c444753; // "LDGS"
+
+    private LedgerSnapshot() {
+    }
+
+    static void write(Path directory, int generation, List<BankAccount> accounts) throws IOException {
+        Path target = path(directory, generation);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(generation);
+            out.writeInt(accounts.size());
+            for (BankAccount account : accounts) {
+                out.writeUTF(account.getAccountNumber());
+                out.writeUTF(account.getAccountType());
+                out.writeUTF(account.getCurrency().getCurrencyCode());
+                out.writeLong(account.getBalanceMinorUnits());
+            }
+            out.flush();
+            long checksum = checked.getChecksum().getValue();
+            out.writeLong(checksum);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(directory);
+    }
+
+    /**
+     * Fsyncs a directory so the files created, renamed or deleted in it so
+     * far survive a power loss.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * @throws IOException if the file is unreadable or fails its checksum
+     */
+    static List<BankAccount> read(Path file) throws IOException {
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16), new CRC32())) {
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a ledger snapshot: " + file);
+            }
+            in.readInt(); // generation, also encoded in the file name
+            int count = in.readInt();
+            List<BankAccount> accounts = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String accountNumber = in.readUTF();
+                String accountType = in.readUTF();
+                Currency currency = Currency.getInstance(in.readUTF());
+                accounts.add(new BankAccount(accountNumber, Money.ofMinor(in.readLong(), currency), accountType));
+            }
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Ledger snapshot checksum mismatch: " + file);
+            }
+            return accounts;
+        }
+    }
+
+    static Path path(Path directory, int generation) {
+        return directory.resolve(String.format("%s%06d%s", FILE_PREFIX, generation, FILE_SUFFIX));
+    }
+
+    static int generationOf(Path file) {
+        return parseGeneration(file, FILE_PREFIX, FILE_SUFFIX);
+    }
+
+    static int parseGeneration(Path file, String prefix, String suffix) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(prefix) || !name.endsWith(suffix)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.codesmells.dispensables.dataclass.bad;
+
+import com.codesmells.common.Money;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Currency;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Account store for tens of millions of accounts without a
+ * {@link BankAccount} object, or any other object, per account.
+ *
+ * Accounts are rows in columns held in direct (off-heap) buffers of a
+ * million rows each: balances as {@code long} minor units, account types as
+ * one-byte codes into a small dictionary, and account numbers as fixed-width
+ * ASCII. Account numbers are found through an open-addressing table of row
+ * numbers sized up front, so it never rehashes. The garbage collector only
+ * sees a handful of buffers and one int array, however many accounts there
+ * are.
+ *
+ * Deposits and withdrawals follow the same rules as {@link BankingService}
+ * and update the balance with a compare-and-set on the off-heap column.
+ * Adding accounts is serialized; lookups and balance changes never lock.
+ */
+public class OffHeapAccountStore {
+
+    private static final int CHUNK_SHIFT = 20;
+    private static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_ROWS - 1;
+    private static final int MAX_ACCOUNT_TYPES = 128;
+    private static final int MAX_NUMBER_WIDTH = 256;
+    private static final double MAX_LOAD_FACTOR = 0.6;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final Currency currency;
+    private final int maxAccounts;
+    private final int numberWidth;
+
+    private final ByteBuffer[] balances;
+    private final ByteBuffer[] numbers;
+    private final ByteBuffer[] types;
+    // Row + 1 per slot, 0 for empty; a volatile set publishes the row's columns to readers
+    private final AtomicIntegerArray index;
+    private final int indexMask;
+
+    private final String[] typeNames = new String[MAX_ACCOUNT_TYPES];
+    private final long[] typeLimits = new long[MAX_ACCOUNT_TYPES];
+    private int typeCount;
+    private volatile int size;
+
+    /**
+     * @param maxAccounts accounts the store can hold; the index is sized for it up front
+     * @param numberWidth maximum account number length, in ASCII characters
+     */
+    public OffHeapAccountStore(Currency currency, int maxAccounts, int numberWidth) {
+        if (maxAccounts <= 0 || numberWidth <= 0 || numberWidth > MAX_NUMBER_WIDTH) {
+            throw new IllegalArgumentException("Capacity must be positive and account number width 1 to " + MAX_NUMBER_WIDTH);
+        }
+        long slots = Long.highestOneBit((long) Math.ceil(maxAccounts / MAX_LOAD_FACTOR) - 1) << 1;
+        if (slots > 1 << 30) {
+            throw new IllegalArgumentException("Too many accounts: " + maxAccounts);
+        }
+        this.currency = currency;
+        this.maxAccounts = maxAccounts;
+        this.numberWidth = numberWidth;
+        int chunks = (int) (((long) maxAccounts + CHUNK_ROWS - 1) >>> CHUNK_SHIFT);
+        this.balances = new ByteBuffer[chunks];
+        this.numbers = new ByteBuffer[chunks];
+        this.types = new ByteBuffer[chunks];
+        this.index = new AtomicIntegerArray((int) slots);
+        this.indexMask = (int) slots - 1;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the number is taken or not printable ASCII within the width
+     * @throws IllegalStateException if the store is full
+     */
+    public synchronized void add(String accountNumber, String accountType, Money initialBalance) {
+        requireValidNumber(accountNumber);
+        requireSameCurrency(initialBalance);
+        if (find(accountNumber) >= 0) {
+            throw new IllegalArgumentException("Account already exists: " + accountNumber);
+        }
+        int row = size;
+        if (row >= maxAccounts) {
+            throw new IllegalStateException("Account store is full");
+        }
+        int chunk = row >>> CHUNK_SHIFT;
+        if (balances[chunk] == null) {
+            balances[chunk] = allocate((long) CHUNK_ROWS * Long.BYTES);
+            numbers[chunk] = allocate((long) CHUNK_ROWS * numberWidth);
+            types[chunk] = allocate(CHUNK_ROWS);
+        }
+        int offset = row & CHUNK_MASK;
+        ByteBuffer numberColumn = numbers[chunk];
+        int numberOffset = offset * numberWidth;
+        for (int i = 0; i < numberWidth; i++) {
+            numberColumn.put(numberOffset + i, i < accountNumber.length() ? (byte) accountNumber.charAt(i) : 0);
+        }
+        types[chunk].put(offset, typeCode(accountType));
+        LONGS.set(balances[chunk], offset * Long.BYTES, initialBalance.getMinorUnits());
+        size = row + 1;
+
+        int slot = spread(accountNumber.hashCode()) & indexMask;
+        while (index.get(slot) != 0) {
+            slot = (slot + 1) & indexMask;
+        }
+        index.set(slot, row + 1);
+    }
+
+    /**
+     * Row of the account, or -1 if there is no such account.
+     */
+    public int find(String accountNumber) {
+        if (accountNumber.length() > numberWidth) {
+            return -1;
+        }
+        int slot = spread(accountNumber.hashCode()) & indexMask;
+        int entry;
+        while ((entry = index.get(slot)) != 0) {
+            if (numberEquals(entry - 1, accountNumber)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & indexMask;
+        }
+        return -1;
+    }
+
+    public Money getBalance(String accountNumber) {
+        return Money.ofMinor(getBalanceMinorUnits(requireRow(accountNumber)), currency);
+    }
+
+    public String getAccountType(String accountNumber) {
+        return typeNames[typeCodeOf(requireRow(accountNumber))];
+    }
+
+    public void deposit(String accountNumber, Money amount) {
+        if (!amount.isPositive()) {
+            throw new IllegalArgumentException("Deposit amount must be positive");
+        }
+        requireSameCurrency(amount);
+        int row = requireRow(accountNumber);
+        ByteBuffer column = balances[row >>> CHUNK_SHIFT];
+        int offset = (row & CHUNK_MASK) * Long.BYTES;
+        long minorUnits = amount.getMinorUnits();
+        long current;
+        do {
+            current = (long) LONGS.getVolatile(column, offset);
+        } while (!LONGS.compareAndSet(column, offset, current, Math.addExact(current, minorUnits)));
+    }
+
+    public void withdraw(String accountNumber, Money amount) {
+        if (!amount.isPositive()) {
+            throw new IllegalArgumentException("Withdrawal amount must be positive");
+        }
+        requireSameCurrency(amount);
+        int row = requireRow(accountNumber);
+        long limit = typeLimits[typeCodeOf(row)];
+        ByteBuffer column = balances[row >>> CHUNK_SHIFT];
+        int offset = (row & CHUNK_MASK) * Long.BYTES;
+        long minorUnits = amount.getMinorUnits();
+        long current;
+        do {
+            current = (long) LONGS.getVolatile(column, offset);
+            if (current < minorUnits) {
+                throw new IllegalArgumentException("Insufficient funds");
+            }
+            if (minorUnits > limit) {
+                throw new IllegalArgumentException("Amount exceeds withdrawal limit");
+            }
+        } while (!LONGS.compareAndSet(column, offset, current, current - minorUnits));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    /**
+     * Bytes of direct memory held by the columns.
+     */
+    public long getOffHeapBytes() {
+        long bytes = 0;
+        for (int chunk = 0; chunk < balances.length; chunk++) {
+            if (balances[chunk] != null) {
+                bytes += balances[chunk].capacity() + numbers[chunk].capacity() + types[chunk].capacity();
+            }
+        }
+        return bytes;
+    }
+
+    private long getBalanceMinorUnits(int row) {
+        return (long) LONGS.getVolatile(balances[row >>> CHUNK_SHIFT], (row & CHUNK_MASK) * Long.BYTES);
+    }
+
+    private int typeCodeOf(int row) {
+        return types[row >>> CHUNK_SHIFT].get(row & CHUNK_MASK);
+    }
+
+    private byte typeCode(String accountType) {
+        for (int code = 0; code < typeCount; code++) {
+            if (typeNames[code].equals(accountType)) {
+                return (byte) code;
+            }
+        }
+        if (typeCount == MAX_ACCOUNT_TYPES) {
+            throw new IllegalStateException("Too many account types");
+        }
+        typeNames[typeCount] = accountType;
+        typeLimits[typeCount] = BankingService.withdrawalLimit(accountType, currency).getMinorUnits();
+        return (byte) typeCount++;
+    }
+
+    private boolean numberEquals(int row, String accountNumber) {
+        ByteBuffer column = numbers[row >>> CHUNK_SHIFT];
+        int offset = (row & CHUNK_MASK) * numberWidth;
+        int length = accountNumber.length();
+        for (int i = 0; i < length; i++) {
+            if (column.get(offset + i) != accountNumber.charAt(i)) {
+                return false;
+            }
+        }
+        return length == numberWidth || column.get(offset + length) == 0;
+    }
+
+    private int requireRow(String accountNumber) {
+        int row = find(accountNumber);
+        if (row < 0) {
+            throw new IllegalArgumentException("Unknown account: " + accountNumber);
+        }
+        return row;
+    }
+
+    private void requireValidNumber(String accountNumber) {
+        if (accountNumber.isEmpty() || accountNumber.length() > numberWidth) {
+            throw new IllegalArgumentException("Account number must be 1 to " + numberWidth + " characters");
+        }
+        for (int i = 0; i < accountNumber.length(); i++) {
+            char c = accountNumber.charAt(i);
+            if (c <= ' ' || c > '~') {
+                throw new IllegalArgumentException("Account number must be printable ASCII: " + accountNumber);
+            }
+        }
+    }
+
+    private void requireSameCurrency(Money amount) {
+        if (!currency.equals(amount.getCurrency())) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + amount.getCurrency());
+        }
+    }
+
+    private static int spread(int hash) {
+        hash *= 0x9e3779b9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static ByteBuffer allocate(long bytes) {
+        // Aligned so longs can be updated atomically through the VarHandle
+        return ByteBuffer.allocateDirect(Math.toIntExact(bytes + Long.BYTES)).alignedSlice(Long.BYTES)
+            .order(ByteOrder.nativeOrder());
+    }
+}
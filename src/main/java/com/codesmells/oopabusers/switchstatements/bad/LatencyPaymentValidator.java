@@ -0,0 +1,27 @@
+package com.codesmells.oopabusers.switchstatements.bad;
+
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Local stand-in for a remote card, bank or wallet check. Waits for a fixed
+ * latency, like a network round trip, and rejects non-positive amounts.
+ */
+public class LatencyPaymentValidator implements PaymentValidator {
+
+    private final long latencyNanos;
+
+    public LatencyPaymentValidator(Duration latency) {
+        this.latencyNanos = latency.toNanos();
+    }
+
+    @Override
+    public void validate(PaymentMethod method, double amount) {
+        if (latencyNanos > 0) {
+            LockSupport.parkNanos(latencyNanos);
+        }
+        if (!(amount > 0)) {
+            throw new IllegalArgumentException("Amount must be positive for " + method.getName());
+        }
+    }
+}
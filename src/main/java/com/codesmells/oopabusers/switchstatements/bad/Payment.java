@@ -0,0 +1,24 @@
+package com.codesmells.oopabusers.switchstatements.bad;
+
+/**
+ * One payment submitted to a {@link PaymentPipeline}.
+ */
+public final class Payment {
+
+    private final String accountId;
+    private final PaymentMethod method;
+    private final double amount;
+
+    public Payment(String accountId, PaymentMethod method, double amount) {
+        if (accountId == null || method == null) {
+            throw new IllegalArgumentException("Account and payment method are required");
+        }
+        this.accountId = accountId;
+        this.method = method;
+        this.amount = amount;
+    }
+
+    public String getAccountId() { return accountId; }
+    public PaymentMethod getMethod() { return method; }
+    public double getAmount() { return amount; }
+}
@@ -0,0 +1,31 @@
+package com.codesmells.oopabusers.switchstatements.bad;
+
+/**
+ * Interned handle for a payment method registered in a
+ * {@link PaymentMethodRegistry}.
+ *
+ * Resolve the payment type string once and keep the handle; its id indexes
+ * the registry's fee, description, processing time and validator arrays, so
+ * no further string hashing or comparison is needed per call.
+ */
+public final class PaymentMethod {
+
+    private final int id;
+    private final String name;
+    private final String displayName;
+
+    PaymentMethod(int id, String name, String displayName) {
+        this.id = id;
+        this.name = name;
+        this.displayName = displayName;
+    }
+
+    public int getId() { return id; }
+    public String getName() { return name; }
+    public String getDisplayName() { return displayName; }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
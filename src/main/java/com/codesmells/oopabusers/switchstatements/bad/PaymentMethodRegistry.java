@@ -0,0 +1,137 @@
+package com.codesmells.oopabusers.switchstatements.bad;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Registry of payment methods and their fee rate, description, processing
+ * time and validator.
+ *
+ * Each method gets a dense id on registration; its attributes live in arrays
+ * indexed by that id, so dispatching on a {@link PaymentMethod} is an array
+ * read instead of a switch on the type string. New methods are registered at
+ * startup without touching {@link PaymentService}. Registration copies the
+ * tables and publishes them through a volatile field, so lookups never lock.
+ */
+public class PaymentMethodRegistry {
+
+    private volatile Tables tables = new Tables(new HashMap<>(), new PaymentMethod[0], new double[0],
+        new String[0], new int[0], new PaymentValidator[0]);
+
+    /**
+     * Credit card, debit card, PayPal and Bitcoin with the fees and
+     * processing times that used to be hard-coded in PaymentService.
+     */
+    public static PaymentMethodRegistry defaults() {
+        PaymentMethodRegistry registry = new PaymentMethodRegistry();
+        registry.register("CREDIT_CARD", "credit card", 0.029, "Credit Card - Fast and secure", 1,
+            (method, amount) -> System.out.println("Validating credit card..."));
+        registry.register("DEBIT_CARD", "debit card", 0.015, "Debit Card - Direct bank transfer", 2,
+            (method, amount) -> System.out.println("Validating debit card..."));
+        registry.register("PAYPAL", "PayPal", 0.034, "PayPal - Popular online payment", 1,
+            (method, amount) -> System.out.println("Validating PayPal account..."));
+        registry.register("BITCOIN", "Bitcoin", 0.01, "Bitcoin - Cryptocurrency payment", 3,
+            (method, amount) -> System.out.println("Validating Bitcoin wallet..."));
+        return registry;
+    }
+
+    /**
+     * Adds a payment method.
+     *
+     * @param feeRate transaction fee as a fraction, e.g. 0.029 for 2.9%
+     * @param processingDays days until the payment settles
+     * @throws IllegalArgumentException if the name is already registered
+     */
+    public synchronized PaymentMethod register(String name, String displayName, double feeRate,
+                                               String description, int processingDays, PaymentValidator validator) {
+        Tables current = tables;
+        if (current.byName.containsKey(name)) {
+            throw new IllegalArgumentException("Payment method already registered: " + name);
+        }
+        int id = current.methods.length;
+        PaymentMethod method = new PaymentMethod(id, name, displayName);
+        Map<String, PaymentMethod> byName = new HashMap<>(current.byName);
+        byName.put(name, method);
+        PaymentMethod[] methods = Arrays.copyOf(current.methods, id + 1);
+        double[] feeRates = Arrays.copyOf(current.feeRates, id + 1);
+        String[] descriptions = Arrays.copyOf(current.descriptions, id + 1);
+        int[] processingTimes = Arrays.copyOf(current.processingDays, id + 1);
+        PaymentValidator[] validators = Arrays.copyOf(current.validators, id + 1);
+        methods[id] = method;
+        feeRates[id] = feeRate;
+        descriptions[id] = description;
+        processingTimes[id] = processingDays;
+        validators[id] = validator;
+        tables = new Tables(byName, methods, feeRates, descriptions, processingTimes, validators);
+        return method;
+    }
+
+    /**
+     * Swaps the validator of a registered method, e.g. for a stub in load tests.
+     */
+    public synchronized void setValidator(PaymentMethod method, PaymentValidator validator) {
+        Tables current = tables;
+        PaymentValidator[] validators = current.validators.clone();
+        validators[method.getId()] = validator;
+        tables = new Tables(current.byName, current.methods, current.feeRates,
+            current.descriptions, current.processingDays, validators);
+    }
+
+    /**
+     * @throws IllegalArgumentException if no such method is registered
+     */
+    public PaymentMethod resolve(String name) {
+        PaymentMethod method = find(name);
+        if (method == null) {
+            throw new IllegalArgumentException("Unknown payment type: " + name);
+        }
+        return method;
+    }
+
+    /**
+     * Returns the method, or null if none is registered under the name.
+     */
+    public PaymentMethod find(String name) {
+        return tables.byName.get(name);
+    }
+
+    public PaymentMethod[] getMethods() {
+        return tables.methods.clone();
+    }
+
+    public double feeRate(PaymentMethod method) {
+        return tables.feeRates[method.getId()];
+    }
+
+    public String description(PaymentMethod method) {
+        return tables.descriptions[method.getId()];
+    }
+
+    public int processingDays(PaymentMethod method) {
+        return tables.processingDays[method.getId()];
+    }
+
+    public PaymentValidator validator(PaymentMethod method) {
+        return tables.validators[method.getId()];
+    }
+
+    private static final class Tables {
+        final Map<String, PaymentMethod> byName;
+        final PaymentMethod[] methods;
+        final double[] feeRates;
+        final String[] descriptions;
+        final int[] processingDays;
+        final PaymentValidator[] validators;
+
+        Tables(Map<String, PaymentMethod> byName, PaymentMethod[] methods, double[] feeRates,
+               String[] descriptions, int[] processingDays, PaymentValidator[] validators) {
+            this.byName = byName;
+            this.methods = methods;
+            this.feeRates = feeRates;
+            this.descriptions = descriptions;
+            this.processingDays = processingDays;
+            this.validators = validators;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.codesmells.oopabusers.switchstatements.bad;
+
+/**
+ * Result of one payment processed by a {@link PaymentPipeline}.
+ */
+public final class PaymentOutcome {
+
+    private final Payment payment;
+    private final double fee;
+    private final String rejectionReason;
+
+    PaymentOutcome(Payment payment, double fee, String rejectionReason) {
+        this.payment = payment;
+        this.fee = fee;
+        this.rejectionReason = rejectionReason;
+    }
+
+    public Payment getPayment() { return payment; }
+    public double getFee() { return fee; }
+    public boolean isAccepted() { return rejectionReason == null; }
+
+    /**
+     * Why validation failed, or null if the payment was accepted.
+     */
+    public String getRejectionReason() { return rejectionReason; }
+}
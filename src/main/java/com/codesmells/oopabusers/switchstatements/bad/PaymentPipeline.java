@@ -0,0 +1,227 @@
+package com.codesmells.oopabusers.switchstatements.bad;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+/**
+ * Processes bursts of payments in three stages instead of one payment at a
+ * time on the caller thread.
+ *
+ * <ol>
+ *   <li>Grouping: a stable counting sort by payment method, and by account
+ *       into validation lanes.</li>
+ *   <li>Validation: each lane runs on the validation pool and calls the
+ *       method's {@link PaymentValidator} for its payments in submission
+ *       order. All payments of one account share a lane, so they are
+ *       validated in the order they were submitted.</li>
+ *   <li>Fees: computed in bulk per payment method on the caller thread while
+ *       validation is still running.</li>
+ * </ol>
+ *
+ * Validators are expected to block on remote calls, so the pool should have
+ * many more threads than cores. Ordering is guaranteed within one call to
+ * {@link #process}; concurrent calls for the same account are not ordered
+ * relative to each other.
+ */
+public class PaymentPipeline implements AutoCloseable {
+
+    private final PaymentMethodRegistry registry;
+    private final ExecutorService validationPool;
+    private final int lanes;
+
+    private final StageStats grouping = new StageStats();
+    private final StageStats validation = new StageStats();
+    private final StageStats fees = new StageStats();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+
+    /**
+     * @param validationThreads number of lanes validated concurrently
+     */
+    public PaymentPipeline(PaymentMethodRegistry registry, int validationThreads) {
+        if (validationThreads <= 0) {
+            throw new IllegalArgumentException("Validation threads must be positive");
+        }
+        this.registry = registry;
+        this.lanes = validationThreads;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.validationPool = Executors.newFixedThreadPool(validationThreads, runnable -> {
+            Thread thread = new Thread(runnable, "payment-validation-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Validates the payments and computes their fees. A payment whose method
+     * is not registered in this pipeline's registry is rejected on its own,
+     * with no fee, without failing the rest of the batch.
+     *
+     * @return one outcome per payment, in input order
+     */
+    public List<PaymentOutcome> process(List<Payment> payments) {
+        int count = payments.size();
+        if (count == 0) {
+            return new ArrayList<>();
+        }
+
+        long start = System.nanoTime();
+        PaymentMethod[] methods = registry.getMethods();
+        // Methods of another registry, or registered after the snapshot, go into one extra group and are rejected
+        int unknown = methods.length;
+        int[] byMethod = new int[count];
+        int[] methodStarts = groupBy(payments, methods.length + 1, byMethod,
+            payment -> isRegistered(methods, payment.getMethod()) ? payment.getMethod().getId() : unknown);
+        int[] byLane = new int[count];
+        int[] laneStarts = groupBy(payments, lanes, byLane, payment -> laneOf(payment.getAccountId()));
+        long grouped = System.nanoTime();
+        grouping.record(count, grouped - start);
+
+        String[] rejections = new String[count];
+        for (int i = methodStarts[unknown]; i < methodStarts[unknown + 1]; i++) {
+            rejections[byMethod[i]] = "Unknown payment method: " + payments.get(byMethod[i]).getMethod();
+        }
+        queueDepth.addAndGet(count);
+        List<Future<?>> lanesInFlight = new ArrayList<>(lanes);
+        for (int lane = 0; lane < lanes; lane++) {
+            int from = laneStarts[lane];
+            int to = laneStarts[lane + 1];
+            if (from < to) {
+                lanesInFlight.add(validationPool.submit(() -> validateLane(payments, byLane, from, to, rejections)));
+            }
+        }
+
+        long feesStart = System.nanoTime();
+        double[] feeAmounts = new double[count];
+        for (PaymentMethod method : methods) {
+            double feeRate = registry.feeRate(method);
+            for (int i = methodStarts[method.getId()]; i < methodStarts[method.getId() + 1]; i++) {
+                int payment = byMethod[i];
+                feeAmounts[payment] = payments.get(payment).getAmount() * feeRate;
+            }
+        }
+        fees.record(count, System.nanoTime() - feesStart);
+
+        awaitAll(lanesInFlight);
+        validation.record(count, System.nanoTime() - grouped);
+
+        List<PaymentOutcome> outcomes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            outcomes.add(new PaymentOutcome(payments.get(i), feeAmounts[i], rejections[i]));
+        }
+        return outcomes;
+    }
+
+    public StageStats getGroupingStats() { return grouping; }
+    public StageStats getValidationStats() { return validation; }
+    public StageStats getFeeStats() { return fees; }
+
+    /**
+     * Payments submitted for validation that have not been validated yet.
+     */
+    public int getQueueDepth() { return queueDepth.get(); }
+
+    private void validateLane(List<Payment> payments, int[] byLane, int from, int to, String[] rejections) {
+        for (int i = from; i < to; i++) {
+            int index = byLane[i];
+            Payment payment = payments.get(index);
+            try {
+                if (rejections[index] == null) {
+                    registry.validator(payment.getMethod()).validate(payment.getMethod(), payment.getAmount());
+                }
+            } catch (RuntimeException e) {
+                rejections[index] = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            } finally {
+                queueDepth.decrementAndGet();
+            }
+        }
+    }
+
+    private void awaitAll(List<Future<?>> futures) {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while validating payments", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Payment validation failed", e.getCause());
+        }
+    }
+
+    /**
+     * Stable counting sort of payment indices into groups.
+     *
+     * @param sorted receives the payment indices ordered by group
+     * @return start offset of each group in {@code sorted}, plus the total at the end
+     */
+    private static int[] groupBy(List<Payment> payments, int groups, int[] sorted, ToIntFunction<Payment> groupOf) {
+        int[] group = new int[payments.size()];
+        int[] starts = new int[groups + 1];
+        for (int i = 0; i < group.length; i++) {
+            group[i] = groupOf.applyAsInt(payments.get(i));
+            starts[group[i] + 1]++;
+        }
+        for (int g = 0; g < groups; g++) {
+            starts[g + 1] += starts[g];
+        }
+        int[] next = starts.clone();
+        for (int i = 0; i < group.length; i++) {
+            sorted[next[group[i]]++] = i;
+        }
+        return starts;
+    }
+
+    private static boolean isRegistered(PaymentMethod[] methods, PaymentMethod method) {
+        return method.getId() < methods.length && methods[method.getId()] == method;
+    }
+
+    private int laneOf(String accountId) {
+        int hash = accountId.hashCode();
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, lanes);
+    }
+
+    @Override
+    public void close() {
+        validationPool.shutdown();
+        try {
+            validationPool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Cumulative payment count and time spent in one stage.
+     */
+    public static final class StageStats {
+        private final AtomicLong payments = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+
+        void record(int count, long elapsedNanos) {
+            payments.addAndGet(count);
+            nanos.addAndGet(elapsedNanos);
+        }
+
+        public long getPaymentCount() { return payments.get(); }
+        public long getTotalNanos() { return nanos.get(); }
+
+        /**
+         * Payments per second while the stage was running.
+         */
+        public double getThroughputPerSecond() {
+            long elapsed = nanos.get();
+            return elapsed == 0 ? 0 : payments.get() * 1e9 / elapsed;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.codesmells.oopabusers.switchstatements.bad;
 
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 /**
  * BAD EXAMPLE: Switch Statements Code Smell
  * 
@@ -25,92 +27,83 @@ import org.springframework.stereotype.Service;
  * @see com.codesmells.oopabusers.switchstatements.good for refactored version
  */
 @Service
-public class PaymentService {
-    
+public class PaymentService implements AutoCloseable {
+
+    private static final int VALIDATION_THREADS = 64;
+
+    private final PaymentMethodRegistry registry;
+    private final PaymentPipeline pipeline;
+
+    public PaymentService() {
+        this(PaymentMethodRegistry.defaults());
+    }
+
+    public PaymentService(PaymentMethodRegistry registry) {
+        this.registry = registry;
+        this.pipeline = new PaymentPipeline(registry, VALIDATION_THREADS);
+    }
+
+    public PaymentMethodRegistry getRegistry() {
+        return registry;
+    }
+
     /**
-     * BAD: Switch statement based on payment type
-     * Adding a new payment type means modifying this method
+     * Resolves a payment type once, so callers can keep the handle.
      */
+    public PaymentMethod resolve(String paymentType) {
+        return registry.resolve(paymentType);
+    }
+
     public void processPayment(String paymentType, double amount) {
-        switch (paymentType) {
-            case "CREDIT_CARD":
-                System.out.println("Processing credit card payment: $" + amount);
-                applyTransactionFee(amount, 0.029); // 2.9% fee
-                validateCreditCard();
-                break;
-            case "DEBIT_CARD":
-                System.out.println("Processing debit card payment: $" + amount);
-                applyTransactionFee(amount, 0.015); // 1.5% fee
-                validateDebitCard();
-                break;
-            case "PAYPAL":
-                System.out.println("Processing PayPal payment: $" + amount);
-                applyTransactionFee(amount, 0.034); // 3.4% fee
-                validatePayPalAccount();
-                break;
-            case "BITCOIN":
-                System.out.println("Processing Bitcoin payment: $" + amount);
-                applyTransactionFee(amount, 0.01); // 1% fee
-                validateBitcoinWallet();
-                break;
-            default:
-                throw new IllegalArgumentException("Unknown payment type: " + paymentType);
-        }
+        processPayment(registry.resolve(paymentType), amount);
     }
-    
+
+    public void processPayment(PaymentMethod method, double amount) {
+        System.out.println("Processing " + method.getDisplayName() + " payment: $" + amount);
+        applyTransactionFee(amount, registry.feeRate(method));
+        registry.validator(method).validate(method, amount);
+    }
+
     /**
-     * BAD: Another switch on the same type - duplication
+     * Validates a burst of payments concurrently and computes fees in bulk,
+     * e.g. for the settlement window. Payments of the same account are
+     * validated in the order given.
      */
+    public List<PaymentOutcome> processPayments(List<Payment> payments) {
+        return pipeline.process(payments);
+    }
+
+    public PaymentPipeline getPipeline() {
+        return pipeline;
+    }
+
     public String getPaymentDescription(String paymentType) {
-        switch (paymentType) {
-            case "CREDIT_CARD":
-                return "Credit Card - Fast and secure";
-            case "DEBIT_CARD":
-                return "Debit Card - Direct bank transfer";
-            case "PAYPAL":
-                return "PayPal - Popular online payment";
-            case "BITCOIN":
-                return "Bitcoin - Cryptocurrency payment";
-            default:
-                return "Unknown payment method";
-        }
+        PaymentMethod method = registry.find(paymentType);
+        return method != null ? getPaymentDescription(method) : "Unknown payment method";
     }
-    
+
+    public String getPaymentDescription(PaymentMethod method) {
+        return registry.description(method);
+    }
+
     /**
-     * BAD: Yet another switch on the same type
+     * Processing time in days.
      */
     public int getProcessingTime(String paymentType) {
-        switch (paymentType) {
-            case "CREDIT_CARD":
-                return 1; // 1 day
-            case "DEBIT_CARD":
-                return 2; // 2 days
-            case "PAYPAL":
-                return 1; // 1 day
-            case "BITCOIN":
-                return 3; // 3 days (confirmation time)
-            default:
-                return 5;
-        }
+        PaymentMethod method = registry.find(paymentType);
+        return method != null ? getProcessingTime(method) : 5;
     }
-    
+
+    public int getProcessingTime(PaymentMethod method) {
+        return registry.processingDays(method);
+    }
+
     private void applyTransactionFee(double amount, double feeRate) {
         System.out.println("Transaction fee: $" + (amount * feeRate));
     }
-    
-    private void validateCreditCard() {
-        System.out.println("Validating credit card...");
-    }
-    
-    private void validateDebitCard() {
-        System.out.println("Validating debit card...");
-    }
-    
-    private void validatePayPalAccount() {
-        System.out.println("Validating PayPal account...");
-    }
-    
-    private void validateBitcoinWallet() {
-        System.out.println("Validating Bitcoin wallet...");
+
+    @Override
+    public void close() {
+        pipeline.close();
     }
 }
@@ -0,0 +1,11 @@
+package com.codesmells.oopabusers.switchstatements.bad;
+
+/**
+ * Checks that a payment can be made with its method, e.g. that a card or
+ * wallet is valid. Throws to reject the payment.
+ */
+@FunctionalInterface
+public interface PaymentValidator {
+
+    void validate(PaymentMethod method, double amount);
+}
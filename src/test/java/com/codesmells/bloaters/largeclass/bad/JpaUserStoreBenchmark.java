@@ -0,0 +1,118 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link JpaUserStore} against an in-memory H2 database: a
+ * {@link UserManager#getUser} that hits the cache, one that has to load the
+ * row, and inserting users one save at a time versus through
+ * {@link JpaUserStore#createAll} in one batched transaction.
+ *
+ * Insert scores are per user. Password hashing is left out of the insert
+ * benchmarks because UserManager calibrates it to 50 ms per hash, which
+ * would hide the database cost entirely. Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.codesmells.bloaters.largeclass.bad.JpaUserStoreBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JpaUserStoreBenchmark {
+
+    private static final int USERS = 10_000;
+    private static final int BATCH = 100;
+
+    private ConfigurableApplicationContext context;
+    private JpaUserStore store;
+    private UserManager users;
+    private String[] userIds;
+    private int nextLookup;
+    private int nextInsert;
+
+    @Setup
+    public void setUp() {
+        context = JpaUserStoreContext.start("jpa-user-store-benchmark");
+        store = context.getBean(JpaUserStore.class);
+        users = new UserManager(store);
+        userIds = new String[USERS];
+        List<UserManager.User> batch = new ArrayList<>(USERS);
+        List<String> hashes = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            userIds[i] = "user-" + i;
+            batch.add(new UserManager.User(userIds[i], "User " + i, userIds[i] + "@example.com"));
+            hashes.add("hash");
+        }
+        store.createAll(batch, hashes);
+    }
+
+    @TearDown
+    public void tearDown() {
+        users.close();
+        context.close();
+    }
+
+    @Benchmark
+    public UserManager.User getUserCacheHit() {
+        return users.getUser(userIds[nextLookup++ % USERS]);
+    }
+
+    @Benchmark
+    public UserManager.User getUserCacheMiss() {
+        String userId = userIds[nextLookup++ % USERS];
+        store.getCache().invalidate(userId);
+        return users.getUser(userId);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void createOneByOne() {
+        for (int i = 0; i < BATCH; i++) {
+            store.create(newUser(), "hash");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void createAllBatched() {
+        List<UserManager.User> batch = new ArrayList<>(BATCH);
+        List<String> hashes = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(newUser());
+            hashes.add("hash");
+        }
+        store.createAll(batch, hashes);
+    }
+
+    private UserManager.User newUser() {
+        String userId = "new-" + nextInsert++;
+        return new UserManager.User(userId, "New " + userId, userId + "@example.com");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JpaUserStoreBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,35 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Smallest Spring context that runs {@link JpaUserStore}, backed by a private
+ * in-memory H2 database instead of the file configured in
+ * application.properties. Shared by the tests and benchmarks.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@EntityScan(basePackageClasses = UserEntity.class)
+@EnableJpaRepositories(basePackageClasses = UserEntityRepository.class)
+@Import(JpaUserStore.class)
+class JpaUserStoreContext {
+
+    static ConfigurableApplicationContext start(String databaseName) {
+        // Passed as arguments because those override application.properties
+        return new SpringApplicationBuilder(JpaUserStoreContext.class)
+            .web(WebApplicationType.NONE)
+            .bannerMode(Banner.Mode.OFF)
+            .run("--spring.datasource.url=jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--spring.h2.console.enabled=false");
+    }
+}
@@ -0,0 +1,130 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JpaUserStoreTest {
+
+    private static ConfigurableApplicationContext context;
+    private static JpaUserStore store;
+    private static UserEntityRepository repository;
+
+    @BeforeAll
+    static void startDatabase() {
+        context = JpaUserStoreContext.start("jpa-user-store-test");
+        store = context.getBean(JpaUserStore.class);
+        repository = context.getBean(UserEntityRepository.class);
+    }
+
+    @AfterAll
+    static void stopDatabase() {
+        context.close();
+    }
+
+    @Test
+    void findLoadsOnceAndThenServesTheCachedUser() {
+        store.create(user("cache-1"), "hash");
+        store.getCache().invalidate("cache-1");
+        long misses = store.getCache().getMissCount();
+        long hits = store.getCache().getHitCount();
+
+        UserManager.User loaded = store.find("cache-1");
+        assertSame(loaded, store.find("cache-1"));
+
+        assertEquals(misses + 1, store.getCache().getMissCount());
+        assertEquals(hits + 1, store.getCache().getHitCount());
+        assertNull(store.find("cache-missing"));
+        assertNull(store.getCache().get("cache-missing"), "a missing user must not be cached");
+    }
+
+    @Test
+    void profileUpdatesAreVisibleAtOnceAndWrittenOnFlush() {
+        store.create(user("behind-1"), "hash");
+        UserManager.User changed = new UserManager.User("behind-1", "Renamed", "renamed@example.com");
+
+        store.updateProfile(changed);
+        assertEquals("Renamed", store.find("behind-1").getName());
+        assertEquals("Name behind-1", repository.findById("behind-1").orElseThrow().getName());
+        // Evicted before the flush: the pending update must still win over the stale row
+        store.getCache().invalidate("behind-1");
+        assertEquals("Renamed", store.find("behind-1").getName());
+
+        store.flush();
+        assertEquals(0, store.getPendingWriteCount());
+        assertEquals("Renamed", repository.findById("behind-1").orElseThrow().getName());
+        assertEquals("renamed@example.com", repository.findById("behind-1").orElseThrow().getEmail());
+    }
+
+    @Test
+    void deleteRemovesTheRowAndTheCachedUser() {
+        store.create(user("delete-1"), "hash");
+        store.updateProfile(new UserManager.User("delete-1", "Renamed", "renamed@example.com"));
+        assertNotNull(store.find("delete-1"));
+
+        store.delete("delete-1");
+
+        assertNull(store.find("delete-1"));
+        assertFalse(repository.existsById("delete-1"));
+        store.flush();
+        assertFalse(repository.existsById("delete-1"), "a pending update must not bring the row back");
+    }
+
+    @Test
+    void aLoadThatReadTheRowBeforeADeleteDoesNotCacheIt() {
+        store.create(user("inflight-1"), "hash");
+        store.getCache().invalidate("inflight-1");
+
+        // The load reads the row, then the delete runs to completion before the load stores its result
+        UserManager.User stale = store.getCache().get("inflight-1", userId -> {
+            UserManager.User loaded = repository.findById(userId).map(UserEntity::toUser).orElse(null);
+            store.delete(userId);
+            return loaded;
+        });
+
+        assertNotNull(stale);
+        assertNull(store.find("inflight-1"));
+    }
+
+    @Test
+    void createAllInsertsEveryUserOrNone() {
+        store.createAll(List.of(user("bulk-1"), user("bulk-2")), List.of("hash-1", "hash-2"));
+        assertEquals("hash-2", store.findPasswordHash("bulk-2"));
+        assertEquals(List.of(), store.findRoles("bulk-1"));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> store.createAll(List.of(user("bulk-3"), user("bulk-1")), List.of("hash-3", "hash-1")));
+        assertThrows(IllegalArgumentException.class,
+            () -> store.createAll(List.of(user("bulk-4"), user("bulk-4")), List.of("hash-4", "hash-4")));
+        assertFalse(repository.existsById("bulk-3"));
+        assertFalse(repository.existsById("bulk-4"));
+    }
+
+    @Test
+    void createUsersGoesThroughTheBulkInsert() {
+        try (UserManager users = new UserManager(store)) {
+            users.createUsers(List.of(
+                new UserManager.NewUser("manager-1", "One", "one@example.com", "password-1"),
+                new UserManager.NewUser("manager-2", "Two", "two@example.com", "password-2")));
+
+            assertTrue(repository.existsById("manager-1"));
+            assertNotNull(users.login("manager-2", "password-2"));
+            assertNull(users.login("manager-2", "password-1"));
+        }
+    }
+
+    private static UserManager.User user(String userId) {
+        return new UserManager.User(userId, "Name " + userId, userId + "@example.com");
+    }
+}
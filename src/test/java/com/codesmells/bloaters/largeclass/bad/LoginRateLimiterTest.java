@@ -0,0 +1,91 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginRateLimiterTest {
+
+    private static final Clock FIXED = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    @Test
+    void heapStaysFlatUnderOneMillionDistinctBogusUserIds() {
+        LoginRateLimiter limiter = new LoginRateLimiter(3, Duration.ofMinutes(15), 1 << 18);
+        for (int i = 0; i < 3; i++) {
+            limiter.recordFailure("victim");
+        }
+        warmUp(limiter);
+        long before = usedHeapAfterGc();
+
+        for (int i = 0; i < 1_000_000; i++) {
+            limiter.recordFailure("bogus-user-" + i);
+        }
+
+        long growth = usedHeapAfterGc() - before;
+        assertTrue(growth < 8L << 20, "heap grew by " + (growth >> 10) + " KB");
+        assertTrue(limiter.isLimited("victim"));
+        int limited = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (limiter.isLimited("fresh-" + i)) {
+                limited++;
+            }
+        }
+        assertTrue(limited < 100, limited + " of 10000 fresh keys were limited by the flood");
+    }
+
+    @Test
+    void resetOnlyClearsTheResetKey() {
+        // Narrow rows, so every key shares counters with many others
+        LoginRateLimiter limiter = new LoginRateLimiter(3, Duration.ofMinutes(15), 64, FIXED);
+        for (int i = 0; i < 3; i++) {
+            limiter.recordFailure("attacker");
+        }
+        for (int i = 0; i < 10_000; i++) {
+            String user = "user-" + i;
+            limiter.recordFailure(user);
+            limiter.reset(user);
+        }
+
+        assertTrue(limiter.isLimited("attacker"), "resets of other users must not erase the attacker's failures");
+        assertTrue(limiter.getResetCount() <= 256, "remembered resets must stay bounded");
+    }
+
+    @Test
+    void failuresCountAgainAfterAReset() {
+        LoginRateLimiter limiter = new LoginRateLimiter(3, Duration.ofMinutes(15), 1 << 10, FIXED);
+        for (int i = 0; i < 3; i++) {
+            limiter.recordFailure("alice");
+        }
+        assertTrue(limiter.isLimited("alice"));
+
+        limiter.reset("alice");
+        assertEquals(0.0, limiter.estimate("alice"));
+
+        for (int i = 0; i < 3; i++) {
+            limiter.recordFailure("alice");
+        }
+        assertTrue(limiter.isLimited("alice"));
+    }
+
+    private static void warmUp(LoginRateLimiter limiter) {
+        for (int i = 0; i < 10_000; i++) {
+            limiter.recordFailure("warm-up-" + i);
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,84 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHashingTest {
+
+    @Test
+    void verifiesOnlyTheHashedPassword() {
+        Pbkdf2PasswordHasher hasher = new Pbkdf2PasswordHasher(10_000);
+        String stored = hasher.hash("correct horse");
+
+        assertTrue(stored.startsWith("pbkdf2$10000$"));
+        assertTrue(hasher.verify("correct horse", stored));
+        assertFalse(hasher.verify("correct horsf", stored));
+        assertFalse(hasher.verify("correct horse", stored.substring(0, stored.length() - 4) + "AAA="));
+        assertFalse(hasher.verify("correct horse", "not-a-hash"));
+        assertFalse(hasher.verify("correct horse", null));
+        assertNotEquals(stored, hasher.hash("correct horse"), "every hash gets its own salt");
+    }
+
+    @Test
+    void hashesKeepVerifyingAfterTheIterationCountIsRaised() {
+        String stored = new Pbkdf2PasswordHasher(10_000).hash("password");
+        assertTrue(new Pbkdf2PasswordHasher(40_000).verify("password", stored));
+    }
+
+    @Test
+    void calibrationApproachesTheTargetLatency() {
+        Duration target = Duration.ofMillis(20);
+        Pbkdf2PasswordHasher hasher = Pbkdf2PasswordHasher.calibrated(target);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            hasher.hash("password");
+        }
+        long averageNanos = (System.nanoTime() - start) / 3;
+        // Calibration stops at the first doubling that reaches the target
+        assertTrue(averageNanos >= target.toNanos() / 4,
+            "a hash took " + TimeUnit.NANOSECONDS.toMillis(averageNanos) + " ms at " + hasher.getIterations() + " iterations");
+    }
+
+    @Test
+    void saturatedPoolRejectsInsteadOfQueueingWithoutLimit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordHasher blocking = new PasswordHasher() {
+            @Override
+            public String hash(String password) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hash:" + password;
+            }
+
+            @Override
+            public boolean verify(String password, String storedHash) {
+                return storedHash.equals(hash(password));
+            }
+        };
+        try (PasswordHashingExecutor executor = new PasswordHashingExecutor(blocking, 1, 1, 5_000)) {
+            CompletableFuture<String> running = executor.hashAsync("a");
+            CompletableFuture<String> queued = executor.hashAsync("b");
+
+            assertThrows(IllegalStateException.class, () -> executor.hash("c"));
+            assertEquals(1, executor.getRejectedCount());
+
+            release.countDown();
+            assertEquals("hash:a", running.get(5, TimeUnit.SECONDS));
+            assertEquals("hash:b", queued.get(5, TimeUnit.SECONDS));
+        }
+    }
+}
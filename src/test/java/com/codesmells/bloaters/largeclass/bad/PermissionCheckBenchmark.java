@@ -0,0 +1,104 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the original role list walk against compiled permission bitsets.
+ *
+ * Each role grants three permissions of its own and the checked permission is
+ * granted only by the last role, so the list walk has to visit every role.
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.codesmells.bloaters.largeclass.bad.PermissionCheckBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionCheckBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int roleCount;
+
+    private List<String> roles;
+    private Map<String, Set<String>> grantsByRole;
+    private PermissionRegistry registry;
+    private PermissionRegistry.CompiledPermissions compiled;
+    private String lastRole;
+    private String lastPermission;
+
+    @Setup
+    public void setUp() {
+        roles = new ArrayList<>();
+        grantsByRole = new HashMap<>();
+        registry = new PermissionRegistry();
+        for (int r = 0; r < roleCount; r++) {
+            String role = "role-" + r;
+            roles.add(role);
+            Set<String> grants = new HashSet<>();
+            for (int p = 0; p < 3; p++) {
+                String permission = "permission-" + r + "-" + p;
+                grants.add(permission);
+                registry.grant(role, permission);
+            }
+            grantsByRole.put(role, grants);
+        }
+        compiled = registry.compile(roles);
+        lastRole = roles.get(roleCount - 1);
+        lastPermission = "permission-" + (roleCount - 1) + "-2";
+    }
+
+    @Benchmark
+    public boolean hasPermissionListWalk() {
+        for (String role : roles) {
+            if (grantsByRole.getOrDefault(role, Set.of()).contains(lastPermission)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean hasPermissionCompiled() {
+        return compiled.hasPermission(registry.permissionIdIfPresent(lastPermission));
+    }
+
+    @Benchmark
+    public boolean hasRoleListContains() {
+        return roles.contains(lastRole);
+    }
+
+    @Benchmark
+    public boolean hasRoleCompiled() {
+        return compiled.hasRole(registry.roleIdIfPresent(lastRole));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PermissionCheckBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,84 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SessionStoreTest {
+
+    @Test
+    void aSessionVisibleBeforeRemoveAllForUserDoesNotSurviveIt() throws Exception {
+        try (SessionStore store = new SessionStore(Duration.ofHours(1), Duration.ofHours(1))) {
+            int creatorCount = 4;
+            AtomicReferenceArray<String> creating = new AtomicReferenceArray<>(creatorCount);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> creators = new ArrayList<>();
+            for (int t = 0; t < creatorCount; t++) {
+                int thread = t;
+                Thread creator = new Thread(() -> {
+                    awaitQuietly(start);
+                    for (int i = 0; i < 50_000; i++) {
+                        String sessionId = "s-" + thread + "-" + i;
+                        creating.set(thread, sessionId);
+                        store.create(sessionId, "alice");
+                    }
+                });
+                creator.start();
+                creators.add(creator);
+            }
+            start.countDown();
+            List<String> survivors = new ArrayList<>();
+            while (creators.stream().anyMatch(Thread::isAlive)) {
+                List<String> visible = new ArrayList<>();
+                for (int t = 0; t < creatorCount; t++) {
+                    String sessionId = creating.get(t);
+                    if (sessionId != null && store.get(sessionId) != null) {
+                        visible.add(sessionId);
+                    }
+                }
+                store.removeAllForUser("alice");
+                for (String sessionId : visible) {
+                    if (store.get(sessionId) != null) {
+                        survivors.add(sessionId);
+                    }
+                }
+            }
+            for (Thread creator : creators) {
+                creator.join();
+            }
+
+            assertEquals(List.of(), survivors, "sessions that were live before the revoke outlived it");
+            store.removeAllForUser("alice");
+            assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    void removeAllForUserLeavesOtherUsersAlone() {
+        try (SessionStore store = new SessionStore(Duration.ofHours(1), Duration.ofHours(1))) {
+            store.create("a1", "alice");
+            store.create("a2", "alice");
+            store.create("b1", "bob");
+
+            assertEquals(2, store.removeAllForUser("alice"));
+            assertNull(store.get("a1"));
+            assertEquals("bob", store.get("b1").getUserId());
+            assertEquals(1, store.size());
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link UserManager#isSessionValid} throughput as the number of
+ * validating threads grows.
+ *
+ * Sixty-four users hold one session each; every thread walks the session ids
+ * from its own offset, and {@code unknownSession} checks ids that were never
+ * issued. {@link #main} repeats the run at 1, 2, 4, ... 64 threads and JMH
+ * prints the validations per second for each. Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.codesmells.bloaters.largeclass.bad.SessionValidationBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionValidationBenchmark {
+
+    private static final int USER_COUNT = 64;
+
+    private UserManager users;
+    private String[] sessionIds;
+    private String[] unknownIds;
+
+    @Setup
+    public void setUp() {
+        users = new UserManager();
+        sessionIds = new String[USER_COUNT];
+        unknownIds = new String[USER_COUNT];
+        for (int i = 0; i < USER_COUNT; i++) {
+            String userId = "user-" + i;
+            users.createUser(userId, "User " + i, userId + "@example.com", "password");
+            sessionIds[i] = users.login(userId, "password");
+            unknownIds[i] = UUID.randomUUID().toString();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        users.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            next = (int) (Thread.currentThread().getId() % USER_COUNT);
+        }
+
+        int next() {
+            next = (next + 1) & (USER_COUNT - 1);
+            return next;
+        }
+    }
+
+    @Benchmark
+    public boolean validSession(Cursor cursor) {
+        return users.isSessionValid(sessionIds[cursor.next()]);
+    }
+
+    @Benchmark
+    public boolean unknownSession(Cursor cursor) {
+        return users.isSessionValid(unknownIds[cursor.next()]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            new Runner(new OptionsBuilder()
+                .include(SessionValidationBenchmark.class.getSimpleName())
+                .threads(threads)
+                .build()).run();
+        }
+    }
+}
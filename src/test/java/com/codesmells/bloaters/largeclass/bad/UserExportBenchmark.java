@@ -0,0 +1,91 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports 100k users through the copying list, the keyset pages and the
+ * stream. Run with the GC profiler, as {@link #main} does, and compare
+ * {@code gc.alloc.rate.norm}: bytes allocated per export.
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.codesmells.bloaters.largeclass.bad.UserExportBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserExportBenchmark {
+
+    private static final int USERS = 100_000;
+    private static final int PAGE_SIZE = 1_000;
+
+    private UserManager users;
+
+    @Setup
+    public void setUp() {
+        InMemoryUserStore store = new InMemoryUserStore();
+        for (int i = 0; i < USERS; i++) {
+            String userId = String.format("user-%06d", i);
+            store.create(new UserManager.User(userId, "User " + i, userId + "@example.com"), "hash");
+        }
+        users = new UserManager(store);
+    }
+
+    @TearDown
+    public void tearDown() {
+        users.close();
+    }
+
+    @Benchmark
+    public void exportAllUsersCopy(Blackhole blackhole) {
+        for (UserManager.User user : users.getAllUsers()) {
+            blackhole.consume(user.getEmail());
+        }
+    }
+
+    @Benchmark
+    public void exportPaged(Blackhole blackhole) {
+        UserManager.UserPage page = users.getUsers(null, PAGE_SIZE);
+        while (true) {
+            for (UserManager.User user : page.getUsers()) {
+                blackhole.consume(user.getEmail());
+            }
+            if (!page.hasNext()) {
+                return;
+            }
+            page = users.getUsers(page.getNextCursor(), PAGE_SIZE);
+        }
+    }
+
+    @Benchmark
+    public void exportStreamed(Blackhole blackhole) {
+        users.streamUsers().forEach(user -> blackhole.consume(user.getEmail()));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(UserExportBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+}
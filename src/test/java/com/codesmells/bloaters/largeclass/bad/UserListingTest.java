@@ -0,0 +1,80 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserListingTest {
+
+    @Test
+    void pagesNeitherRepeatNorSkipUsersWhileOthersAreCreatedAndDeleted() {
+        InMemoryUserStore store = new InMemoryUserStore();
+        try (UserManager users = new UserManager(store)) {
+            for (int i = 0; i < 1_000; i += 2) {
+                addUser(store, i);
+            }
+
+            List<String> listed = new ArrayList<>();
+            TreeSet<String> deleted = new TreeSet<>();
+            UserManager.UserPage page = users.getUsers(null, 64);
+            int round = 0;
+            while (true) {
+                page.getUsers().forEach(user -> listed.add(user.getUserId()));
+                // Between pages: delete an already listed user and create users on both sides of the cursor
+                String listedUser = listed.get(round * 7 % listed.size());
+                if (deleted.add(listedUser)) {
+                    users.deleteUser(listedUser);
+                }
+                addUser(store, round * 2 + 1);
+                round++;
+                if (!page.hasNext()) {
+                    break;
+                }
+                page = users.getUsers(page.getNextCursor(), 64);
+            }
+
+            assertEquals(listed.size(), new TreeSet<>(listed).size(), "a user was listed twice");
+            assertEquals(listed.stream().sorted().collect(Collectors.toList()), listed, "pages are out of order");
+            for (int i = 0; i < 1_000; i += 2) {
+                assertTrue(listed.contains(userId(i)), userId(i) + " existed throughout but was skipped");
+            }
+        }
+    }
+
+    @Test
+    void streamWalksUsersInIdOrderAndToleratesConcurrentChanges() {
+        InMemoryUserStore store = new InMemoryUserStore();
+        try (UserManager users = new UserManager(store)) {
+            for (int i = 0; i < 1_000; i++) {
+                addUser(store, i);
+            }
+
+            List<String> streamed = users.streamUsers()
+                .peek(user -> {
+                    if (user.getUserId().endsWith("0")) {
+                        addUser(store, 10_000 + Integer.parseInt(user.getUserId().substring(5)));
+                    }
+                })
+                .map(UserManager.User::getUserId)
+                .collect(Collectors.toList());
+
+            assertEquals(streamed.stream().sorted().collect(Collectors.toList()), streamed);
+            assertTrue(streamed.size() >= 1_000);
+        }
+    }
+
+    private static void addUser(InMemoryUserStore store, int number) {
+        String userId = userId(number);
+        store.create(new UserManager.User(userId, "User " + number, userId + "@example.com"), "hash");
+    }
+
+    private static String userId(int number) {
+        return String.format("user-%05d", number);
+    }
+}
@@ -0,0 +1,167 @@
+package com.codesmells.bloaters.largeclass.bad;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserManagerTest {
+
+    @Test
+    void creatingAnExistingUserFailsAndKeepsTheOriginal() {
+        try (UserManager users = new UserManager()) {
+            users.createUser("alice", "Alice", "alice@example.com", "first-password");
+
+            assertThrows(IllegalArgumentException.class,
+                () -> users.createUser("alice", "Mallory", "mallory@example.com", "second-password"));
+
+            assertEquals("Alice", users.getUser("alice").getName());
+            assertTrue(users.login("alice", "first-password") != null);
+        }
+    }
+
+    @Test
+    void concurrentRoleChangesAreNeitherLostNorHiddenByCachedPermissions() throws Exception {
+        try (UserManager users = new UserManager()) {
+            users.createUser("bob", "Bob", "bob@example.com", "password");
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                String role = "role-" + t;
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 200; i++) {
+                        users.assignRole("bob", role);
+                        users.hasRole("bob", role);
+                        users.removeRole("bob", role);
+                        users.hasRole("bob", role);
+                    }
+                    users.assignRole("bob", role);
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            for (int t = 0; t < 8; t++) {
+                assertTrue(users.hasRole("bob", "role-" + t), "role-" + t + " was lost");
+            }
+            users.removeRole("bob", "role-0");
+            assertFalse(users.hasRole("bob", "role-0"));
+        }
+    }
+
+    @Test
+    void rolesGrantEveryPermissionUntilConfigured() {
+        try (UserManager users = new UserManager()) {
+            users.createUser("carol", "Carol", "carol@example.com", "password");
+            assertFalse(users.hasPermission("carol", "reports.read"));
+
+            users.assignRole("carol", "analyst");
+            assertTrue(users.hasPermission("carol", "reports.read"));
+            assertTrue(users.hasPermission("carol", "anything.else"));
+
+            users.grantPermission("analyst", "reports.read");
+            assertTrue(users.hasPermission("carol", "reports.read"));
+            assertFalse(users.hasPermission("carol", "anything.else"));
+
+            users.revokePermission("analyst", "reports.read");
+            assertFalse(users.hasPermission("carol", "reports.read"));
+        }
+    }
+
+    @Test
+    void notificationsGoToTheInjectedSink() {
+        InMemoryNotificationSink sink = new InMemoryNotificationSink();
+        UserManager users = new UserManager(new InMemoryUserStore(), sink);
+        users.createUser("dave", "Dave", "dave@example.com", "password");
+        users.assignRole("dave", "auditor");
+        users.close();
+
+        assertEquals(List.of("welcome email", "role assignment notification: auditor"),
+            sink.getDelivered("dave@example.com"));
+    }
+
+    @Test
+    void deleteUserAndRevokeSessionsOnlyEndThatUsersSessions() {
+        try (UserManager users = new UserManager()) {
+            users.createUser("frank", "Frank", "frank@example.com", "password");
+            users.createUser("grace", "Grace", "grace@example.com", "password");
+            users.createUser("heidi", "Heidi", "heidi@example.com", "password");
+            List<String> frank = List.of(users.login("frank", "password"), users.login("frank", "password"));
+            List<String> grace = List.of(users.login("grace", "password"), users.login("grace", "password"));
+            List<String> heidi = List.of(users.login("heidi", "password"), users.login("heidi", "password"));
+
+            users.deleteUser("frank");
+            frank.forEach(session -> assertFalse(users.isSessionValid(session)));
+            grace.forEach(session -> assertTrue(users.isSessionValid(session)));
+            heidi.forEach(session -> assertTrue(users.isSessionValid(session)));
+
+            assertEquals(2, users.revokeSessions(List.of("grace", "frank")));
+            grace.forEach(session -> assertFalse(users.isSessionValid(session)));
+            heidi.forEach(session -> assertTrue(users.isSessionValid(session)));
+        }
+    }
+
+    @Test
+    void loginsRacingARevokeOrDeleteLeaveNoLiveSession() throws Exception {
+        try (UserManager users = new UserManager()) {
+            users.createUser("ivan", "Ivan", "ivan@example.com", "password");
+            Queue<String> sessions = new ConcurrentLinkedQueue<>();
+            AtomicBoolean deleted = new AtomicBoolean();
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread thread = new Thread(() -> {
+                    while (!deleted.get()) {
+                        String session = users.login("ivan", "password");
+                        if (session != null) {
+                            sessions.add(session);
+                        }
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+
+            for (int round = 0; round < 5; round++) {
+                awaitMoreThan(sessions, round * 4);
+                List<String> issuedBeforeRevoke = new ArrayList<>(sessions);
+                users.revokeSessions(List.of("ivan"));
+                for (String session : issuedBeforeRevoke) {
+                    assertFalse(users.isSessionValid(session), session + " outlived the revoke");
+                }
+            }
+            users.deleteUser("ivan");
+            deleted.set(true);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            for (String session : sessions) {
+                assertFalse(users.isSessionValid(session), session + " outlived the deletion");
+            }
+        }
+    }
+
+    private static void awaitMoreThan(Queue<String> queue, int size) throws InterruptedException {
+        while (queue.size() <= size) {
+            Thread.sleep(1);
+        }
+    }
+}
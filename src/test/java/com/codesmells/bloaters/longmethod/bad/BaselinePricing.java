@@ -0,0 +1,71 @@
+package com.codesmells.bloaters.longmethod.bad;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The pricing arithmetic processOrder had before the lookup tables, minus
+ * its validation and printing, as the reference for tests and benchmarks.
+ */
+final class BaselinePricing {
+
+    private BaselinePricing() {
+    }
+
+    static double total(String loyaltyLevel, List<String> items, String shippingAddress) {
+        double subtotal = 0;
+        List<Double> itemPrices = new ArrayList<>();
+        for (String item : items) {
+            double price = 0;
+            if (item.equals("ITEM001")) {
+                price = 29.99;
+            } else if (item.equals("ITEM002")) {
+                price = 49.99;
+            } else if (item.equals("ITEM003")) {
+                price = 19.99;
+            } else {
+                price = 9.99;
+            }
+            itemPrices.add(price);
+            subtotal += price;
+        }
+
+        double discount = 0;
+        if (loyaltyLevel.equals("GOLD")) {
+            discount = subtotal * 0.15;
+        } else if (loyaltyLevel.equals("SILVER")) {
+            discount = subtotal * 0.10;
+        } else if (loyaltyLevel.equals("BRONZE")) {
+            discount = subtotal * 0.05;
+        }
+
+        double afterDiscount = subtotal - discount;
+
+        double tax = 0;
+        if (shippingAddress.contains("CA")) {
+            tax = afterDiscount * 0.0875;
+        } else if (shippingAddress.contains("NY")) {
+            tax = afterDiscount * 0.08875;
+        } else if (shippingAddress.contains("TX")) {
+            tax = afterDiscount * 0.0625;
+        } else {
+            tax = afterDiscount * 0.05;
+        }
+
+        double shippingCost = 0;
+        int itemCount = items.size();
+        if (itemCount <= 2) {
+            shippingCost = 5.99;
+        } else if (itemCount <= 5) {
+            shippingCost = 8.99;
+        } else {
+            shippingCost = 12.99;
+        }
+
+        if (afterDiscount >= 100) {
+            shippingCost = 0;
+        }
+
+        return afterDiscount + tax + shippingCost;
+    }
+}
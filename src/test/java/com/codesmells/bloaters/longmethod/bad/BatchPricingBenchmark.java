@@ -0,0 +1,111 @@
+package com.codesmells.bloaters.longmethod.bad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prices a batch of 100k orders with {@link PricingEngine#priceBatch} on
+ * fork-join pools of increasing parallelism, next to pricing the same
+ * orders one by one on the benchmark thread.
+ *
+ * The annotation lists parallelism 1 to 8; {@link #main} replaces it with
+ * 1, 2, 4, ... up to the available cores, plus the core count itself.
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.codesmells.bloaters.longmethod.bad.BatchPricingBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchPricingBenchmark {
+
+    private static final String[] ITEMS = {"ITEM001", "ITEM002", "ITEM003", "ITEM004", "ITEM005"};
+    private static final String[] LOYALTY_LEVELS = {"GOLD", "SILVER", "BRONZE", "NONE"};
+    private static final String[] ADDRESSES = {"1 Main St, CA", "2 Broadway, NY", "3 Elm St, TX", "4 Oak Ave, WA"};
+    private static final int ORDERS = 100_000;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private final PricingEngine engine = new PricingEngine(PricingTables.defaults());
+    private final List<List<String>> carts = new ArrayList<>();
+    private final List<String> loyaltyLevels = new ArrayList<>();
+    private final List<String> addresses = new ArrayList<>();
+    private OrderBatch batch;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(10);
+        OrderBatch.Builder builder = new OrderBatch.Builder();
+        for (int i = 0; i < ORDERS; i++) {
+            List<String> items = new ArrayList<>();
+            for (int j = 0, count = 1 + random.nextInt(10); j < count; j++) {
+                items.add(ITEMS[random.nextInt(ITEMS.length)]);
+            }
+            String loyaltyLevel = LOYALTY_LEVELS[random.nextInt(LOYALTY_LEVELS.length)];
+            String address = ADDRESSES[random.nextInt(ADDRESSES.length)];
+            carts.add(items);
+            loyaltyLevels.add(loyaltyLevel);
+            addresses.add(address);
+            builder.addOrder(loyaltyLevel, items, address);
+        }
+        batch = builder.build();
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public OrderPrices priceBatch() {
+        return engine.priceBatch(batch, pool);
+    }
+
+    @Benchmark
+    public void priceOneByOne(Blackhole blackhole) {
+        for (int i = 0; i < ORDERS; i++) {
+            blackhole.consume(engine.price(loyaltyLevels.get(i), carts.get(i), addresses.get(i)));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<String> levels = new ArrayList<>();
+        for (int level = 1; level < cores; level *= 2) {
+            levels.add(Integer.toString(level));
+        }
+        levels.add(Integer.toString(cores));
+        new Runner(new OptionsBuilder()
+            .include(BatchPricingBenchmark.class.getSimpleName())
+            .param("parallelism", levels.toArray(new String[0]))
+            .build()).run();
+    }
+}
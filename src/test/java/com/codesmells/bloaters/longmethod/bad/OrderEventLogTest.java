@@ -0,0 +1,64 @@
+package com.codesmells.bloaters.longmethod.bad;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OrderEventLogTest {
+
+    private static final OrderPrice PRICE = new OrderPrice(Currency.getInstance("USD"), 10_000, 1_000, 792, 500, 10_292);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysEveryEventAfterRestartOverATornTail() throws Exception {
+        try (OrderEventLog log = new OrderEventLog(directory, 16, 1 << 20, true)) {
+            log.append("C1", 1, PRICE);
+            log.append("C2", 2, PRICE);
+        }
+        Path segment = OrderEventLog.segmentPath(directory, 0);
+        Files.write(segment, "{\"ts\":1,\"customer\":\"C".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+
+        try (OrderEventLog log = new OrderEventLog(directory, 16, 1 << 20, true)) {
+            log.append("C3", 3, PRICE);
+        }
+
+        List<String> customers = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        long count = OrderEventLogReader.replay(directory, event -> customers.add(event.getCustomerId()), skipped::add);
+        assertEquals(3, count);
+        assertEquals(List.of("C1", "C2", "C3"), customers);
+        assertEquals(List.of(), skipped);
+    }
+
+    @Test
+    void replaySkipsLinesThatAreNotEvents() throws Exception {
+        try (OrderEventLog log = new OrderEventLog(directory, 16, 1 << 20, true)) {
+            log.append("C1", 1, PRICE);
+        }
+        Path segment = OrderEventLog.segmentPath(directory, 0);
+        Files.write(segment, "{\"ts\":1,\"cust{\"broken\":true}\n".getBytes(StandardCharsets.US_ASCII),
+            StandardOpenOption.APPEND);
+        OrderEventLog log = new OrderEventLog(directory, 16, 1 << 20, true);
+        log.append("C2", 2, PRICE);
+        log.close();
+        assertEquals(1, log.getWrittenCount());
+        assertEquals(0, log.getFailedCount());
+
+        List<String> customers = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        OrderEventLogReader.replay(directory, event -> customers.add(event.getCustomerId()), skipped::add);
+        assertEquals(List.of("C1", "C2"), customers);
+        assertEquals(1, skipped.size());
+    }
+}
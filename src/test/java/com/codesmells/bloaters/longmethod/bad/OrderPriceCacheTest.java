@@ -0,0 +1,81 @@
+package com.codesmells.bloaters.longmethod.bad;
+
+import com.codesmells.common.Money;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderPriceCacheTest {
+
+    private static final String[] ITEMS = {"ITEM001", "ITEM002", "ITEM003", "ITEM004", "ITEM005"};
+    private static final String[] LOYALTY_LEVELS = {"GOLD", "SILVER", "BRONZE", "NONE"};
+    private static final String[] ADDRESSES = {"1 Main St, CA", "2 Broadway, NY", "3 Elm St, TX", "4 Oak Ave, WA"};
+
+    @Test
+    void cachedPricesEqualUncachedPrices() {
+        PricingEngine engine = new PricingEngine(PricingTables.defaults());
+        OrderPriceCache cache = new OrderPriceCache(engine, 64, 4);
+
+        assertSamePrices(engine, cache, new Random(1), 20_000);
+
+        assertTrue(cache.getHitCount() > 0, "repeated carts should be served from the cache");
+        assertTrue(cache.getEvictionCount() > 0, "the small cache should have evicted entries");
+    }
+
+    @Test
+    void cachedPricesFollowATablesSwap() {
+        PricingEngine engine = new PricingEngine(PricingTables.defaults());
+        OrderPriceCache cache = new OrderPriceCache(engine, 1_024, 4);
+        Random random = new Random(2);
+        assertSamePrices(engine, cache, random, 5_000);
+
+        engine.updateTables(new PricingTables.Builder(Money.USD)
+            .itemPrice("ITEM001", 31.49)
+            .itemPrice("ITEM002", 45.00)
+            .defaultItemPrice(12.50)
+            .loyaltyDiscount("GOLD", 0.20)
+            .taxRate("CA", 0.0925)
+            .defaultTaxRate(0.06)
+            .shippingBracket(3, 6.49)
+            .oversizeShippingCost(14.99)
+            .freeShippingThreshold(150)
+            .build());
+        assertSamePrices(engine, cache, random, 5_000);
+
+        assertTrue(cache.getStaleCount() > 0, "entries priced against the old tables should have been found stale");
+    }
+
+    /**
+     * Prices random carts, many of them repeated in a different item order,
+     * through both paths and compares every part of the breakdown.
+     */
+    private static void assertSamePrices(PricingEngine engine, OrderPriceCache cache, Random random, int orders) {
+        for (int i = 0; i < orders; i++) {
+            String loyaltyLevel = LOYALTY_LEVELS[random.nextInt(LOYALTY_LEVELS.length)];
+            String address = ADDRESSES[random.nextInt(ADDRESSES.length)];
+            List<String> items = new ArrayList<>();
+            int count = 1 + random.nextInt(random.nextBoolean() ? 3 : 8);
+            for (int j = 0; j < count; j++) {
+                items.add(ITEMS[random.nextInt(random.nextBoolean() ? 2 : ITEMS.length)]);
+            }
+            Collections.shuffle(items, random);
+
+            OrderPrice expected = engine.price(loyaltyLevel, items, address);
+            OrderPrice actual = cache.price(loyaltyLevel, items, address);
+
+            String cart = loyaltyLevel + " " + items + " " + address;
+            assertEquals(expected.getCurrency(), actual.getCurrency(), cart);
+            assertEquals(expected.getSubtotalMinorUnits(), actual.getSubtotalMinorUnits(), cart);
+            assertEquals(expected.getDiscountMinorUnits(), actual.getDiscountMinorUnits(), cart);
+            assertEquals(expected.getTaxMinorUnits(), actual.getTaxMinorUnits(), cart);
+            assertEquals(expected.getShippingCostMinorUnits(), actual.getShippingCostMinorUnits(), cart);
+            assertEquals(expected.getTotalMinorUnits(), actual.getTotalMinorUnits(), cart);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.codesmells.bloaters.longmethod.bad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of pricing 10-item orders with the original if/else chains
+ * against the lookup tables.
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.codesmells.bloaters.longmethod.bad.OrderPricingBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderPricingBenchmark {
+
+    private static final String[] ITEMS = {"ITEM001", "ITEM002", "ITEM003", "ITEM004", "ITEM005"};
+    private static final String[] LOYALTY_LEVELS = {"GOLD", "SILVER", "BRONZE", "NONE"};
+    private static final String[] ADDRESSES = {"1 Main St, CA", "2 Broadway, NY", "3 Elm St, TX", "4 Oak Ave, WA"};
+    private static final int ORDERS = 1_024;
+
+    private final PricingEngine engine = new PricingEngine(PricingTables.defaults());
+    private final List<List<String>> carts = new ArrayList<>();
+    private final List<String> loyaltyLevels = new ArrayList<>();
+    private final List<String> addresses = new ArrayList<>();
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(9);
+        for (int i = 0; i < ORDERS; i++) {
+            List<String> items = new ArrayList<>();
+            for (int j = 0; j < 10; j++) {
+                items.add(ITEMS[random.nextInt(ITEMS.length)]);
+            }
+            carts.add(items);
+            loyaltyLevels.add(LOYALTY_LEVELS[random.nextInt(LOYALTY_LEVELS.length)]);
+            addresses.add(ADDRESSES[random.nextInt(ADDRESSES.length)]);
+        }
+    }
+
+    @Benchmark
+    public double ifElseChains() {
+        int order = next++ & (ORDERS - 1);
+        return BaselinePricing.total(loyaltyLevels.get(order), carts.get(order), addresses.get(order));
+    }
+
+    @Benchmark
+    public long lookupTables() {
+        int order = next++ & (ORDERS - 1);
+        return engine.price(loyaltyLevels.get(order), carts.get(order), addresses.get(order)).getTotalMinorUnits();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(OrderPricingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
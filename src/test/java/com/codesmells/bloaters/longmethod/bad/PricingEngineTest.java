@@ -0,0 +1,60 @@
+package com.codesmells.bloaters.longmethod.bad;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PricingEngineTest {
+
+    private static final String[] ITEMS = {"ITEM001", "ITEM002", "ITEM003", "ITEM004", "ITEM005", "UNKNOWN"};
+    private static final String[] LOYALTY_LEVELS = {"GOLD", "SILVER", "BRONZE", "NONE"};
+    private static final String[] ADDRESSES = {"1 Main St, CA", "2 Broadway, NY", "3 Elm St, TX", "4 Oak Ave, WA"};
+
+    @Test
+    void batchPricesEqualSingleOrderPrices() {
+        PricingEngine engine = new PricingEngine(PricingTables.defaults());
+        Random random = new Random(3);
+        List<String> loyaltyLevels = new ArrayList<>();
+        List<List<String>> carts = new ArrayList<>();
+        List<String> addresses = new ArrayList<>();
+        OrderBatch.Builder builder = new OrderBatch.Builder();
+        // Enough orders for the batch to be split across fork-join tasks
+        for (int i = 0; i < 10_000; i++) {
+            List<String> items = new ArrayList<>();
+            int count = random.nextInt(8);
+            for (int j = 0; j < count; j++) {
+                items.add(ITEMS[random.nextInt(ITEMS.length)]);
+            }
+            String loyaltyLevel = LOYALTY_LEVELS[random.nextInt(LOYALTY_LEVELS.length)];
+            String address = ADDRESSES[random.nextInt(ADDRESSES.length)];
+            loyaltyLevels.add(loyaltyLevel);
+            carts.add(items);
+            addresses.add(address);
+            builder.addOrder(loyaltyLevel, items, address);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        OrderPrices batch;
+        try {
+            batch = engine.priceBatch(builder.build(), pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int i = 0; i < carts.size(); i++) {
+            OrderPrice expected = engine.price(loyaltyLevels.get(i), carts.get(i), addresses.get(i));
+            OrderPrice actual = batch.get(i);
+            String order = "order " + i;
+            assertEquals(expected.getSubtotalMinorUnits(), actual.getSubtotalMinorUnits(), order);
+            assertEquals(expected.getDiscountMinorUnits(), actual.getDiscountMinorUnits(), order);
+            assertEquals(expected.getTaxMinorUnits(), actual.getTaxMinorUnits(), order);
+            assertEquals(expected.getShippingCostMinorUnits(), actual.getShippingCostMinorUnits(), order);
+            assertEquals(expected.getTotalMinorUnits(), actual.getTotalMinorUnits(), order);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.codesmells.bloaters.longmethod.bad;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PricingTablesTest {
+
+    private static final String[] ITEMS = {"ITEM001", "ITEM002", "ITEM003", "ITEM004", "OTHER"};
+    private static final String[] LOYALTY_LEVELS = {"GOLD", "SILVER", "BRONZE", "NONE"};
+    private static final String[] ADDRESSES = {"1 Main St, CA", "2 Broadway, NY", "3 Elm St, TX", "4 Oak Ave, WA",
+        "5 Cactus Rd, TX NY"};
+
+    @Test
+    void defaultTablesReproduceTheHardCodedPrices() {
+        PricingEngine engine = new PricingEngine(PricingTables.defaults());
+        Random random = new Random(4);
+        for (int i = 0; i < 20_000; i++) {
+            List<String> items = new ArrayList<>();
+            int count = 1 + random.nextInt(12);
+            for (int j = 0; j < count; j++) {
+                items.add(ITEMS[random.nextInt(ITEMS.length)]);
+            }
+            String loyaltyLevel = LOYALTY_LEVELS[random.nextInt(LOYALTY_LEVELS.length)];
+            String address = ADDRESSES[random.nextInt(ADDRESSES.length)];
+
+            long expectedCents = Math.round(BaselinePricing.total(loyaltyLevel, items, address) * 100);
+            long actualCents = engine.price(loyaltyLevel, items, address).getTotalMinorUnits();
+
+            // Discount and tax are now rounded to cents separately, which can move the total by a cent
+            String order = loyaltyLevel + " " + items + " " + address;
+            assertTrue(Math.abs(expectedCents - actualCents) <= 1, order + ": " + expectedCents + " vs " + actualCents);
+        }
+    }
+}
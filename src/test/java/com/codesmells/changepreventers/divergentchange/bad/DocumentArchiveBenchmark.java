@@ -0,0 +1,154 @@
+package com.codesmells.changepreventers.divergentchange.bad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Ingest and random-read cost of a {@link DocumentArchive} for ~1 KB
+ * invoice-like documents. Ingest runs with every document distinct and with
+ * documents drawn from a pool of 1,024 contents, and prints the dedup ratio
+ * and compression reached after each iteration. Reads sample the latency of
+ * {@code get} for random ids of a 100,000 document archive.
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.codesmells.changepreventers.divergentchange.bad.DocumentArchiveBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentArchiveBenchmark {
+
+    private static final Duration NO_BACKGROUND_COMPACTION = Duration.ofHours(1);
+    private static final int POOL = 1_024;
+
+    @State(Scope.Benchmark)
+    public static class Ingest {
+
+        @Param({"distinct", "pooled"})
+        public String contents;
+
+        private final String[] pool = new String[POOL];
+        private Path directory;
+        private DocumentArchive archive;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void createPool() {
+            Random random = new Random(22);
+            for (int i = 0; i < POOL; i++) {
+                pool[i] = document(random, i);
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void open() throws IOException {
+            directory = Files.createTempDirectory("archive-ingest");
+            archive = DocumentArchive.open(directory, 1 << 20, NO_BACKGROUND_COMPACTION);
+            next = 0;
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() throws IOException {
+            System.out.printf("%n%,d documents, dedup ratio %.1f, %,d raw bytes stored in %,d%n",
+                archive.getArchivedCount(), archive.getDedupRatio(), archive.getRawBytes(), archive.getStoredBytes());
+            archive.close();
+            delete(directory);
+        }
+
+        String nextContent() {
+            int n = next;
+            return contents.equals("pooled") ? pool[n & (POOL - 1)] : pool[n & (POOL - 1)] + n;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Read {
+
+        static final int DOCUMENTS = 100_000;
+
+        private Path directory;
+        private DocumentArchive archive;
+
+        @Setup(Level.Trial)
+        public void load() throws IOException {
+            directory = Files.createTempDirectory("archive-read");
+            archive = DocumentArchive.open(directory, 1 << 18, NO_BACKGROUND_COMPACTION);
+            Random random = new Random(22);
+            for (int i = 0; i < DOCUMENTS; i++) {
+                archive.put("doc-" + i, document(random, i));
+            }
+            archive.flush();
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            archive.close();
+            delete(directory);
+        }
+    }
+
+    @Benchmark
+    public int ingest(Ingest state) throws IOException {
+        int n = state.next;
+        state.archive.put("doc-" + n, state.nextContent());
+        state.next = n + 1;
+        return n;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String randomRead(Read state) throws IOException {
+        return state.archive.get("doc-" + ThreadLocalRandom.current().nextInt(Read.DOCUMENTS));
+    }
+
+    private static String document(Random random, int number) {
+        StringBuilder text = new StringBuilder(1_100);
+        text.append("{\"type\":\"invoice\",\"id\":\"INV-").append(number).append("\",\"lines\":[");
+        while (text.length() < 1_000) {
+            text.append("{\"sku\":\"ITEM").append(100 + random.nextInt(900))
+                .append("\",\"quantity\":").append(1 + random.nextInt(9))
+                .append(",\"price\":").append(random.nextInt(10_000) / 100.0).append("},");
+        }
+        return text.append("{}]}").toString();
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DocumentArchiveBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,95 @@
+package com.codesmells.changepreventers.divergentchange.bad;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DocumentArchiveTest {
+
+    private static final Duration NO_BACKGROUND_COMPACTION = Duration.ofHours(1);
+    private static final long SEGMENT_BYTES = 64 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void compactionFreesIndexSlotsForNewContent() throws IOException {
+        int capacity = 50;
+        String last = null;
+        try (DocumentArchive archive = DocumentArchive.open(directory, capacity, NO_BACKGROUND_COMPACTION, SEGMENT_BYTES)) {
+            Random random = new Random(1);
+            // Far more distinct contents over time than the index has room for at once
+            for (int i = 0; i < 20 * capacity; i++) {
+                last = randomText(random, 4_000);
+                archive.put("doc-" + (i % 5), last);
+                if (i % 20 == 19) {
+                    archive.compact();
+                }
+            }
+            assertTrue(archive.getContentCount() <= capacity);
+            assertTrue(archive.getCompactedSegmentCount() > 0);
+            assertEquals(last, archive.get("doc-" + (20 * capacity - 1) % 5));
+        }
+
+        Files.delete(directory.resolve("index.bin"));
+        try (DocumentArchive archive = DocumentArchive.open(directory, capacity, NO_BACKGROUND_COMPACTION, SEGMENT_BYTES)) {
+            assertEquals(5, archive.getDocumentCount());
+            assertEquals(last, archive.get("doc-" + (20 * capacity - 1) % 5));
+        }
+    }
+
+    @Test
+    void recoveryCutsATornTailOfTheLastSegment() throws IOException {
+        try (DocumentArchive archive = DocumentArchive.open(directory, 100, NO_BACKGROUND_COMPACTION, SEGMENT_BYTES)) {
+            archive.put("a", "first document");
+            archive.put("b", "second document");
+        }
+        Files.delete(directory.resolve("index.bin"));
+        Files.write(DocumentArchive.segmentPath(directory, 1), new byte[] {0, 0, 1, 0, 0, 0, 0, 40, 1, 2},
+            StandardOpenOption.APPEND);
+
+        try (DocumentArchive archive = DocumentArchive.open(directory, 100, NO_BACKGROUND_COMPACTION, SEGMENT_BYTES)) {
+            assertEquals("first document", archive.get("a"));
+            assertEquals("second document", archive.get("b"));
+        }
+    }
+
+    @Test
+    void recoveryRefusesToTruncateACorruptSealedSegment() throws IOException {
+        try (DocumentArchive archive = DocumentArchive.open(directory, 100, NO_BACKGROUND_COMPACTION, SEGMENT_BYTES)) {
+            Random random = new Random(2);
+            for (int i = 0; i < 40; i++) {
+                archive.put("doc-" + i, randomText(random, 4_000));
+            }
+        }
+        Path sealed = DocumentArchive.segmentPath(directory, 1);
+        assertTrue(Files.exists(DocumentArchive.segmentPath(directory, 2)), "test needs a second segment");
+        long sizeBefore = Files.size(sealed);
+        byte[] bytes = Files.readAllBytes(sealed);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(sealed, bytes);
+        Files.delete(directory.resolve("index.bin"));
+
+        assertThrows(IOException.class,
+            () -> DocumentArchive.open(directory, 100, NO_BACKGROUND_COMPACTION, SEGMENT_BYTES));
+        assertEquals(sizeBefore, Files.size(sealed));
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + random.nextInt(26)));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package com.codesmells.changepreventers.divergentchange.bad;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DocumentServiceTest {
+
+    private final DocumentService service = new DocumentService();
+
+    @Test
+    void streamedDocumentsEqualGeneratedOnesForTheSameMaps() throws Exception {
+        Object[] types = {"invoice", "RECEIPT", new StringBuilder("invoice"), null, 42};
+        Object[] formats = {"csv", "JSON", new StringBuilder("json"), null, "plain"};
+        Object[] ids = {"INV-1", 7L, "reçu-ü-€", null, ""};
+        List<Map<String, Object>> documents = new ArrayList<>();
+        StringBuilder expected = new StringBuilder();
+        for (Object type : types) {
+            for (Object format : formats) {
+                for (Object id : ids) {
+                    Map<String, Object> data = new HashMap<>();
+                    data.put("type", type);
+                    data.put("format", format);
+                    if (id != null) {
+                        data.put("id", id);
+                    }
+                    documents.add(data);
+                    expected.append(service.generate(
+                        type != null ? type.toString() : null, data, format != null ? format.toString() : null));
+                    expected.append('\n');
+                }
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = service.generateAll(documents.iterator(), out);
+
+        assertEquals(documents.size(), written);
+        assertEquals(expected.toString(), out.toString(StandardCharsets.UTF_8));
+    }
+}
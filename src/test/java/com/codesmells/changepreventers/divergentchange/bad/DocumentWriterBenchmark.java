@@ -0,0 +1,91 @@
+package com.codesmells.changepreventers.divergentchange.bad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes 10,000 documents to a discarding stream: one String per document
+ * from {@link DocumentService#generate} encoded with {@code getBytes},
+ * against the streaming {@link DocumentService#generateAll} overloads. Run
+ * with the GC profiler to see allocation per batch.
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.codesmells.changepreventers.divergentchange.bad.DocumentWriterBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentWriterBenchmark {
+
+    private static final int DOCUMENTS = 10_000;
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final DocumentService service = new DocumentService();
+    private final List<Map<String, Object>> documents = new ArrayList<>();
+    private final OutputStream out = OutputStream.nullOutputStream();
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < DOCUMENTS; i++) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("type", "invoice");
+            data.put("format", "json");
+            data.put("id", "INV-" + i);
+            documents.add(data);
+        }
+    }
+
+    @Benchmark
+    public long generateAndEncode() throws IOException {
+        long written = 0;
+        for (Map<String, Object> data : documents) {
+            out.write(service.generate((String) data.get("type"), data, (String) data.get("format"))
+                .getBytes(StandardCharsets.UTF_8));
+            out.write(NEWLINE);
+            written++;
+        }
+        return written;
+    }
+
+    @Benchmark
+    public long streamPerDocumentType() throws IOException {
+        return service.generateAll(documents.iterator(), out);
+    }
+
+    @Benchmark
+    public long streamOneType() throws IOException {
+        return service.generateAll("invoice", "json", documents.iterator(), out);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(DocumentWriterBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+}
@@ -0,0 +1,123 @@
+package com.codesmells.changepreventers.parallelinheritance.bad;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Parses files larger than the heap through {@link ParsePipeline#parse(Path, OutputStream)}
+ * and reports time, throughput and peak heap.
+ *
+ * Two files are written to a temporary directory and deleted afterwards:
+ * a dense PDF of the given size, and a sparse HTML file three times that
+ * size whose {@code <html>} marker straddles the first 1 GB window boundary
+ * and whose last two thirds are a run of zero bytes, i.e. trailing
+ * whitespace. Run with a heap far smaller than the files:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt -Dmdep.includeScope=test
+ * java -Xmx32m -cp target/test-classes:target/classes:$(cat cp.txt) \
+ *     com.codesmells.changepreventers.parallelinheritance.bad.MappedParseMeasurement 1024
+ * </pre>
+ * The argument is the PDF size in MB.
+ */
+public class MappedParseMeasurement {
+
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    public static void main(String[] args) throws IOException {
+        long pdfBytes = (args.length > 0 ? Long.parseLong(args[0]) : 1024) << 20;
+        Path directory = Files.createTempDirectory("mapped-parse");
+        try {
+            Path pdf = directory.resolve("large.pdf");
+            writePdf(pdf, pdfBytes);
+            measure("dense PDF", pdf);
+            Files.delete(pdf);
+
+            Path html = directory.resolve("sparse.html");
+            writeSparseHtml(html, pdfBytes * 3);
+            measure("sparse HTML", html);
+            Files.delete(html);
+        } finally {
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static void measure(String label, Path file) throws IOException {
+        ParsePipeline pipeline = new ParsePipeline();
+        CountingOutputStream out = new CountingOutputStream();
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+        long collections = gcCount();
+        long start = System.nanoTime();
+        ParseResult result = pipeline.parse(file, out);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long size = Files.size(file);
+        System.out.printf("%s: %,d bytes, format %s, valid %b, %,d bytes written%n",
+            label, size, result.getFormat(), result.isValid(), out.count);
+        System.out.printf("  %.2f s, %.2f GB/s, peak heap %.1f MB of max %.0f MB, %d collections%n",
+            seconds, size / seconds / (1L << 30), peakHeapBytes() / 1e6,
+            Runtime.getRuntime().maxMemory() / 1e6, gcCount() - collections);
+    }
+
+    private static void writePdf(Path file, long size) throws IOException {
+        byte[] block = "0 obj << /Length 42 >> stream ABCDEFGHIJ endstream endobj\n".repeat(16_000)
+            .getBytes(StandardCharsets.UTF_8);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write("%PDF-1.7\n".getBytes(StandardCharsets.UTF_8));
+            for (long written = 0; written < size; written += block.length) {
+                out.write(block);
+            }
+        }
+    }
+
+    private static void writeSparseHtml(Path file, long size) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(file.toFile(), "rw")) {
+            out.write("<p>".getBytes(StandardCharsets.UTF_8));
+            out.seek(WINDOW_BYTES - 3);
+            out.write("<html>body</html>".getBytes(StandardCharsets.UTF_8));
+            out.setLength(size);
+        }
+    }
+
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
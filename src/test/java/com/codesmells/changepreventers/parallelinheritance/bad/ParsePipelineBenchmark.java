@@ -0,0 +1,128 @@
+package com.codesmells.changepreventers.parallelinheritance.bad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates and parses an 8 MB HTML or PDF document held as UTF-8 bytes,
+ * through the old Validator/Parser pair (decode to a String, check, trim,
+ * encode) and through the single-pass pipeline, into a reused buffer.
+ * Divide 8 MB by the time per operation for MB/s.
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.codesmells.changepreventers.parallelinheritance.bad.ParsePipelineBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParsePipelineBenchmark {
+
+    private static final int DOCUMENT_BYTES = 8 << 20;
+
+    @Param({"HTML", "PDF"})
+    public String format;
+
+    private final ParsePipeline pipeline = new ParsePipeline();
+    private final Sink out = new Sink(DOCUMENT_BYTES + 1_024);
+    private byte[] document;
+    private Parser parser;
+    private Validator validator;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(24);
+        StringBuilder text = new StringBuilder(DOCUMENT_BYTES + 1_024);
+        boolean html = format.equals("HTML");
+        text.append(html ? "\n  <!DOCTYPE html>\n<html><body>\n" : "%PDF-1.7\n");
+        while (text.length() < DOCUMENT_BYTES) {
+            if (html) {
+                text.append("<p class=\"line\">Invoice line ").append(random.nextInt(100_000))
+                    .append(" &mdash; total ").append(random.nextInt(10_000)).append("</p>\n");
+            } else {
+                text.append(random.nextInt(1_000)).append(" 0 obj << /Length ").append(random.nextInt(5_000))
+                    .append(" >> stream\n").append((char) ('A' + random.nextInt(26))).append(" endstream endobj\n");
+            }
+        }
+        text.append(html ? "</body></html>\n\n" : "%%EOF\n");
+        document = text.toString().getBytes(StandardCharsets.UTF_8);
+        parser = html ? new HtmlParser() : new PdfParser();
+        validator = html ? new HtmlValidator() : new PdfValidator();
+    }
+
+    @Benchmark
+    public int validatorAndParser() throws IOException {
+        out.reset();
+        String input = new String(document, StandardCharsets.UTF_8);
+        if (!validator.isValid(input)) {
+            throw new IllegalStateException("Invalid benchmark document");
+        }
+        byte[] parsed = parser.parse(input).getBytes(StandardCharsets.UTF_8);
+        out.write(parsed);
+        return parsed.length;
+    }
+
+    @Benchmark
+    public long pipeline() throws IOException {
+        out.reset();
+        ParseResult result = pipeline.parse(ByteBuffer.wrap(document), out);
+        if (!result.isValid()) {
+            throw new IllegalStateException("Invalid benchmark document");
+        }
+        return result.getBytesWritten();
+    }
+
+    /**
+     * Copies the output into a fixed array, so writing it costs what it
+     * would for a real destination without growing or allocating.
+     */
+    private static final class Sink extends OutputStream {
+        private final byte[] bytes;
+        private int length;
+
+        Sink(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        void reset() {
+            length = 0;
+        }
+
+        @Override
+        public void write(int b) {
+            bytes[length++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] source, int offset, int count) {
+            System.arraycopy(source, offset, bytes, length, count);
+            length += count;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ParsePipelineBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,206 @@
+package com.codesmells.changepreventers.parallelinheritance.bad;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParsePipelineTest {
+
+    private static final String[] FRAGMENTS = {
+        " ", "\t", "\n", "\r\n", "\u0000", "\u000B", "<", "<html>", "<htm", "html>", "%PDF", "%PD", "-1.7",
+        "body", "é", "€", "\u2003", "\uFEFF", "<<", "x"
+    };
+
+    private final ParsePipeline pipeline = new ParsePipeline();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void matchesTheOldParserAndValidatorPairsOnRandomInputs() throws Exception {
+        Random random = new Random(24);
+        for (int i = 0; i < 20_000; i++) {
+            String input = randomInput(random, 1 + random.nextInt(40));
+            assertParsesLikeTheOldPair(input);
+        }
+    }
+
+    @Test
+    void matchesTheOldPairsAcrossChunkBoundaries() throws Exception {
+        Random random = new Random(25);
+        for (int i = 0; i < 20; i++) {
+            StringBuilder input = new StringBuilder(i % 2 == 0 ? "<p>" : "%PDF-1.7");
+            // Long whitespace runs and markers straddling the 64 KB chunks
+            while (input.length() < 200_000) {
+                input.append(random.nextBoolean() ? " ".repeat(random.nextInt(70_000)) : randomInput(random, 50));
+            }
+            input.append(i % 3 == 0 ? "<html>" : "").append("\n".repeat(random.nextInt(100_000)));
+            assertParsesLikeTheOldPair(input.toString());
+        }
+    }
+
+    @Test
+    void unrecognizedInputIsRejected() {
+        byte[] bytes = "  plain text <html>".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(IllegalArgumentException.class,
+            () -> pipeline.parse(new ByteArrayInputStream(bytes), new ByteArrayOutputStream()));
+        assertThrows(IllegalArgumentException.class,
+            () -> pipeline.parse(ByteBuffer.wrap(bytes), new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void mappedFilesParseLikeTheSameBytesInMemory() throws Exception {
+        Random random = new Random(26);
+        Path file = directory.resolve("document");
+        for (int i = 0; i < 500; i++) {
+            String input = (i % 2 == 0 ? " <" : "%PDF") + randomInput(random, random.nextInt(60))
+                + (i % 50 == 0 ? " ".repeat(200_000) : "");
+            byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+            Files.write(file, bytes);
+
+            ByteArrayOutputStream inMemory = new ByteArrayOutputStream();
+            ParseResult expected = pipeline.parse(ByteBuffer.wrap(bytes), inMemory);
+            ByteArrayOutputStream mapped = new ByteArrayOutputStream();
+            ParseResult actual = pipeline.parse(file, mapped);
+
+            assertEquals(expected.getFormat(), actual.getFormat(), input);
+            assertEquals(expected.isValid(), actual.isValid(), input);
+            assertEquals(expected.getBytesRead(), actual.getBytesRead(), input);
+            assertEquals(inMemory.toString(StandardCharsets.UTF_8), mapped.toString(StandardCharsets.UTF_8), input);
+        }
+    }
+
+    @Test
+    void markersAndTrailingWhitespaceMayStraddleMappedWindows() throws Exception {
+        Path file = directory.resolve("straddling.html");
+        // With 8-byte windows "<html>" spans bytes 5-10 and the whitespace tail covers several whole windows
+        String input = "\n <p><html>body</html>" + " \t\n".repeat(12);
+        Files.writeString(file, input);
+
+        for (int window = 1; window <= 16; window++) {
+            ParsePipeline small = new ParsePipeline(FormatRegistry.defaults(), window);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ParseResult result = small.parse(file, out);
+
+            assertEquals("HTML", result.getFormat(), "window " + window);
+            assertTrue(result.isValid(), "window " + window);
+            assertEquals(new HtmlParser().parse(input), out.toString(StandardCharsets.UTF_8), "window " + window);
+        }
+    }
+
+    @Test
+    void smallWindowsParseLikeTheSameBytesInMemory() throws Exception {
+        Random random = new Random(27);
+        Path file = directory.resolve("windowed");
+        for (int i = 0; i < 300; i++) {
+            String input = (i % 2 == 0 ? " <" : "%PDF") + randomInput(random, random.nextInt(60));
+            byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+            Files.write(file, bytes);
+            ParsePipeline small = new ParsePipeline(FormatRegistry.defaults(), 1 + random.nextInt(32));
+
+            ByteArrayOutputStream inMemory = new ByteArrayOutputStream();
+            ParseResult expected = pipeline.parse(ByteBuffer.wrap(bytes), inMemory);
+            ByteArrayOutputStream mapped = new ByteArrayOutputStream();
+            ParseResult actual = small.parse(file, mapped);
+
+            assertEquals(expected.isValid(), actual.isValid(), input);
+            assertEquals(inMemory.toString(StandardCharsets.UTF_8), mapped.toString(StandardCharsets.UTF_8), input);
+        }
+    }
+
+    @Test
+    void parsersValidateFilesLikeTheirValidators() throws Exception {
+        Path file = directory.resolve("page.html");
+        String input = "\n <html><body>%PDF</body></html>\n";
+        Files.writeString(file, input);
+
+        ByteArrayOutputStream asPdf = new ByteArrayOutputStream();
+        ParseResult pdf = new PdfParser().parse(file, asPdf);
+        ByteArrayOutputStream asHtml = new ByteArrayOutputStream();
+        ParseResult html = new HtmlParser().parse(file, asHtml);
+
+        assertEquals(new PdfValidator().isValid(input), pdf.isValid());
+        assertEquals(new PdfParser().parse(input), asPdf.toString(StandardCharsets.UTF_8));
+        assertEquals(new HtmlValidator().isValid(input), html.isValid());
+        assertEquals(new HtmlParser().parse(input), asHtml.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void largeFilesParseWithoutAllocatingInProportionToTheirSize() throws Exception {
+        Path file = directory.resolve("large.pdf");
+        byte[] block = "0 obj << /Length 42 >> stream ABCDEFGHIJ endstream endobj\n".repeat(1_000)
+            .getBytes(StandardCharsets.UTF_8);
+        long size = 0;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write("%PDF-1.7\n".getBytes(StandardCharsets.UTF_8));
+            while (size < 64L << 20) {
+                out.write(block);
+                size += block.length;
+            }
+        }
+        ParsePipeline warm = new ParsePipeline();
+        warm.parse(file, OutputStream.nullOutputStream());
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        ParseResult result = warm.parse(file, OutputStream.nullOutputStream());
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertTrue(result.isValid());
+        assertEquals(Files.size(file), result.getBytesRead());
+        assertTrue(allocated < 1 << 20, "allocated " + allocated + " bytes for a " + Files.size(file) + " byte file");
+    }
+
+    private void assertParsesLikeTheOldPair(String input) throws Exception {
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        FormatRegistry registry = FormatRegistry.defaults();
+        ContentFormat format = registry.detect(bytes, Math.min(512, bytes.length));
+        if (format == null) {
+            assertThrows(IllegalArgumentException.class,
+                () -> pipeline.parse(new ByteArrayInputStream(bytes), new ByteArrayOutputStream()), input);
+            return;
+        }
+        boolean pdf = format.getName().equals("PDF");
+        String expected = pdf ? new PdfParser().parse(input) : new HtmlParser().parse(input);
+        boolean expectedValid = pdf ? new PdfValidator().isValid(input) : new HtmlValidator().isValid(input);
+
+        ByteArrayOutputStream fromStream = new ByteArrayOutputStream();
+        ParseResult streamed = pipeline.parse(new ByteArrayInputStream(bytes), fromStream);
+        ByteArrayOutputStream fromHeap = new ByteArrayOutputStream();
+        ParseResult heap = pipeline.parse(ByteBuffer.wrap(bytes), fromHeap);
+        ByteArrayOutputStream fromDirect = new ByteArrayOutputStream();
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        ParseResult offHeap = pipeline.parse(direct, fromDirect);
+
+        for (ParseResult result : new ParseResult[] {streamed, heap, offHeap}) {
+            assertEquals(expectedValid, result.isValid(), input);
+            assertEquals(bytes.length, result.getBytesRead());
+        }
+        assertEquals(expected, fromStream.toString(StandardCharsets.UTF_8), input);
+        assertEquals(expected, fromHeap.toString(StandardCharsets.UTF_8), input);
+        assertEquals(expected, fromDirect.toString(StandardCharsets.UTF_8), input);
+        assertEquals(0, direct.position());
+    }
+
+    private static String randomInput(Random random, int fragments) {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < fragments; i++) {
+            input.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+        }
+        return input.toString();
+    }
+}
@@ -0,0 +1,97 @@
+package com.codesmells.changepreventers.shotgunsurgery.bad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Taxes 65,536 line items: the original string comparisons, the scalar
+ * service call by region name and by region code, and the batch call.
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.codesmells.changepreventers.shotgunsurgery.bad.TaxBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaxBenchmark {
+
+    private static final String[] REGIONS = {"NE", "WC", "SE", "MW"};
+    private static final int LINES = 1 << 16;
+
+    private final TaxService taxes = new TaxService(TaxService.standardRates(), 0.07);
+    private final double[] amounts = new double[LINES];
+    private final String[] regions = new String[LINES];
+    private final byte[] regionCodes = new byte[LINES];
+    private final double[] out = new double[LINES];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(19);
+        for (int i = 0; i < LINES; i++) {
+            amounts[i] = random.nextInt(10_000_000) / 100.0;
+            regions[i] = REGIONS[random.nextInt(REGIONS.length)];
+        }
+        System.arraycopy(taxes.regionCodes(regions), 0, regionCodes, 0, LINES);
+    }
+
+    @Benchmark
+    public double[] stringComparisons() {
+        for (int i = 0; i < LINES; i++) {
+            String region = regions[i];
+            double rate;
+            if ("NE".equals(region)) {
+                rate = 0.088;
+            } else if ("WC".equals(region)) {
+                rate = 0.093;
+            } else {
+                rate = 0.07;
+            }
+            out[i] = amounts[i] * (1 + rate);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public double[] scalarByName() {
+        for (int i = 0; i < LINES; i++) {
+            out[i] = taxes.applyTax(amounts[i], regions[i]);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public double[] scalarByCode() {
+        for (int i = 0; i < LINES; i++) {
+            out[i] = taxes.applyTax(amounts[i], regionCodes[i]);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public double[] batch() {
+        taxes.applyTax(amounts, regionCodes, out);
+        return out;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TaxBenchmark.class.getSimpleName()).build()).run();
+    }
+}
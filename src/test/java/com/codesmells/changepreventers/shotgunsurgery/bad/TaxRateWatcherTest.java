@@ -0,0 +1,80 @@
+package com.codesmells.changepreventers.shotgunsurgery.bad;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaxRateWatcherTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void changedFilePublishesANewVersion() throws Exception {
+        Path file = directory.resolve("tax-rates.properties");
+        Files.writeString(file, "default=0.07\nNE=0.088\nWC=0.093\n");
+        TaxService taxes = new TaxService(Map.of(), 0);
+
+        try (TaxRateWatcher watcher = new TaxRateWatcher(taxes, file)) {
+            TaxedAmount before = taxes.tax(100, "NE");
+            assertEquals(108.8, before.getAmount(), 1e-9);
+
+            replace(file, "default=0.07\nNE=0.09\nWC=0.093\n");
+            awaitTrue(() -> taxes.tax(100, "NE").getAmount() > 108.9);
+
+            TaxedAmount after = taxes.tax(100, "NE");
+            assertEquals(109.0, after.getAmount(), 1e-9);
+            assertTrue(after.getTableVersion() > before.getTableVersion());
+            assertTrue(watcher.getReloadCount() >= 2);
+        }
+    }
+
+    @Test
+    void invalidFileKeepsThePreviousRates() throws Exception {
+        Path file = directory.resolve("tax-rates.properties");
+        Files.writeString(file, "default=0.07\nNE=0.088\n");
+        TaxService taxes = new TaxService(Map.of(), 0);
+
+        try (TaxRateWatcher watcher = new TaxRateWatcher(taxes, file)) {
+            long version = taxes.getTable().getVersion();
+
+            replace(file, "default=0.07\nNE=lots\n");
+            awaitTrue(() -> watcher.getLastError() != null);
+
+            assertNotNull(watcher.getLastError());
+            assertEquals(version, taxes.getTable().getVersion());
+            assertEquals(108.8, taxes.applyTax(100, "NE"), 1e-9);
+        }
+    }
+
+    @Test
+    void fileWithoutADefaultRateIsRejectedUpFront() throws Exception {
+        Path file = directory.resolve("tax-rates.properties");
+        Files.writeString(file, "NE=0.088\n");
+
+        assertThrows(IllegalArgumentException.class, () -> new TaxRateWatcher(new TaxService(Map.of(), 0), file));
+    }
+
+    private void replace(Path file, String content) throws Exception {
+        Path temporary = Files.writeString(directory.resolve("tax-rates.tmp"), content);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out waiting for the reload");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.codesmells.changepreventers.shotgunsurgery.bad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Latency distribution of tagged tax calls on four reader threads, with and
+ * without a background thread publishing a new table every millisecond.
+ * Compare the high percentiles of the two runs.
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.codesmells.changepreventers.shotgunsurgery.bad.TaxReloadBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class TaxReloadBenchmark {
+
+    @Param({"false", "true"})
+    public boolean reloading;
+
+    private final TaxService taxes = new TaxService(TaxService.standardRates(), 0.07);
+    private volatile boolean running;
+    private Thread reloader;
+
+    @Setup
+    public void setUp() {
+        if (!reloading) {
+            return;
+        }
+        running = true;
+        reloader = new Thread(() -> {
+            for (int i = 0; running; i++) {
+                taxes.update(Map.of("NE", 0.088 + (i & 1) * 0.001, "WC", 0.093), 0.07);
+                LockSupport.parkNanos(1_000_000);
+            }
+        }, "tax-reloader");
+        reloader.setDaemon(true);
+        reloader.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        running = false;
+        if (reloader != null) {
+            reloader.join();
+        }
+    }
+
+    @Benchmark
+    public TaxedAmount tax() {
+        return taxes.tax(100, "NE");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TaxReloadBenchmark.class.getSimpleName()).build()).run();
+    }
+}
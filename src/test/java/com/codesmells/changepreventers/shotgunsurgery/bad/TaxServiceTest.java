@@ -0,0 +1,62 @@
+package com.codesmells.changepreventers.shotgunsurgery.bad;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TaxServiceTest {
+
+    private static final String[] REGIONS = {"NE", "WC", "SE", "MW", null};
+
+    @Test
+    void defaultRatesMatchTheRatesTheServicesHardCoded() {
+        TaxService taxes = TaxService.getDefault();
+
+        assertEquals(100 * 1.088, taxes.applyTax(100, "NE"));
+        assertEquals(100 * 1.093, taxes.applyTax(100, "WC"));
+        assertEquals(100 * 1.07, taxes.applyTax(100, "SE"));
+        assertEquals(100 * 1.07, taxes.applyTax(100, (String) null));
+    }
+
+    @Test
+    void batchResultsEqualScalarResults() {
+        TaxService taxes = new TaxService(TaxService.standardRates(), 0.07);
+        Random random = new Random(19);
+        int count = 100_003;
+        double[] amounts = new double[count];
+        String[] regions = new String[count];
+        for (int i = 0; i < count; i++) {
+            amounts[i] = random.nextInt(10_000_000) / 100.0;
+            regions[i] = REGIONS[random.nextInt(REGIONS.length)];
+        }
+        double[] out = new double[count];
+
+        long version = taxes.applyTax(amounts, taxes.regionCodes(regions), out);
+
+        assertEquals(taxes.getTable().getVersion(), version);
+        for (int i = 0; i < count; i++) {
+            assertEquals(taxes.applyTax(amounts[i], regions[i]), out[i], "line " + i);
+        }
+    }
+
+    @Test
+    void codesResolvedBeforeAnUpdateKeepWorking() {
+        TaxService taxes = new TaxService(TaxService.standardRates(), 0.07);
+        byte northEast = taxes.regionCode("NE");
+
+        TaxTable updated = taxes.update(Map.of("NE", 0.1, "SE", 0.05), 0.06);
+
+        assertEquals(2, updated.getVersion());
+        assertEquals(0.1, taxes.rate(northEast), 1e-12);
+        assertEquals(0.06, taxes.rate(taxes.regionCode("WC")), 1e-12);
+        assertEquals(105.0, taxes.tax(100, "SE").getAmount(), 1e-9);
+        assertEquals(2, taxes.tax(100, "SE").getTableVersion());
+        assertThrows(IllegalArgumentException.class, () -> taxes.update(Map.of("NE", -0.1), 0.06));
+        assertThrows(IllegalArgumentException.class,
+            () -> taxes.applyTax(new double[2], new byte[1], new double[2]));
+    }
+}
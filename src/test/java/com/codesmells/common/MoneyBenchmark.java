@@ -0,0 +1,105 @@
+package com.codesmells.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Totals a batch of 1,024 line amounts with tax applied to each, as
+ * {@code double}, {@link BigDecimal}, {@link Money} values and raw minor
+ * units. Run with the GC profiler to see allocation per batch.
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.codesmells.common.MoneyBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private static final int LINES = 1_024;
+    private static final double TAX_RATE = 0.0875;
+    private static final long TAX_RATE_PPM = Money.toRatePpm(TAX_RATE);
+    private static final BigDecimal TAX_RATE_DECIMAL = BigDecimal.valueOf(TAX_RATE);
+
+    private final double[] doubleAmounts = new double[LINES];
+    private final BigDecimal[] decimalAmounts = new BigDecimal[LINES];
+    private final Money[] moneyAmounts = new Money[LINES];
+    private final long[] minorAmounts = new long[LINES];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(11);
+        for (int i = 0; i < LINES; i++) {
+            long cents = 1 + random.nextInt(100_000);
+            minorAmounts[i] = cents;
+            moneyAmounts[i] = Money.ofMinor(cents, Money.USD);
+            decimalAmounts[i] = BigDecimal.valueOf(cents, 2);
+            doubleAmounts[i] = cents / 100.0;
+        }
+    }
+
+    @Benchmark
+    public double doubles() {
+        double total = 0;
+        for (double amount : doubleAmounts) {
+            total += amount + amount * TAX_RATE;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimals() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal amount : decimalAmounts) {
+            BigDecimal tax = amount.multiply(TAX_RATE_DECIMAL).setScale(2, RoundingMode.HALF_EVEN);
+            total = total.add(amount).add(tax);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Money moneyValues() {
+        Money total = Money.zero(Money.USD);
+        for (Money amount : moneyAmounts) {
+            total = total.plus(amount).plus(amount.applyRate(TAX_RATE_PPM));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long minorUnits() {
+        long total = 0;
+        for (long amount : minorAmounts) {
+            total = Math.addExact(total, Math.addExact(amount, Money.applyRate(amount, TAX_RATE_PPM)));
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(MoneyBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+}
@@ -0,0 +1,70 @@
+package com.codesmells.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+    private static final Currency JPY = Currency.getInstance("JPY");
+
+    @Test
+    void applyRateRoundsHalfToEven() {
+        // 50 cents at 1% is exactly half a cent
+        assertEquals(0, Money.applyRate(50, 10_000));
+        assertEquals(2, Money.applyRate(150, 10_000));
+        assertEquals(2, Money.applyRate(250, 10_000));
+        assertEquals(-2, Money.applyRate(-250, 10_000));
+        assertEquals(-4, Money.applyRate(-350, 10_000));
+        assertEquals(1, Money.applyRate(51, 10_000));
+    }
+
+    @Test
+    void applyRateMatchesBigDecimal() {
+        Random random = new Random(11);
+        for (int i = 0; i < 100_000; i++) {
+            long minorUnits = random.nextLong() % 1_000_000_000_000L;
+            long ratePpm = random.nextInt(2_000_000);
+            long expected = BigDecimal.valueOf(minorUnits)
+                .multiply(BigDecimal.valueOf(ratePpm))
+                .divide(BigDecimal.valueOf(Money.RATE_SCALE), 0, RoundingMode.HALF_EVEN)
+                .longValueExact();
+            assertEquals(expected, Money.applyRate(minorUnits, ratePpm), minorUnits + " at " + ratePpm + " ppm");
+        }
+    }
+
+    @Test
+    void arithmeticThrowsInsteadOfOverflowing() {
+        Money max = Money.ofMinor(Long.MAX_VALUE, Money.USD);
+        Money cent = Money.ofMinor(1, Money.USD);
+
+        assertThrows(ArithmeticException.class, () -> max.plus(cent));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MIN_VALUE, Money.USD).minus(cent));
+        assertThrows(ArithmeticException.class, () -> max.times(2));
+        assertThrows(ArithmeticException.class, () -> max.applyRate(87_500));
+        assertThrows(ArithmeticException.class, () -> Money.toMinorUnits(new BigDecimal("1e30"), Money.USD));
+    }
+
+    @Test
+    void decimalAmountsConvertToTheCurrencysMinorUnits() {
+        assertEquals(2_999, Money.toMinorUnits(29.99, Money.USD));
+        assertEquals(10, Money.toMinorUnits(0.1, Money.USD));
+        assertEquals(2, Money.toMinorUnits(0.015, Money.USD));
+        assertEquals(2, Money.toMinorUnits(0.025, Money.USD));
+        assertEquals(1_234, Money.toMinorUnits(1_234.5, JPY));
+        assertEquals("0.30 USD", Money.of(0.1, Money.USD).plus(Money.of(0.2, Money.USD)).toString());
+        assertEquals(87_500, Money.toRatePpm(0.0875));
+    }
+
+    @Test
+    void mixingCurrenciesIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+            () -> Money.zero(Money.USD).plus(Money.zero(JPY)));
+    }
+}
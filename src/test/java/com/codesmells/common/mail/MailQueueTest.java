@@ -0,0 +1,175 @@
+package com.codesmells.common.mail;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MailQueueTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void temporaryRefusalOfOneRecipientRetriesOnlyThatMessage() throws Exception {
+        ScriptedTransport transport = new ScriptedTransport();
+        transport.refusals.put("busy@example.com", new AtomicInteger(2));
+
+        try (MailQueue queue = MailQueue.open(directory, transport, 2, 100, 5, Duration.ofMillis(50))) {
+            queue.submit("busy@example.com", "s", "b");
+            for (int i = 0; i < 20; i++) {
+                queue.submit("user" + i + "@example.com", "s", "b");
+            }
+            awaitEmpty(queue);
+
+            assertEquals(21, queue.getSentCount());
+            assertEquals(2, queue.getRetryCount());
+            assertEquals(1, queue.getConnectionCount(), "a per-message refusal must not drop the domain's connection");
+            // The others went out on the first pass, before the refused message's first retry
+            assertEquals("busy@example.com", transport.delivered.get(transport.delivered.size() - 1));
+        }
+    }
+
+    @Test
+    void connectFailureBacksOffTheDomainAndKeepsEveryMessage() throws Exception {
+        ScriptedTransport transport = new ScriptedTransport();
+        transport.connectFailures.set(2);
+
+        try (MailQueue queue = MailQueue.open(directory, transport, 2, 100, 5, Duration.ofMillis(20))) {
+            for (int i = 0; i < 10; i++) {
+                queue.submit("user" + i + "@example.com", "s", "b");
+            }
+            awaitEmpty(queue);
+
+            assertEquals(10, queue.getSentCount());
+            assertEquals(0, queue.getFailedCount());
+            assertEquals(1, queue.getConnectionCount());
+        }
+    }
+
+    @Test
+    void deliversEveryMessageOverSmtpWithOneConnectionPerDomain() throws Exception {
+        String[] domains = {"a.example.com", "b.example.com", "c.example.com", "d.example.com", "e.example.com"};
+        try (LocalSmtpServer server = new LocalSmtpServer()) {
+            SmtpTransport transport = new SmtpTransport("127.0.0.1", server.getPort(), "noreply@example.com");
+            try (MailQueue queue = MailQueue.open(directory, transport, 4, 50, 5, Duration.ofMillis(20))) {
+                for (int i = 0; i < 2_000; i++) {
+                    queue.submit("user" + i + "@" + domains[i % domains.length], "Invoice " + i, "Body\n.\nof " + i);
+                }
+                awaitEmpty(queue);
+
+                assertEquals(2_000, queue.getSentCount());
+                assertEquals(domains.length, queue.getConnectionCount());
+            }
+            assertEquals(2_000, server.getReceivedCount());
+            assertEquals(domains.length, server.getConnectionCount());
+            for (String domain : domains) {
+                assertEquals(400, server.getReceivedCount(domain), domain);
+            }
+        }
+    }
+
+    @Test
+    void messagesForAnUnavailableDomainSurviveARestart() throws Exception {
+        try (LocalSmtpServer server = new LocalSmtpServer()) {
+            SmtpTransport transport = new SmtpTransport("127.0.0.1", server.getPort(), "noreply@example.com");
+            server.setUnavailable("down.example.com", true);
+            try (MailQueue queue = MailQueue.open(directory, transport, 2, 50, 100, Duration.ofMillis(20))) {
+                for (int i = 0; i < 10; i++) {
+                    queue.submit("user" + i + "@down.example.com", "s", "b");
+                    queue.submit("user" + i + "@up.example.com", "s", "b");
+                }
+                awaitTrue(() -> queue.getSentCount() == 10 && queue.getRetryCount() > 0);
+                assertEquals(10, queue.getQueueDepth());
+            }
+
+            server.setUnavailable("down.example.com", false);
+            try (MailQueue reopened = MailQueue.open(directory, transport, 2, 50, 100, Duration.ofMillis(20))) {
+                awaitEmpty(reopened);
+
+                assertEquals(10, reopened.getSentCount());
+                assertEquals(0, reopened.getFailedCount());
+            }
+            assertEquals(10, server.getReceivedCount("down.example.com"));
+            assertEquals(10, server.getReceivedCount("up.example.com"));
+        }
+    }
+
+    @Test
+    void journalTreatsALengthPastTheEndOfTheFileAsATornTail() throws Exception {
+        Path file = directory.resolve("journal.log");
+        try (MailJournal journal = MailJournal.open(file)) {
+            journal.appendEnqueued(new MailMessage("a@example.com", "s", "b"));
+        }
+        long valid = Files.size(file);
+        // A header claiming a 2 GB record, as a torn or garbled write can leave behind
+        Files.write(file, ByteBuffer.allocate(16).putInt(Integer.MAX_VALUE - 8).putInt(0).array(),
+            StandardOpenOption.APPEND);
+
+        try (MailJournal journal = MailJournal.open(file)) {
+            Map<Long, MailMessage> pending = journal.getPending();
+            assertEquals(1, pending.size());
+        }
+        assertEquals(valid, Files.size(file));
+    }
+
+    private static void awaitEmpty(MailQueue queue) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (queue.getQueueDepth() > 0) {
+            assertTrue(System.nanoTime() < deadline, queue.getQueueDepth() + " messages still queued");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Refuses given recipients with 450 a number of times and can fail the first connects.
+     */
+    private static final class ScriptedTransport implements MailTransport {
+        final Map<String, AtomicInteger> refusals = new ConcurrentHashMap<>();
+        final AtomicInteger connectFailures = new AtomicInteger();
+        final List<String> delivered = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Connection connect(String domain) throws IOException {
+            if (connectFailures.getAndDecrement() > 0) {
+                throw new IOException("Connection refused");
+            }
+            return new Connection() {
+                @Override
+                public void send(MailMessage message) throws IOException {
+                    AtomicInteger remaining = refusals.get(message.getRecipient());
+                    if (remaining != null && remaining.getAndDecrement() > 0) {
+                        throw new MailDeliveryException(450, "Mailbox busy");
+                    }
+                    delivered.add(message.getRecipient());
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+}
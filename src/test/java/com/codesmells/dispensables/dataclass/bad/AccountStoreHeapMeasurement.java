@@ -0,0 +1,85 @@
+package com.codesmells.dispensables.dataclass.bad;
+
+import com.codesmells.common.Money;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Loads millions of accounts into either a {@code HashMap} of
+ * {@link BankAccount} or an {@link OffHeapAccountStore} and reports the heap
+ * they occupy and how long a full collection takes with them live.
+ *
+ * Run each store in its own JVM with a heap large enough for the map, and
+ * GC logging on to see the individual pauses:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt -Dmdep.includeScope=test
+ * java -Xmx4g -Xlog:gc -cp target/test-classes:target/classes:$(cat cp.txt) \
+ *     com.codesmells.dispensables.dataclass.bad.AccountStoreHeapMeasurement map 20000000
+ * java -Xmx4g -Xlog:gc -cp target/test-classes:target/classes:$(cat cp.txt) \
+ *     com.codesmells.dispensables.dataclass.bad.AccountStoreHeapMeasurement offheap 20000000
+ * </pre>
+ * The full collections are the ones System.gc() triggers, so each pause is
+ * a full mark of everything the store keeps reachable.
+ */
+public class AccountStoreHeapMeasurement {
+
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final String[] TYPES = {"CHECKING", "SAVINGS", "BUSINESS"};
+    private static final int FULL_COLLECTIONS = 5;
+
+    public static void main(String[] args) {
+        String store = args.length > 0 ? args[0] : "offheap";
+        int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 20_000_000;
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long before = memory.getHeapMemoryUsage().getUsed();
+
+        long start = System.nanoTime();
+        Object loaded;
+        long offHeapBytes = 0;
+        if (store.equals("map")) {
+            Map<String, BankAccount> map = new HashMap<>();
+            for (int i = 0; i < accounts; i++) {
+                String number = accountNumber(i);
+                map.put(number, new BankAccount(number, Money.ofMinor(i, USD), TYPES[i % TYPES.length]));
+            }
+            loaded = map;
+        } else if (store.equals("offheap")) {
+            OffHeapAccountStore offHeap = new OffHeapAccountStore(USD, accounts, 12);
+            for (int i = 0; i < accounts; i++) {
+                offHeap.add(accountNumber(i), TYPES[i % TYPES.length], Money.ofMinor(i, USD));
+            }
+            offHeapBytes = offHeap.getOffHeapBytes();
+            loaded = offHeap;
+        } else {
+            throw new IllegalArgumentException("Store must be map or offheap: " + store);
+        }
+        double loadSeconds = (System.nanoTime() - start) / 1e9;
+
+        long minPauseMillis = Long.MAX_VALUE;
+        long maxPauseMillis = 0;
+        for (int i = 0; i < FULL_COLLECTIONS; i++) {
+            long gcStart = System.nanoTime();
+            System.gc();
+            long pauseMillis = (System.nanoTime() - gcStart) / 1_000_000;
+            minPauseMillis = Math.min(minPauseMillis, pauseMillis);
+            maxPauseMillis = Math.max(maxPauseMillis, pauseMillis);
+        }
+        long heapBytes = memory.getHeapMemoryUsage().getUsed() - before;
+
+        System.out.printf("%s: %,d accounts loaded in %.1f s%n", store, accounts, loadSeconds);
+        System.out.printf("  heap %,d MB, off-heap %,d MB%n", heapBytes >> 20, offHeapBytes >> 20);
+        System.out.printf("  full GC %d-%d ms over %d collections%n", minPauseMillis, maxPauseMillis, FULL_COLLECTIONS);
+        // Keeps the store reachable through the collections above
+        Reference.reachabilityFence(loaded);
+    }
+
+    private static String accountNumber(int i) {
+        return String.format("ACC-%08d", i);
+    }
+}
@@ -0,0 +1,139 @@
+package com.codesmells.dispensables.dataclass.bad;
+
+import com.codesmells.common.Money;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BankingServiceStressTest {
+
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 5_000;
+
+    private final BankingService banking = new BankingService();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void concurrentTransfersBetweenHotAccountsConserveTheTotal() throws Exception {
+        List<BankAccount> accounts = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            accounts.add(new BankAccount("ACC-" + i, Money.of(1_000, USD), "CHECKING"));
+        }
+
+        runConcurrently(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            BankAccount from = accounts.get(random.nextInt(accounts.size()));
+            BankAccount to = accounts.get(random.nextInt(accounts.size()));
+            if (from == to) {
+                return;
+            }
+            try {
+                banking.transfer(from, to, Money.ofMinor(1 + random.nextInt(50_000), USD));
+            } catch (IllegalArgumentException e) {
+                // Insufficient funds
+            }
+        });
+
+        long total = 0;
+        for (BankAccount account : accounts) {
+            assertTrue(account.getBalanceMinorUnits() >= 0, account.getAccountNumber() + " is overdrawn");
+            total += account.getBalanceMinorUnits();
+        }
+        assertEquals(4 * 100_000L, total);
+    }
+
+    @Test
+    void concurrentOppositeTransfersThroughALedgerNeitherDeadlockNorLoseMoney() throws Exception {
+        try (Ledger ledger = Ledger.open(directory, Duration.ofHours(1))) {
+            BankingService journaled = new BankingService(ledger);
+            BankAccount a = ledger.openAccount("ACC-A", Money.of(1_000, USD), "CHECKING");
+            BankAccount b = ledger.openAccount("ACC-B", Money.of(1_000, USD), "CHECKING");
+
+            runConcurrently(500, () -> {
+                boolean forward = ThreadLocalRandom.current().nextBoolean();
+                try {
+                    journaled.transfer(forward ? a : b, forward ? b : a, Money.ofMinor(2_500, USD));
+                } catch (IllegalArgumentException e) {
+                    // Insufficient funds
+                }
+            });
+
+            assertEquals(200_000L, a.getBalanceMinorUnits() + b.getBalanceMinorUnits());
+        }
+        try (Ledger recovered = Ledger.open(directory, Duration.ofHours(1))) {
+            assertEquals(200_000L, recovered.getAccount("ACC-A").getBalanceMinorUnits()
+                + recovered.getAccount("ACC-B").getBalanceMinorUnits());
+        }
+    }
+
+    @Test
+    void concurrentWithdrawalsNeverLoseUpdatesOrOverdraw() throws Exception {
+        BankAccount account = new BankAccount("ACC-1", Money.of(10_000, USD), "CHECKING");
+        AtomicLong withdrawn = new AtomicLong();
+        AtomicLong deposited = new AtomicLong();
+
+        runConcurrently(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long amount = 1 + random.nextInt(10_000);
+            if (random.nextBoolean()) {
+                banking.deposit(account, Money.ofMinor(amount, USD));
+                deposited.addAndGet(amount);
+            } else {
+                try {
+                    banking.withdraw(account, Money.ofMinor(amount, USD));
+                    withdrawn.addAndGet(amount);
+                } catch (IllegalArgumentException e) {
+                    // Insufficient funds
+                }
+            }
+        });
+
+        assertTrue(account.getBalanceMinorUnits() >= 0);
+        assertEquals(1_000_000L + deposited.get() - withdrawn.get(), account.getBalanceMinorUnits());
+    }
+
+    private static void runConcurrently(Runnable operation) throws InterruptedException {
+        runConcurrently(OPERATIONS_PER_THREAD, operation);
+    }
+
+    private static void runConcurrently(int operationsPerThread, Runnable operation) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < operationsPerThread; i++) {
+                        operation.run();
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(List.of(), failures);
+    }
+}
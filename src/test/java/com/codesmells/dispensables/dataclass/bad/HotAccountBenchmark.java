@@ -0,0 +1,96 @@
+package com.codesmells.dispensables.dataclass.bad;
+
+import com.codesmells.common.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposits, withdrawals and transfers from eight threads that all hit the
+ * same few accounts, so the compare-and-set loops on the balances contend.
+ *
+ * Balances start high enough that no operation fails for lack of funds.
+ * BankingService prints every operation; standard output is discarded
+ * during the run so the scores measure the balance updates, not the
+ * console. Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.codesmells.dispensables.dataclass.bad.HotAccountBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class HotAccountBenchmark {
+
+    @Param({"2", "4", "16"})
+    public int hotAccounts;
+
+    private final BankingService banking = new BankingService();
+    private final Money cent = Money.ofMinor(1, Money.USD);
+    private BankAccount[] accounts;
+    private PrintStream console;
+
+    @Setup
+    public void setUp() {
+        accounts = new BankAccount[hotAccounts];
+        for (int i = 0; i < hotAccounts; i++) {
+            accounts[i] = new BankAccount("HOT-" + i, Money.ofMinor(Long.MAX_VALUE / 4, Money.USD), "CHECKING");
+        }
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public void deposit() {
+        banking.deposit(pick(), cent);
+    }
+
+    @Benchmark
+    public void withdraw() {
+        banking.withdraw(pick(), cent);
+    }
+
+    @Benchmark
+    public void transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(hotAccounts);
+        int to = (from + 1 + random.nextInt(hotAccounts - 1)) % hotAccounts;
+        banking.transfer(accounts[from], accounts[to], cent);
+    }
+
+    private BankAccount pick() {
+        return accounts[ThreadLocalRandom.current().nextInt(hotAccounts)];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(HotAccountBenchmark.class.getSimpleName()).build()).run();
+    }
+}
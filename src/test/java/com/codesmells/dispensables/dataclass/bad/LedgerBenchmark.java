@@ -0,0 +1,108 @@
+package com.codesmells.dispensables.dataclass.bad;
+
+import com.codesmells.common.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Sustained durable transactions per second through a {@link Ledger}: every
+ * deposit and transfer returns only once its group commit has been fsynced,
+ * and a snapshot is taken every second as in production.
+ *
+ * Group commit only pays off with many writers waiting on the same fsync, so
+ * {@link #main} repeats the run at 1, 16, 64 and 256 threads. Standard output
+ * is discarded during the run because BankingService prints every operation.
+ * Results depend heavily on the disk's fsync latency. Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.codesmells.dispensables.dataclass.bad.LedgerBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(64)
+@Fork(1)
+public class LedgerBenchmark {
+
+    private static final int ACCOUNTS = 1_024;
+
+    private final Money cent = Money.ofMinor(1, Money.USD);
+    private Path directory;
+    private Ledger ledger;
+    private BankingService banking;
+    private BankAccount[] accounts;
+    private PrintStream console;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ledger-benchmark");
+        ledger = Ledger.open(directory, Duration.ofSeconds(1));
+        banking = new BankingService(ledger);
+        accounts = new BankAccount[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = ledger.openAccount("ACC-" + i, Money.of(1_000_000, Money.USD), "CHECKING");
+        }
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.setOut(console);
+        ledger.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void deposit() {
+        banking.deposit(accounts[ThreadLocalRandom.current().nextInt(ACCOUNTS)], cent);
+    }
+
+    @Benchmark
+    public void transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(ACCOUNTS);
+        int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+        banking.transfer(accounts[from], accounts[to], cent);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[] {1, 16, 64, 256}) {
+            new Runner(new OptionsBuilder()
+                .include(LedgerBenchmark.class.getSimpleName())
+                .threads(threads)
+                .build()).run();
+        }
+    }
+}
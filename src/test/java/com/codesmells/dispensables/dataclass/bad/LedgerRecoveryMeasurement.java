@@ -0,0 +1,102 @@
+package com.codesmells.dispensables.dataclass.bad;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Writes a journal of ten million records and times {@link Ledger#open}
+ * replaying it, then checks every recovered balance against the balances
+ * the records describe.
+ *
+ * The journal is written with {@link LedgerJournal} directly, in large
+ * group commits, so producing it takes seconds rather than one fsync per
+ * record. There is no snapshot: recovery replays every record. Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.codesmells.dispensables.dataclass.bad.LedgerRecoveryMeasurement \
+ *     -Dexec.args=10000000
+ * </pre>
+ * The argument is the number of records, 10M if omitted.
+ */
+public class LedgerRecoveryMeasurement {
+
+    private static final int ACCOUNTS = 10_000;
+    private static final long OPENING_BALANCE = 1_000_000_00L;
+
+    public static void main(String[] args) throws IOException {
+        long records = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000;
+        Path directory = Files.createTempDirectory("ledger-recovery");
+        try {
+            long[] expected = new long[ACCOUNTS];
+            long start = System.nanoTime();
+            writeJournal(directory, records, expected);
+            long journalBytes = Files.size(LedgerJournal.path(directory, 0));
+            System.out.printf("wrote %,d records (%,d bytes) in %.2f s%n",
+                records, journalBytes, (System.nanoTime() - start) / 1e9);
+
+            start = System.nanoTime();
+            try (Ledger ledger = Ledger.open(directory, Duration.ofHours(1))) {
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("recovered %,d records in %.2f s (%,.0f records/s)%n",
+                    ledger.getRecoveredRecordCount(), seconds, ledger.getRecoveredRecordCount() / seconds);
+                int mismatches = 0;
+                for (int i = 0; i < ACCOUNTS; i++) {
+                    if (ledger.getAccount(accountNumber(i)).getBalanceMinorUnits() != expected[i]) {
+                        mismatches++;
+                    }
+                }
+                System.out.printf("%d of %d balances differ from the journal%n", mismatches, ACCOUNTS);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static void writeJournal(Path directory, long records, long[] balances) throws IOException {
+        Random random = new Random(17);
+        try (LedgerJournal journal = new LedgerJournal(directory, 0)) {
+            long sequence = 0;
+            for (long i = 0; i < records; i++) {
+                int account = (int) (i % ACCOUNTS);
+                if (i < ACCOUNTS) {
+                    balances[account] = OPENING_BALANCE;
+                    sequence = journal.append(LedgerJournal.OPEN, OPENING_BALANCE, accountNumber(account),
+                        "CHECKING", "USD");
+                } else {
+                    int other = random.nextInt(ACCOUNTS);
+                    long amount = 1 + random.nextInt(10_000);
+                    if (i % 2 == 0) {
+                        balances[account] += amount;
+                        sequence = journal.append(LedgerJournal.DEPOSIT, amount, accountNumber(account), "", "");
+                    } else if (other != account) {
+                        balances[account] -= amount;
+                        balances[other] += amount;
+                        sequence = journal.append(LedgerJournal.TRANSFER, amount, accountNumber(account),
+                            accountNumber(other), "");
+                    } else {
+                        balances[account] -= amount;
+                        sequence = journal.append(LedgerJournal.WITHDRAWAL, amount, accountNumber(account), "", "");
+                    }
+                }
+                // Bounds the buffered batch; the flusher keeps writing in the background meanwhile
+                if (i % 100_000 == 99_999) {
+                    journal.awaitDurable(sequence);
+                }
+            }
+            journal.awaitDurable(sequence);
+        }
+    }
+
+    private static String accountNumber(int account) {
+        return "ACC-" + account;
+    }
+}
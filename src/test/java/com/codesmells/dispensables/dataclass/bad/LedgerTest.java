@@ -0,0 +1,267 @@
+package com.codesmells.dispensables.dataclass.bad;
+
+import com.codesmells.common.Money;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Currency;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LedgerTest {
+
+    private static final Currency USD = Currency.getInstance("USD");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void changeIsUndoneWhenItCannotBeJournaled() throws Exception {
+        Ledger ledger = Ledger.open(directory, Duration.ofHours(1));
+        BankingService banking = new BankingService(ledger);
+        BankAccount from = ledger.openAccount("A-1", Money.of(100, USD), "CHECKING");
+        BankAccount to = ledger.openAccount("A-2", Money.of(100, USD), "CHECKING");
+        ledger.close();
+
+        assertThrows(IllegalStateException.class, () -> banking.deposit(from, Money.of(10, USD)));
+        assertThrows(IllegalStateException.class, () -> banking.withdraw(from, Money.of(10, USD)));
+        assertThrows(IllegalStateException.class, () -> banking.transfer(from, to, Money.of(10, USD)));
+
+        assertEquals(Money.of(100, USD), from.getBalance());
+        assertEquals(Money.of(100, USD), to.getBalance());
+    }
+
+    @Test
+    void recoversBalancesFromSnapshotAndJournal() throws Exception {
+        try (Ledger ledger = Ledger.open(directory, Duration.ofHours(1))) {
+            BankingService banking = new BankingService(ledger);
+            BankAccount a = ledger.openAccount("A-1", Money.of(0, USD), "CHECKING");
+            BankAccount b = ledger.openAccount("A-2", Money.of(0, USD), "SAVINGS");
+            banking.deposit(a, Money.of(300, USD));
+            ledger.snapshot();
+            banking.withdraw(a, Money.of(50, USD));
+            banking.transfer(a, b, Money.of(100, USD));
+        }
+
+        try (Ledger ledger = Ledger.open(directory, Duration.ofHours(1))) {
+            assertEquals(Money.of(150, USD), ledger.getAccount("A-1").getBalance());
+            assertEquals(Money.of(100, USD), ledger.getAccount("A-2").getBalance());
+            assertEquals(2, ledger.getRecoveredRecordCount());
+        }
+    }
+
+    @Test
+    void refusesToRecoverPastAnUnreadableSnapshotWhoseJournalsAreGone() throws Exception {
+        try (Ledger ledger = Ledger.open(directory, Duration.ofHours(1))) {
+            BankAccount a = ledger.openAccount("A-1", Money.of(0, USD), "CHECKING");
+            new BankingService(ledger).deposit(a, Money.of(300, USD));
+            ledger.snapshot();
+        }
+        corrupt(LedgerSnapshot.path(directory, 1));
+
+        assertThrows(IOException.class, () -> Ledger.open(directory, Duration.ofHours(1)));
+    }
+
+    @Test
+    void fallsBackPastAnUnreadableSnapshotWhileItsJournalsRemain() throws Exception {
+        Path saved = directory.resolve("saved.log");
+        try (Ledger ledger = Ledger.open(directory, Duration.ofHours(1))) {
+            BankAccount a = ledger.openAccount("A-1", Money.of(0, USD), "CHECKING");
+            new BankingService(ledger).deposit(a, Money.of(300, USD));
+            Files.copy(LedgerJournal.path(directory, 0), saved);
+            ledger.snapshot();
+        }
+        Files.move(saved, LedgerJournal.path(directory, 0), StandardCopyOption.REPLACE_EXISTING);
+        corrupt(LedgerSnapshot.path(directory, 1));
+
+        try (Ledger ledger = Ledger.open(directory, Duration.ofHours(1))) {
+            assertEquals(Money.of(300, USD), ledger.getAccount("A-1").getBalance());
+        }
+    }
+
+    @Test
+    void failedFsyncUndoesTheChangeAndFailsTheLedger() throws Exception {
+        AtomicBoolean diskFails = new AtomicBoolean();
+        try (Ledger ledger = Ledger.open(directory, Duration.ofHours(1),
+                file -> new FailingChannel(LedgerJournal.openForAppend(file), diskFails))) {
+            BankingService banking = new BankingService(ledger);
+            BankAccount a = ledger.openAccount("A-1", Money.of(100, USD), "CHECKING");
+            BankAccount b = ledger.openAccount("A-2", Money.of(100, USD), "CHECKING");
+            diskFails.set(true);
+
+            assertThrows(IllegalStateException.class, () -> banking.transfer(a, b, Money.of(30, USD)));
+
+            assertTrue(ledger.isFailed());
+            assertEquals(Money.of(100, USD), a.getBalance());
+            assertEquals(Money.of(100, USD), b.getBalance());
+            diskFails.set(false);
+            assertThrows(IllegalStateException.class, () -> banking.deposit(a, Money.of(10, USD)));
+            assertThrows(IllegalStateException.class, () -> ledger.openAccount("A-3", Money.of(1, USD), "CHECKING"));
+            assertThrows(IllegalStateException.class, ledger::snapshot);
+            assertEquals(Money.of(100, USD), a.getBalance());
+        }
+
+        try (Ledger reopened = Ledger.open(directory, Duration.ofHours(1))) {
+            assertEquals(Money.of(100, USD), reopened.getAccount("A-1").getBalance());
+            assertEquals(Money.of(100, USD), reopened.getAccount("A-2").getBalance());
+            assertNull(reopened.getAccount("A-3"));
+        }
+    }
+
+    @Test
+    void onlyTheNewestJournalMayEndTorn() throws Exception {
+        Path saved = directory.resolve("saved.log");
+        try (Ledger ledger = Ledger.open(directory, Duration.ofHours(1))) {
+            BankingService banking = new BankingService(ledger);
+            BankAccount a = ledger.openAccount("A-1", Money.of(0, USD), "CHECKING");
+            banking.deposit(a, Money.of(300, USD));
+            Files.copy(LedgerJournal.path(directory, 0), saved);
+            ledger.snapshot();
+            banking.deposit(a, Money.of(50, USD));
+        }
+        // Recover from journals 0 and 1, without the snapshot between them
+        Files.move(saved, LedgerJournal.path(directory, 0), StandardCopyOption.REPLACE_EXISTING);
+        corrupt(LedgerSnapshot.path(directory, 1));
+        byte[] garbage = {0, 0, 0, 40, 1, 2, 3, 4, 5};
+        Files.write(LedgerJournal.path(directory, 1), garbage, StandardOpenOption.APPEND);
+        long newestValid = Files.size(LedgerJournal.path(directory, 1)) - garbage.length;
+
+        try (Ledger ledger = Ledger.open(directory, Duration.ofHours(1))) {
+            assertEquals(Money.of(350, USD), ledger.getAccount("A-1").getBalance());
+        }
+        assertEquals(newestValid, Files.size(LedgerJournal.path(directory, 1)));
+
+        Files.write(LedgerJournal.path(directory, 0), garbage, StandardOpenOption.APPEND);
+        assertThrows(IOException.class, () -> Ledger.open(directory, Duration.ofHours(1)));
+    }
+
+    private static void corrupt(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(file, bytes);
+    }
+
+    /**
+     * Journal file whose writes are lost and whose fsync fails while the disk is failing.
+     */
+    private static final class FailingChannel extends FileChannel {
+        private final FileChannel delegate;
+        private final AtomicBoolean failing;
+
+        FailingChannel(FileChannel delegate, AtomicBoolean failing) {
+            this.delegate = delegate;
+            this.failing = failing;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            if (failing.get()) {
+                int lost = source.remaining();
+                source.position(source.limit());
+                return lost;
+            }
+            return delegate.write(source);
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (failing.get()) {
+                throw new IOException("Input/output error");
+            }
+            delegate.force(metaData);
+        }
+
+        @Override
+        public int read(ByteBuffer destination) throws IOException {
+            return delegate.read(destination);
+        }
+
+        @Override
+        public long read(ByteBuffer[] destinations, int offset, int length) throws IOException {
+            return delegate.read(destinations, offset, length);
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources, int offset, int length) throws IOException {
+            return delegate.write(sources, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel source, long position, long count) throws IOException {
+            return delegate.transferFrom(source, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer destination, long position) throws IOException {
+            return delegate.read(destination, position);
+        }
+
+        @Override
+        public int write(ByteBuffer source, long position) throws IOException {
+            return delegate.write(source, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.codesmells.dispensables.dataclass.bad;
+
+import com.codesmells.common.Money;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapAccountStoreTest {
+
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final String[] TYPES = {"CHECKING", "SAVINGS", "BUSINESS"};
+    private static final int ACCOUNTS = 1_000_000;
+
+    @Test
+    void depositsAndWithdrawalsFollowTheBankingServiceRules() {
+        BankingService banking = new BankingService();
+        OffHeapAccountStore store = new OffHeapAccountStore(USD, 100, 16);
+        List<BankAccount> accounts = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            String number = "ACC-" + i;
+            Money balance = Money.ofMinor(i * 50_000L, USD);
+            accounts.add(new BankAccount(number, balance, TYPES[i % TYPES.length]));
+            store.add(number, TYPES[i % TYPES.length], balance);
+        }
+
+        Random random = new Random(18);
+        for (int i = 0; i < 2_000; i++) {
+            BankAccount account = accounts.get(random.nextInt(accounts.size()));
+            Money amount = Money.ofMinor(1 + random.nextInt(300_000), USD);
+            boolean deposit = random.nextBoolean();
+            String expected = outcome(() -> {
+                if (deposit) {
+                    banking.deposit(account, amount);
+                } else {
+                    banking.withdraw(account, amount);
+                }
+            });
+            String actual = outcome(() -> {
+                if (deposit) {
+                    store.deposit(account.getAccountNumber(), amount);
+                } else {
+                    store.withdraw(account.getAccountNumber(), amount);
+                }
+            });
+            assertEquals(expected, actual, account.getAccountNumber());
+            assertEquals(account.getBalance(), store.getBalance(account.getAccountNumber()));
+        }
+        assertEquals("SAVINGS", store.getAccountType("ACC-4"));
+        assertEquals(-1, store.find("ACC-30"));
+        assertThrows(IllegalArgumentException.class, () -> store.add("ACC-1", "CHECKING", Money.zero(USD)));
+        assertThrows(IllegalArgumentException.class, () -> store.deposit("ACC-30", Money.ofMinor(1, USD)));
+    }
+
+    @Test
+    void concurrentBalanceChangesAreNotLost() throws Exception {
+        OffHeapAccountStore store = new OffHeapAccountStore(USD, 4, 8);
+        store.add("HOT", "BUSINESS", Money.zero(USD));
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    store.deposit("HOT", Money.ofMinor(3, USD));
+                    store.withdraw("HOT", Money.ofMinor(1, USD));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(8 * 10_000 * 2L, store.getBalance("HOT").getMinorUnits());
+    }
+
+    @Test
+    void oneMillionAccountsCostAFractionOfTheHeapOfBankAccounts() {
+        long before = usedHeapAfterGc();
+        OffHeapAccountStore store = new OffHeapAccountStore(USD, ACCOUNTS, 12);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            store.add(accountNumber(i), TYPES[i % TYPES.length], Money.ofMinor(i, USD));
+        }
+        long storeHeap = usedHeapAfterGc() - before;
+
+        before = usedHeapAfterGc();
+        Map<String, BankAccount> objects = new HashMap<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            String number = accountNumber(i);
+            objects.put(number, new BankAccount(number, Money.ofMinor(i, USD), new String(TYPES[i % TYPES.length])));
+        }
+        long objectHeap = usedHeapAfterGc() - before;
+
+        System.out.printf("%,d accounts: store %,d bytes heap + %,d off-heap, BankAccount map %,d bytes heap%n",
+            ACCOUNTS, storeHeap, store.getOffHeapBytes(), objectHeap);
+        assertTrue(storeHeap < objectHeap / 10, "store " + storeHeap + " vs objects " + objectHeap);
+        int probe = ThreadLocalRandom.current().nextInt(ACCOUNTS);
+        assertEquals(objects.get(accountNumber(probe)).getBalance(), store.getBalance(accountNumber(probe)));
+    }
+
+    private static String accountNumber(int i) {
+        return String.format("AC%010d", i);
+    }
+
+    private static String outcome(Runnable operation) {
+        try {
+            operation.run();
+            return "ok";
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,96 @@
+package com.codesmells.oopabusers.switchstatements.bad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the per-payment lookups (fee rate and validator, description,
+ * processing time) over a mix of 1,024 payments: three string switches,
+ * the registry looked up by name for each call, and the registry with the
+ * type resolved once. Printing is left out so only dispatch is measured.
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.codesmells.oopabusers.switchstatements.bad.PaymentDispatchBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaymentDispatchBenchmark {
+
+    private static final String[] TYPES = {"CREDIT_CARD", "DEBIT_CARD", "PAYPAL", "BITCOIN"};
+    private static final int PAYMENTS = 1_024;
+
+    private final PaymentMethodRegistry registry = PaymentMethodRegistry.defaults();
+    private final PaymentService payments = new PaymentService(registry);
+    private final String[] types = new String[PAYMENTS];
+    private final PaymentMethod[] methods = new PaymentMethod[PAYMENTS];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(14);
+        for (int i = 0; i < PAYMENTS; i++) {
+            // Distinct instances, as if each type had been read off a request
+            types[i] = new String(TYPES[random.nextInt(TYPES.length)]);
+            methods[i] = payments.resolve(types[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        payments.close();
+    }
+
+    @Benchmark
+    public void stringSwitches(Blackhole blackhole) {
+        for (String type : types) {
+            blackhole.consume(SwitchPaymentDispatch.feeRate(type));
+            blackhole.consume(SwitchPaymentDispatch.description(type));
+            blackhole.consume(SwitchPaymentDispatch.processingTime(type));
+        }
+    }
+
+    @Benchmark
+    public void registryByName(Blackhole blackhole) {
+        for (String type : types) {
+            PaymentMethod method = registry.resolve(type);
+            blackhole.consume(registry.feeRate(method));
+            blackhole.consume(registry.validator(method));
+            blackhole.consume(payments.getPaymentDescription(type));
+            blackhole.consume(payments.getProcessingTime(type));
+        }
+    }
+
+    @Benchmark
+    public void registryResolvedOnce(Blackhole blackhole) {
+        for (PaymentMethod method : methods) {
+            blackhole.consume(registry.feeRate(method));
+            blackhole.consume(registry.validator(method));
+            blackhole.consume(payments.getPaymentDescription(method));
+            blackhole.consume(payments.getProcessingTime(method));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PaymentDispatchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
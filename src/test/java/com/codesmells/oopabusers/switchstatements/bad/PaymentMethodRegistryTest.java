@@ -0,0 +1,47 @@
+package com.codesmells.oopabusers.switchstatements.bad;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PaymentMethodRegistryTest {
+
+    private static final String[] TYPES = {"CREDIT_CARD", "DEBIT_CARD", "PAYPAL", "BITCOIN"};
+
+    @Test
+    void defaultsAnswerLikeTheOriginalSwitches() {
+        PaymentMethodRegistry registry = PaymentMethodRegistry.defaults();
+        try (PaymentService payments = new PaymentService(registry)) {
+            for (String type : TYPES) {
+                PaymentMethod method = payments.resolve(type);
+                assertEquals(SwitchPaymentDispatch.feeRate(type), registry.feeRate(method), type);
+                assertEquals(SwitchPaymentDispatch.description(type), payments.getPaymentDescription(method), type);
+                assertEquals(SwitchPaymentDispatch.processingTime(type), payments.getProcessingTime(method), type);
+            }
+            assertEquals(SwitchPaymentDispatch.description("CASH"), payments.getPaymentDescription("CASH"));
+            assertEquals(SwitchPaymentDispatch.processingTime("CASH"), payments.getProcessingTime("CASH"));
+            assertThrows(IllegalArgumentException.class, () -> payments.processPayment("CASH", 10));
+        }
+    }
+
+    @Test
+    void methodsRegisteredLaterDispatchWithoutTouchingTheService() {
+        PaymentMethodRegistry registry = PaymentMethodRegistry.defaults();
+        try (PaymentService payments = new PaymentService(registry)) {
+            assertNull(registry.find("GIFT_CARD"));
+
+            PaymentMethod giftCard = registry.register("GIFT_CARD", "gift card", 0.0, "Gift Card - Prepaid", 0,
+                (method, amount) -> { });
+
+            assertSame(giftCard, payments.resolve("GIFT_CARD"));
+            assertEquals(TYPES.length, giftCard.getId());
+            assertEquals("Gift Card - Prepaid", payments.getPaymentDescription("GIFT_CARD"));
+            assertEquals(0, payments.getProcessingTime("GIFT_CARD"));
+            assertThrows(IllegalArgumentException.class,
+                () -> registry.register("GIFT_CARD", "gift card", 0.0, "Duplicate", 0, (method, amount) -> { }));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.codesmells.oopabusers.switchstatements.bad;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaymentPipelineTest {
+
+    private static final int ACCOUNTS = 200;
+
+    @Test
+    void outcomesComeBackInInputOrderWithFeesAndRejections() {
+        PaymentMethodRegistry registry = PaymentMethodRegistry.defaults();
+        for (PaymentMethod method : registry.getMethods()) {
+            registry.setValidator(method, new LatencyPaymentValidator(Duration.ofMillis(1)));
+        }
+        PaymentMethod[] methods = registry.getMethods();
+        Random random = new Random(15);
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            double amount = i % 97 == 0 ? 0 : 1 + random.nextInt(100_000) / 100.0;
+            payments.add(new Payment("ACC-" + random.nextInt(ACCOUNTS), methods[random.nextInt(methods.length)], amount));
+        }
+
+        List<PaymentOutcome> outcomes;
+        long start = System.nanoTime();
+        try (PaymentPipeline pipeline = new PaymentPipeline(registry, 64)) {
+            outcomes = pipeline.process(payments);
+
+            assertEquals(0, pipeline.getQueueDepth());
+            assertEquals(payments.size(), pipeline.getValidationStats().getPaymentCount());
+            assertTrue(pipeline.getFeeStats().getThroughputPerSecond() > 0);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(payments.size(), outcomes.size());
+        for (int i = 0; i < payments.size(); i++) {
+            Payment payment = payments.get(i);
+            PaymentOutcome outcome = outcomes.get(i);
+            assertSame(payment, outcome.getPayment());
+            assertEquals(payment.getAmount() * registry.feeRate(payment.getMethod()), outcome.getFee());
+            assertEquals(payment.getAmount() > 0, outcome.isAccepted(), "payment " + i);
+        }
+        // Ten seconds of validator latency if run one payment at a time
+        assertTrue(elapsedMillis < 5_000, "took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void paymentsOfOneAccountAreValidatedInSubmissionOrder() {
+        PaymentMethodRegistry registry = PaymentMethodRegistry.defaults();
+        LatencyPaymentValidator latency = new LatencyPaymentValidator(Duration.ofMillis(1));
+        Map<Integer, List<Integer>> validated = new ConcurrentHashMap<>();
+        for (PaymentMethod method : registry.getMethods()) {
+            // The amount encodes account and sequence number, since validators only see the amount
+            registry.setValidator(method, (m, amount) -> {
+                latency.validate(m, amount);
+                int account = (int) amount / 100_000;
+                List<Integer> sequence = validated.computeIfAbsent(account, a -> new ArrayList<>());
+                synchronized (sequence) {
+                    sequence.add((int) amount % 100_000);
+                }
+            });
+        }
+        PaymentMethod[] methods = registry.getMethods();
+        Random random = new Random(16);
+        int[] submitted = new int[ACCOUNTS];
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            int account = random.nextInt(ACCOUNTS);
+            double amount = account * 100_000 + ++submitted[account];
+            payments.add(new Payment("ACC-" + account, methods[random.nextInt(methods.length)], amount));
+        }
+
+        try (PaymentPipeline pipeline = new PaymentPipeline(registry, 16)) {
+            pipeline.process(payments);
+        }
+
+        assertFalse(validated.isEmpty());
+        for (Map.Entry<Integer, List<Integer>> account : validated.entrySet()) {
+            List<Integer> sequence = account.getValue();
+            assertEquals(submitted[account.getKey()], sequence.size());
+            for (int i = 0; i < sequence.size(); i++) {
+                assertEquals(i + 1, sequence.get(i), "account " + account.getKey());
+            }
+        }
+    }
+
+    @Test
+    void paymentsWithMethodsUnknownToTheRegistryAreRejectedOneByOne() {
+        PaymentMethodRegistry registry = PaymentMethodRegistry.defaults();
+        for (PaymentMethod method : registry.getMethods()) {
+            registry.setValidator(method, (m, amount) -> { });
+        }
+        PaymentMethod card = registry.resolve("CREDIT_CARD");
+        PaymentMethodRegistry other = PaymentMethodRegistry.defaults();
+        // Same id as this registry's CREDIT_CARD, and an id past the end of this registry's tables
+        PaymentMethod foreign = other.resolve("CREDIT_CARD");
+        PaymentMethod beyondRange = other.register("GIFT_CARD", "gift card", 0, "Gift card", 0, (m, a) -> { });
+
+        try (PaymentPipeline pipeline = new PaymentPipeline(registry, 4)) {
+            PaymentMethod wire = registry.register("WIRE", "wire", 0.005, "Wire transfer", 1, (m, a) -> { });
+            List<PaymentOutcome> outcomes = pipeline.process(List.of(
+                new Payment("ACC-1", card, 100),
+                new Payment("ACC-1", foreign, 100),
+                new Payment("ACC-2", beyondRange, 100),
+                new Payment("ACC-2", wire, 100)));
+
+            assertTrue(outcomes.get(0).isAccepted());
+            assertEquals(2.9, outcomes.get(0).getFee(), 1e-9);
+            assertFalse(outcomes.get(1).isAccepted());
+            assertEquals("Unknown payment method: CREDIT_CARD", outcomes.get(1).getRejectionReason());
+            assertEquals(0, outcomes.get(1).getFee());
+            assertEquals("Unknown payment method: GIFT_CARD", outcomes.get(2).getRejectionReason());
+            assertTrue(outcomes.get(3).isAccepted(), "registered after the pipeline was built, but before the batch");
+            assertEquals(0.5, outcomes.get(3).getFee(), 1e-9);
+            assertEquals(0, pipeline.getQueueDepth());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.codesmells.oopabusers.switchstatements.bad;
+
+/**
+ * The three string switches PaymentService used before the registry, minus
+ * their printing, as the reference for tests and benchmarks.
+ */
+final class SwitchPaymentDispatch {
+
+    private SwitchPaymentDispatch() {
+    }
+
+    static double feeRate(String paymentType) {
+        switch (paymentType) {
+            case "CREDIT_CARD":
+                return 0.029;
+            case "DEBIT_CARD":
+                return 0.015;
+            case "PAYPAL":
+                return 0.034;
+            case "BITCOIN":
+                return 0.01;
+            default:
+                throw new IllegalArgumentException("Unknown payment type: " + paymentType);
+        }
+    }
+
+    static String description(String paymentType) {
+        switch (paymentType) {
+            case "CREDIT_CARD":
+                return "Credit Card - Fast and secure";
+            case "DEBIT_CARD":
+                return "Debit Card - Direct bank transfer";
+            case "PAYPAL":
+                return "PayPal - Popular online payment";
+            case "BITCOIN":
+                return "Bitcoin - Cryptocurrency payment";
+            default:
+                return "Unknown payment method";
+        }
+    }
+
+    static int processingTime(String paymentType) {
+        switch (paymentType) {
+            case "CREDIT_CARD":
+                return 1;
+            case "DEBIT_CARD":
+                return 2;
+            case "PAYPAL":
+                return 1;
+            case "BITCOIN":
+                return 3;
+            default:
+                return 5;
+        }
+    }
+}